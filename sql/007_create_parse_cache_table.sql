@@ -0,0 +1,26 @@
+-- 创建 MinerU 解析结果缓存表（按文件内容哈希 + 解析参数寻址）
+CREATE TABLE IF NOT EXISTS mcp_parse_cache (
+    cache_key VARCHAR(64) PRIMARY KEY,
+    file_sha256 VARCHAR(64) NOT NULL,
+    parse_options VARCHAR(500) NOT NULL,
+    md_content TEXT NOT NULL,
+    image_manifest TEXT,
+    size_bytes BIGINT NOT NULL,
+    hit_count BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    last_accessed_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_mcp_parse_cache_file_sha256 ON mcp_parse_cache(file_sha256);
+CREATE INDEX IF NOT EXISTS idx_mcp_parse_cache_last_accessed_at ON mcp_parse_cache(last_accessed_at);
+
+COMMENT ON TABLE mcp_parse_cache IS 'MinerU 解析结果缓存表';
+COMMENT ON COLUMN mcp_parse_cache.cache_key IS '缓存键：SHA-256(文件内容哈希 + 解析参数)';
+COMMENT ON COLUMN mcp_parse_cache.file_sha256 IS '原始文件内容 SHA-256';
+COMMENT ON COLUMN mcp_parse_cache.parse_options IS '解析参数（parseMethod/backend/formula/table/language）';
+COMMENT ON COLUMN mcp_parse_cache.md_content IS 'MinerU 返回的 Markdown 内容';
+COMMENT ON COLUMN mcp_parse_cache.image_manifest IS '图片清单：图片名称 -> MinIO file_key（JSON 对象）';
+COMMENT ON COLUMN mcp_parse_cache.size_bytes IS '缓存条目大小（字节），用于容量淘汰';
+COMMENT ON COLUMN mcp_parse_cache.hit_count IS '命中次数';
+COMMENT ON COLUMN mcp_parse_cache.created_at IS '创建时间';
+COMMENT ON COLUMN mcp_parse_cache.last_accessed_at IS '最近访问时间（LRU 淘汰依据）';
@@ -0,0 +1,12 @@
+-- 添加 PDF 预检字段
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS page_count INTEGER;
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS has_text_layer BOOLEAN;
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS embedded_image_count INTEGER;
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS encrypted BOOLEAN;
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS estimated_cost_time BIGINT;
+
+COMMENT ON COLUMN mcp_ingest_tasks.page_count IS 'PDF 页数（预检）';
+COMMENT ON COLUMN mcp_ingest_tasks.has_text_layer IS 'PDF 是否包含文本层（预检）';
+COMMENT ON COLUMN mcp_ingest_tasks.embedded_image_count IS 'PDF 内嵌图片数量（预检）';
+COMMENT ON COLUMN mcp_ingest_tasks.encrypted IS 'PDF 是否加密（预检）';
+COMMENT ON COLUMN mcp_ingest_tasks.estimated_cost_time IS '预估处理耗时（毫秒，基于历史任务回归）';
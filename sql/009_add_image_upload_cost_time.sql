@@ -0,0 +1,4 @@
+-- 添加图片上传耗时字段
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS image_upload_cost_time BIGINT;
+
+COMMENT ON COLUMN mcp_ingest_tasks.image_upload_cost_time IS '图片上传耗时（毫秒，含图片记录写入）';
@@ -0,0 +1,7 @@
+-- 图片按内容 SHA-256 去重
+ALTER TABLE mcp_ingest_images ADD COLUMN IF NOT EXISTS sha256 VARCHAR(64);
+
+-- 历史记录 sha256 为空，不参与唯一约束
+CREATE UNIQUE INDEX IF NOT EXISTS uk_mcp_ingest_images_sha256 ON mcp_ingest_images(sha256);
+
+COMMENT ON COLUMN mcp_ingest_images.sha256 IS '图片内容 SHA-256（十六进制），对象名由其派生';
@@ -0,0 +1,28 @@
+-- 创建 VLM 图片分析结果缓存表（按图片内容哈希 + 模型 + 提示词哈希寻址）
+CREATE TABLE IF NOT EXISTS mcp_vlm_result_cache (
+    cache_key VARCHAR(64) PRIMARY KEY,
+    image_sha256 VARCHAR(64) NOT NULL,
+    model VARCHAR(200) NOT NULL,
+    prompt_hash VARCHAR(64) NOT NULL,
+    description TEXT NOT NULL,
+    ocr_text TEXT,
+    duration BIGINT NOT NULL DEFAULT 0,
+    hit_count BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    last_accessed_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_mcp_vlm_result_cache_image_sha256 ON mcp_vlm_result_cache(image_sha256);
+CREATE INDEX IF NOT EXISTS idx_mcp_vlm_result_cache_last_accessed_at ON mcp_vlm_result_cache(last_accessed_at);
+
+COMMENT ON TABLE mcp_vlm_result_cache IS 'VLM 图片分析结果缓存表';
+COMMENT ON COLUMN mcp_vlm_result_cache.cache_key IS '缓存键：SHA-256(图片内容哈希 + 模型 + 提示词哈希)';
+COMMENT ON COLUMN mcp_vlm_result_cache.image_sha256 IS '图片内容 SHA-256';
+COMMENT ON COLUMN mcp_vlm_result_cache.model IS 'VLM 模型名称';
+COMMENT ON COLUMN mcp_vlm_result_cache.prompt_hash IS '提示词 SHA-256';
+COMMENT ON COLUMN mcp_vlm_result_cache.description IS '图片描述';
+COMMENT ON COLUMN mcp_vlm_result_cache.ocr_text IS 'OCR 文字';
+COMMENT ON COLUMN mcp_vlm_result_cache.duration IS '原始 VLM 请求耗时（毫秒），命中时计为节省的 GPU 时间';
+COMMENT ON COLUMN mcp_vlm_result_cache.hit_count IS '命中次数';
+COMMENT ON COLUMN mcp_vlm_result_cache.created_at IS '创建时间';
+COMMENT ON COLUMN mcp_vlm_result_cache.last_accessed_at IS '最近访问时间（LRU 淘汰依据）';
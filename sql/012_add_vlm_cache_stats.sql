@@ -0,0 +1,8 @@
+-- 添加 VLM 结果缓存统计字段
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS vlm_cache_lookups INTEGER;
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS vlm_cache_hits INTEGER;
+ALTER TABLE mcp_ingest_tasks ADD COLUMN IF NOT EXISTS vlm_cache_saved_time BIGINT;
+
+COMMENT ON COLUMN mcp_ingest_tasks.vlm_cache_lookups IS 'VLM 结果缓存查询次数（待分析且内容哈希已知的图片数）';
+COMMENT ON COLUMN mcp_ingest_tasks.vlm_cache_hits IS 'VLM 结果缓存命中次数';
+COMMENT ON COLUMN mcp_ingest_tasks.vlm_cache_saved_time IS '缓存命中节省的 VLM 耗时（毫秒，按原始请求耗时累计）';
@@ -0,0 +1,4 @@
+-- 解析缓存保存 MinerU content_list 转换后的文档块，命中缓存时与重新解析得到的块一致（页码、块类型）
+ALTER TABLE mcp_parse_cache ADD COLUMN IF NOT EXISTS blocks TEXT;
+
+COMMENT ON COLUMN mcp_parse_cache.blocks IS '文档块列表（JSON 数组），MinerU 未返回 content_list 或旧条目为 NULL';
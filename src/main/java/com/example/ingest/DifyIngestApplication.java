@@ -2,8 +2,10 @@ package com.example.ingest;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DifyIngestApplication {
     public static void main(String[] args) {
         SpringApplication.run(DifyIngestApplication.class, args);
@@ -0,0 +1,78 @@
+package com.example.ingest.client;
+
+import com.example.ingest.util.GenerationGuard;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+import java.io.IOException;
+
+/**
+ * 流式 Chat Completion 响应读取
+ * 逐段读取模型输出并交给 GenerationGuard 判定，需要提前终止时取消请求：
+ * 连接断开后 Ollama / vLLM 等服务端随即停止生成，释放 GPU 槽位
+ * 支持两种格式：
+ * - Ollama：每行一个 JSON 对象 {"message": {"content": "..."}, "done": false}
+ * - OpenAI 兼容：SSE，每个事件 data: {"choices": [{"delta": {"content": "..."}}]}，以 data: [DONE] 结束
+ *
+ * @author HarryReid(黄药师)
+ */
+final class ChatCompletionStream {
+
+    private ChatCompletionStream() {
+    }
+
+    /**
+     * 读取流式响应
+     *
+     * @param call 请求（提前终止时取消）
+     * @param response 成功的响应
+     * @param ollama 是否为 Ollama 格式
+     * @param objectMapper JSON 解析
+     * @param guard 提前终止判定，读取结束后通过 guard.getText() 获取完整输出
+     */
+    static void read(Call call, Response response, boolean ollama, ObjectMapper objectMapper, GenerationGuard guard) throws IOException {
+        BufferedSource source = response.body().source();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            JsonNode chunk;
+            if (ollama) {
+                chunk = objectMapper.readTree(line);
+                if (chunk.hasNonNull("error")) {
+                    throw new IOException("Ollama 流式响应错误: " + chunk.path("error").asText());
+                }
+            } else {
+                // 忽略 SSE 注释、event: 等非数据行
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring(5).trim();
+                if ("[DONE]".equals(data)) {
+                    return;
+                }
+                chunk = objectMapper.readTree(data);
+                if (chunk.hasNonNull("error")) {
+                    throw new IOException("流式响应错误: " + chunk.path("error").toString());
+                }
+            }
+
+            String delta = ollama
+                    ? chunk.path("message").path("content").asText("")
+                    : chunk.path("choices").path(0).path("delta").path("content").asText("");
+            if (guard.append(delta)) {
+                call.cancel();
+                return;
+            }
+            if (ollama && chunk.path("done").asBoolean(false)) {
+                return;
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import okhttp3.*;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,9 +30,14 @@ public class DifyClient {
     private final ObjectMapper objectMapper;
     
     private OkHttpClient getHttpClient() {
+        return getHttpClient(Duration.ofSeconds(60));
+    }
+
+    private OkHttpClient getHttpClient(Duration timeout) {
         return new OkHttpClient.Builder()
                 .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(timeout)
+                .callTimeout(timeout)
                 .build();
     }
 
@@ -78,10 +84,11 @@ public class DifyClient {
      * 
      * @param datasetId Dataset ID
      * @param request 创建文档请求
+     * @param timeout 整体超时（由调用方按文档大小推算）
      * @return 创建结果
      */
-    public DifyCreateDocumentResponse createDocument(String datasetId, DifyCreateDocumentRequest request) {
-        log.info("开始调用 Dify API 创建文档: datasetId={}, name={}", datasetId, request.getName());
+    public DifyCreateDocumentResponse createDocument(String datasetId, DifyCreateDocumentRequest request, Duration timeout) {
+        log.info("开始调用 Dify API 创建文档: datasetId={}, name={}, 超时: {} s", datasetId, request.getName(), timeout.toSeconds());
         
         String url = String.format("%s/datasets/%s/document/create_by_text", 
                 appProperties.getDify().getBaseUrl(), datasetId);
@@ -97,7 +104,7 @@ public class DifyClient {
                     .addHeader("Content-Type", "application/json")
                     .build();
             
-            try (Response response = getHttpClient().newCall(httpRequest).execute()) {
+            try (Response response = getHttpClient(timeout).newCall(httpRequest).execute()) {
                 if (!response.isSuccessful()) {
                     String errorBody = response.body() != null ? response.body().string() : "Unknown error";
                     log.error("Dify API 调用失败: status={}, body={}", response.code(), errorBody);
@@ -1,6 +1,7 @@
 package com.example.ingest.client;
 
 import com.example.ingest.config.AppProperties;
+import com.example.ingest.util.GenerationGuard;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -75,18 +76,30 @@ public class LlmClient {
             
             Request request = requestBuilder.build();
             
-            try (Response response = getHttpClient().newCall(request).execute()) {
+            Call call = getHttpClient().newCall(request);
+            try (Response response = call.execute()) {
                 if (!response.isSuccessful()) {
                     String errorBody = response.body() != null ? response.body().string() : "Unknown error";
                     log.error("LLM API 调用失败: status={}, body={}", response.code(), errorBody);
                     return "";
                 }
                 
-                String responseBody = response.body().string();
-                log.debug("LLM 响应: {}", responseBody);
-                
-                // 解析响应
-                String summary = parseResponse(responseBody, provider);
+                String summary;
+                if (Boolean.TRUE.equals(llmConfig.getStreamEnabled())) {
+                    // 流式读取，出现重复循环时取消请求并截断
+                    GenerationGuard guard = new GenerationGuard(llmConfig.getLoopMinChars(), List.of());
+                    ChatCompletionStream.read(call, response, provider == LlmProvider.OLLAMA, objectMapper, guard);
+                    if (guard.getStopReason() != null) {
+                        log.info("LLM 输出提前终止: 原因={}, 已生成长度={}", guard.getStopReason(), guard.getText().length());
+                    }
+                    summary = guard.getText().trim();
+                } else {
+                    String responseBody = response.body().string();
+                    log.debug("LLM 响应: {}", responseBody);
+                    
+                    // 解析响应
+                    summary = parseResponse(responseBody, provider);
+                }
                 
                 long duration = System.currentTimeMillis() - startTime;
                 log.info("LLM 摘要生成完成，摘要长度={}, 耗时={}ms", summary.length(), duration);
@@ -135,7 +148,7 @@ public class LlmClient {
                             Map.of("role", "system", "content", systemPrompt),
                             Map.of("role", "user", "content", content)
                     ),
-                    "stream", false
+                    "stream", Boolean.TRUE.equals(llmConfig.getStreamEnabled())
             );
             return objectMapper.writeValueAsString(requestMap);
         } else {
@@ -146,7 +159,8 @@ public class LlmClient {
                             Map.of("role", "system", "content", systemPrompt),
                             Map.of("role", "user", "content", content)
                     ),
-                    "max_tokens", llmConfig.getMaxTokens()
+                    "max_tokens", llmConfig.getMaxTokens(),
+                    "stream", Boolean.TRUE.equals(llmConfig.getStreamEnabled())
             );
             return objectMapper.writeValueAsString(requestMap);
         }
@@ -8,10 +8,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,32 +31,93 @@ public class MineruClient {
     
     private final AppProperties appProperties;
     private final ObjectMapper objectMapper;
+    private final MineruEndpointPool endpointPool;
     
-    private OkHttpClient getHttpClient() {
+    /**
+     * 超时由调用方按文档规模推算（TimeoutPolicy）：MinerU 解析完成前不返回数据，读超时与整体超时一致
+     */
+    private OkHttpClient getHttpClient(Duration timeout) {
         return new OkHttpClient.Builder()
                 .connectTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(1800, TimeUnit.SECONDS)  // 30分钟，解决大文件解析超时
+                .readTimeout(timeout)
                 .writeTimeout(300, TimeUnit.SECONDS)
+                .callTimeout(timeout)
                 .build();
     }
 
     /**
      * 调用 MinerU 解析 PDF（本地 v2 API）
      * 关键：启用 return_images=true 以获取图片信息
+     *
+     * @param pdfFile PDF 文件
+     * @param originalFileName 原始文件名
+     * @param timeout 整体超时（含上传、解析与读取响应）
      */
-    public MineruParseResponse parsePdf(File pdfFile, String originalFileName) {
-        log.info("开始调用 MinerU 解析文件: {}", originalFileName);
-        
-        String url = appProperties.getMineru().getBaseUrl() + "/file_parse";
+    public MineruParseResponse parsePdf(File pdfFile, String originalFileName, Duration timeout) {
+        return parsePdf(pdfFile, originalFileName, null, timeout);
+    }
+
+    /**
+     * 调用 MinerU 解析 PDF，按指定解析方法覆盖配置
+     *
+     * @param pdfFile PDF 文件
+     * @param originalFileName 原始文件名
+     * @param parseMethod 解析方法（txt, ocr, auto），为 null 时使用配置
+     * @param timeout 整体超时（含上传、解析与读取响应）
+     */
+    public MineruParseResponse parsePdf(File pdfFile, String originalFileName, String parseMethod, Duration timeout) {
+        return parse(RequestBody.create(pdfFile, MediaType.parse("application/pdf")), originalFileName, parseMethod, timeout);
+    }
+
+    /**
+     * 调用 MinerU 解析 PDF，文件内容直接从输入流转发到 multipart 请求体，不落盘
+     * 请求体只能写出一次，OkHttp 不会对该请求做重试
+     *
+     * @param pdfStream PDF 内容输入流（由调用方关闭）
+     * @param contentLength 内容长度，必须准确，用于 multipart Content-Length
+     * @param originalFileName 原始文件名
+     * @param timeout 整体超时（含上传、解析与读取响应）
+     */
+    public MineruParseResponse parsePdf(InputStream pdfStream, long contentLength, String originalFileName, Duration timeout) {
+        RequestBody fileBody = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return MediaType.parse("application/pdf");
+            }
+
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                Source source = Okio.source(pdfStream);
+                sink.writeAll(source);
+            }
+        };
+        return parse(fileBody, originalFileName, null, timeout);
+    }
+
+    private MineruParseResponse parse(RequestBody fileBody, String originalFileName, String parseMethod, Duration timeout) {
+        if (parseMethod == null) {
+            parseMethod = appProperties.getMineru().getParseMethod();
+        }
+        log.info("开始调用 MinerU 解析文件: {}, 解析方法: {}, 超时: {} s", originalFileName, parseMethod, timeout.toSeconds());
         
         // 构建请求体（multipart/form-data）
         MultipartBody.Builder bodyBuilder = new MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
-                .addFormDataPart("files", originalFileName,
-                        RequestBody.create(pdfFile, MediaType.parse("application/pdf")));
+                .addFormDataPart("files", originalFileName, fileBody);
         
         // 添加解析参数（参考 parse.py 的 _parse_local_v2）
-        bodyBuilder.addFormDataPart("parse_method", appProperties.getMineru().getParseMethod());
+        boolean zipTransport = "zip".equalsIgnoreCase(appProperties.getMineru().getImageTransport());
+        bodyBuilder.addFormDataPart("parse_method", parseMethod);
         bodyBuilder.addFormDataPart("return_md", "true");
         bodyBuilder.addFormDataPart("return_model_output", "false");
         bodyBuilder.addFormDataPart("return_content_list", "true");
@@ -60,31 +127,49 @@ public class MineruClient {
         bodyBuilder.addFormDataPart("formula_enable", appProperties.getMineru().getEnableFormula().toString());
         bodyBuilder.addFormDataPart("table_enable", appProperties.getMineru().getEnableTable().toString());
         bodyBuilder.addFormDataPart("return_middle_json", "false");
+        if (zipTransport) {
+            // 图片以原始字节打包在 zip 中返回，不再经过 base64
+            bodyBuilder.addFormDataPart("response_format_zip", "true");
+        }
+        
+        MineruEndpointPool.Endpoint endpoint = endpointPool.acquire();
+        long startTime = System.currentTimeMillis();
+        boolean endpointHealthy = false;
+        log.info("MinerU 解析路由到节点: {}", endpoint.getUrl());
         
         Request request = new Request.Builder()
-                .url(url)
+                .url(endpoint.getUrl() + "/file_parse")
                 .post(bodyBuilder.build())
-                .addHeader("accept", "application/json")
+                .addHeader("accept", zipTransport ? "application/zip, application/json" : "application/json")
                 .build();
         
-        try (Response response = getHttpClient().newCall(request).execute()) {
+        try (Response response = getHttpClient(timeout).newCall(request).execute()) {
+            // 4xx 属于请求本身的问题，不计入节点故障
+            endpointHealthy = response.code() < 500;
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                log.error("MinerU 解析失败: status={}, body={}", response.code(), errorBody);
+                log.error("MinerU 解析失败: endpoint={}, status={}, body={}", endpoint.getUrl(), response.code(), errorBody);
                 throw new MineruException("MinerU 解析失败: " + errorBody);
             }
             
-            String responseBody = response.body().string();
-            log.debug("MinerU 响应: {}", responseBody);
-            
-            MineruParseResponse parseResponse = objectMapper.readValue(responseBody, MineruParseResponse.class);
+            // 流式读取响应：图片边读边写入临时文件，不把整份响应读入内存
+            // 旧版本 MinerU 不支持 response_format_zip 时仍返回 JSON，按响应类型选择读取方式
+            MediaType contentType = response.body().contentType();
+            MineruParseResponse parseResponse = contentType != null && contentType.subtype().contains("zip")
+                    ? new MineruZipResponseReader(objectMapper).read(response.body().byteStream())
+                    : new MineruResponseReader(objectMapper).read(response.body().byteStream());
             log.info("MinerU 解析成功，返回 {} 个文件结果", parseResponse.getResults().size());
             
             return parseResponse;
             
+        } catch (InterruptedIOException e) {
+            log.error("MinerU 解析超时: endpoint={}, file={}, timeout={} s", endpoint.getUrl(), originalFileName, timeout.toSeconds());
+            throw new MineruException(String.format("MinerU 解析超时（%d s）: %s", timeout.toSeconds(), e.getMessage()), e);
         } catch (IOException e) {
-            log.error("调用 MinerU 失败", e);
+            log.error("调用 MinerU 失败: endpoint={}", endpoint.getUrl(), e);
             throw new MineruException("调用 MinerU 失败: " + e.getMessage(), e);
+        } finally {
+            endpointPool.release(endpoint, endpointHealthy, System.currentTimeMillis() - startTime);
         }
     }
 }
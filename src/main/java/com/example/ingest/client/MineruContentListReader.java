@@ -0,0 +1,157 @@
+package com.example.ingest.client;
+
+import com.example.ingest.model.DocumentBlock;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MinerU content_list 读取器
+ * 逐项读取 content_list 数组并转换为文档块：text（含 text_level 的为标题）、image、table、equation，
+ * 以及新版本的 list、code；页眉、页脚、页码、旁注等版面元素跳过
+ */
+class MineruContentListReader {
+
+    private final ObjectMapper objectMapper;
+
+    MineruContentListReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 从当前 token 读取：/file_parse 的 JSON 响应中 content_list 是序列化后的字符串，zip 中是数组
+     */
+    List<DocumentBlock> read(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            try (JsonParser nested = objectMapper.getFactory().createParser(parser.getText())) {
+                nested.nextToken();
+                return read(nested);
+            }
+        }
+
+        List<DocumentBlock> blocks = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return blocks;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            DocumentBlock block = toBlock(objectMapper.readTree(parser));
+            if (block != null) {
+                blocks.add(block);
+            }
+        }
+        return blocks;
+    }
+
+    List<DocumentBlock> read(byte[] content) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(content)) {
+            parser.nextToken();
+            return read(parser);
+        }
+    }
+
+    private DocumentBlock toBlock(JsonNode item) {
+        int pageIndex = item.path("page_idx").asInt(-1);
+        String imagePath = blankToNull(item.path("img_path").asText(""));
+        switch (item.path("type").asText("")) {
+            case "text", "title" -> {
+                String text = item.path("text").asText("").strip();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                int level = item.path("text_level").asInt("title".equals(item.path("type").asText()) ? 1 : 0);
+                return DocumentBlock.builder()
+                        .type(level > 0 ? DocumentBlock.Type.HEADING : DocumentBlock.Type.PARAGRAPH)
+                        .text(text)
+                        .level(Math.min(level, 6))
+                        .pageIndex(pageIndex)
+                        .build();
+            }
+            case "image" -> {
+                return imagePath == null ? null : DocumentBlock.builder()
+                        .type(DocumentBlock.Type.IMAGE)
+                        .imagePath(imagePath)
+                        .caption(joinLines(item, "image_caption", "img_caption"))
+                        .footnote(joinLines(item, "image_footnote", "img_footnote"))
+                        .pageIndex(pageIndex)
+                        .build();
+            }
+            case "table" -> {
+                String body = blankToNull(item.path("table_body").asText(""));
+                return body == null && imagePath == null ? null : DocumentBlock.builder()
+                        .type(DocumentBlock.Type.TABLE)
+                        .text(body)
+                        .imagePath(imagePath)
+                        .caption(joinLines(item, "table_caption"))
+                        .footnote(joinLines(item, "table_footnote"))
+                        .pageIndex(pageIndex)
+                        .build();
+            }
+            case "equation" -> {
+                String latex = blankToNull(item.path("text").asText(""));
+                return latex == null && imagePath == null ? null : DocumentBlock.builder()
+                        .type(DocumentBlock.Type.EQUATION)
+                        .text(latex)
+                        .imagePath(imagePath)
+                        .pageIndex(pageIndex)
+                        .build();
+            }
+            case "list" -> {
+                String items = joinLines(item, "list_items");
+                return items == null ? null : DocumentBlock.builder()
+                        .type(DocumentBlock.Type.PARAGRAPH)
+                        .text(items)
+                        .pageIndex(pageIndex)
+                        .build();
+            }
+            case "code" -> {
+                String code = item.path("code_body").asText("").strip();
+                if (code.isEmpty()) {
+                    return null;
+                }
+                if (!code.startsWith("```")) {
+                    code = "```\n" + code + "\n```";
+                }
+                return DocumentBlock.builder()
+                        .type(DocumentBlock.Type.PARAGRAPH)
+                        .text(code)
+                        .pageIndex(pageIndex)
+                        .build();
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 字符串数组按行拼接（兼容不同版本的字段名），为空时返回 null
+     */
+    private String joinLines(JsonNode item, String... fields) {
+        for (String field : fields) {
+            JsonNode node = item.path(field);
+            if (node.isArray() && !node.isEmpty()) {
+                List<String> lines = new ArrayList<>();
+                node.forEach(line -> {
+                    if (!line.asText("").isBlank()) {
+                        lines.add(line.asText().strip());
+                    }
+                });
+                return lines.isEmpty() ? null : String.join("\n", lines);
+            }
+            if (node.isTextual() && !node.asText().isBlank()) {
+                return node.asText().strip();
+            }
+        }
+        return null;
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.ingest.client;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.exception.MineruException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MinerU 服务节点池
+ * 每次解析选择「在途请求数 × 近期平均耗时」最小的健康节点，单节点并发不超过上限；
+ * 连续失败的节点暂时移出轮转，由后台健康探测恢复
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MineruEndpointPool {
+
+    /** 近期耗时的指数移动平均权重 */
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final OkHttpClient probeClient = new OkHttpClient.Builder()
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(5, TimeUnit.SECONDS)
+            .build();
+
+    @PostConstruct
+    public void init() {
+        AppProperties.MineruConfig config = appProperties.getMineru();
+        List<String> urls = config.getEndpoints() != null && !config.getEndpoints().isEmpty()
+                ? config.getEndpoints()
+                : List.of(config.getBaseUrl());
+
+        for (String url : urls) {
+            Endpoint endpoint = new Endpoint(url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+            endpoints.add(endpoint);
+
+            Gauge.builder("ingest.mineru.endpoint.inflight", endpoint, Endpoint::getInFlight)
+                    .tag("endpoint", endpoint.getUrl()).register(meterRegistry);
+            Gauge.builder("ingest.mineru.endpoint.healthy", endpoint, e -> e.isHealthy() ? 1 : 0)
+                    .tag("endpoint", endpoint.getUrl()).register(meterRegistry);
+            Gauge.builder("ingest.mineru.endpoint.latency.ewma", endpoint, Endpoint::getEwmaMillis)
+                    .tag("endpoint", endpoint.getUrl()).baseUnit("milliseconds").register(meterRegistry);
+        }
+        log.info("MinerU 节点池初始化完成: {}, 单节点并发上限: {}", urls, config.getMaxConcurrentPerEndpoint());
+    }
+
+    /**
+     * 获取一个节点，所有可用节点都已满载时阻塞等待
+     *
+     * @return 已占用的节点，调用结束后必须 {@link #release}
+     */
+    public synchronized Endpoint acquire() {
+        int cap = appProperties.getMineru().getMaxConcurrentPerEndpoint();
+        while (true) {
+            List<Endpoint> candidates = endpoints.stream().filter(Endpoint::isHealthy).toList();
+            if (candidates.isEmpty()) {
+                // 全部节点不健康时不直接拒绝，仍按负载尝试，避免探测误判导致整体不可用
+                log.warn("MinerU 无健康节点，按负载在全部节点中选择");
+                candidates = endpoints;
+            }
+
+            Endpoint best = candidates.stream()
+                    .filter(e -> e.inFlight < cap)
+                    .min(Comparator.comparingDouble(Endpoint::score))
+                    .orElse(null);
+            if (best != null) {
+                best.inFlight++;
+                return best;
+            }
+
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MineruException("等待 MinerU 节点时被中断", e);
+            }
+        }
+    }
+
+    /**
+     * 全部节点的并发解析容量（节点数 × 单节点并发上限）
+     */
+    public int capacity() {
+        return endpoints.size() * appProperties.getMineru().getMaxConcurrentPerEndpoint();
+    }
+
+    /**
+     * 归还节点并记录本次调用结果
+     *
+     * @param endpoint 节点
+     * @param success 是否成功（节点故障类失败才应传 false）
+     * @param costMillis 调用耗时
+     */
+    public synchronized void release(Endpoint endpoint, boolean success, long costMillis) {
+        endpoint.inFlight--;
+        if (success) {
+            endpoint.consecutiveFailures = 0;
+            endpoint.ewmaMillis = endpoint.ewmaMillis == 0
+                    ? costMillis
+                    : EWMA_ALPHA * costMillis + (1 - EWMA_ALPHA) * endpoint.ewmaMillis;
+        } else {
+            endpoint.consecutiveFailures++;
+            if (endpoint.healthy && endpoint.consecutiveFailures >= appProperties.getMineru().getFailureThreshold()) {
+                endpoint.healthy = false;
+                log.warn("MinerU 节点连续失败 {} 次，移出轮转: {}", endpoint.consecutiveFailures, endpoint.getUrl());
+            }
+        }
+
+        Timer.builder("ingest.mineru.parse")
+                .tag("endpoint", endpoint.getUrl())
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(costMillis, TimeUnit.MILLISECONDS);
+        notifyAll();
+    }
+
+    /**
+     * 后台健康探测
+     */
+    @Scheduled(fixedDelayString = "${app.mineru.health-check-interval:30000}")
+    public void probe() {
+        String path = appProperties.getMineru().getHealthCheckPath();
+        for (Endpoint endpoint : endpoints) {
+            boolean alive;
+            Request request = new Request.Builder().url(endpoint.getUrl() + path).get().build();
+            try (Response response = probeClient.newCall(request).execute()) {
+                alive = response.code() < 500;
+            } catch (Exception e) {
+                alive = false;
+            }
+            updateHealth(endpoint, alive);
+        }
+    }
+
+    private synchronized void updateHealth(Endpoint endpoint, boolean alive) {
+        if (alive && !endpoint.healthy) {
+            log.info("MinerU 节点恢复，重新加入轮转: {}", endpoint.getUrl());
+            endpoint.consecutiveFailures = 0;
+            notifyAll();
+        } else if (!alive && endpoint.healthy) {
+            log.warn("MinerU 节点健康探测失败，移出轮转: {}", endpoint.getUrl());
+        }
+        endpoint.healthy = alive;
+    }
+
+    /**
+     * MinerU 节点
+     */
+    public static class Endpoint {
+        @Getter
+        private final String url;
+        private volatile int inFlight;
+        private int consecutiveFailures;
+        private volatile boolean healthy = true;
+        private volatile double ewmaMillis;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public double getEwmaMillis() {
+            return ewmaMillis;
+        }
+
+        /**
+         * 负载评分：在途请求越多、近期越慢，评分越高；未有耗时样本的节点优先被尝试
+         */
+        double score() {
+            return (inFlight + 1) * Math.max(ewmaMillis, 1);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.ingest.client;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.exception.MineruException;
+import com.example.ingest.model.MineruParseResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 远程 MinerU 异步任务客户端（mineru.net v4 API）
+ * 提交解析任务后立即返回 Future，不占用调用线程；由单个定时任务统一完成：
+ * 1. 将排队的提交合并为一次 /extract/task/batch 请求
+ * 2. 每个批次只发一次 /extract-results/batch 请求查询全部文件状态
+ * 3. 解析完成的结果 zip 交给 mineruExecutor 下载读取后完成 Future
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MineruRemoteJobClient {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final AppProperties appProperties;
+    private final ObjectMapper objectMapper;
+
+    @Qualifier("mineruExecutor")
+    private final Executor mineruExecutor;
+
+    /** 待提交的任务 */
+    private final Queue<RemoteJob> submitQueue = new ConcurrentLinkedQueue<>();
+
+    /** 已提交、等待结果的任务：batch_id -> 任务列表（仅由定时任务线程访问） */
+    private final Map<String, List<RemoteJob>> batches = new HashMap<>();
+
+    private OkHttpClient httpClient;
+
+    private synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
+                    .connectTimeout(30, TimeUnit.SECONDS)
+                    .readTimeout(300, TimeUnit.SECONDS)
+                    .build();
+        }
+        return httpClient;
+    }
+
+    /**
+     * 是否启用远程异步任务模式
+     */
+    public boolean isEnabled() {
+        return "remote".equalsIgnoreCase(appProperties.getMineru().getServerType());
+    }
+
+    /**
+     * 提交解析任务（远程服务直接按 URL 拉取文件，文件地址需公网可访问）
+     *
+     * @param fileUrl 文件下载地址
+     * @param fileName 原始文件名
+     * @return 解析完成时完成的 Future
+     */
+    public CompletableFuture<MineruParseResponse> submit(String fileUrl, String fileName) {
+        RemoteJob job = new RemoteJob(UUID.randomUUID().toString().replace("-", ""), fileUrl, fileName);
+        submitQueue.add(job);
+        log.info("远程 MinerU 解析任务排队: {}, dataId={}", fileName, job.dataId);
+        return job.future;
+    }
+
+    /**
+     * 定时提交排队任务并轮询已提交批次
+     */
+    @Scheduled(fixedDelayString = "${app.mineru.remote-poll-interval:5000}")
+    public void tick() {
+        if (!isEnabled()) {
+            return;
+        }
+        flushSubmissions();
+        pollBatches();
+    }
+
+    private void flushSubmissions() {
+        int batchSize = appProperties.getMineru().getRemoteBatchSize();
+        while (!submitQueue.isEmpty()) {
+            List<RemoteJob> jobs = new ArrayList<>();
+            RemoteJob job;
+            while (jobs.size() < batchSize && (job = submitQueue.poll()) != null) {
+                jobs.add(job);
+            }
+
+            try {
+                String batchId = submitBatch(jobs);
+                batches.put(batchId, jobs);
+                log.info("远程 MinerU 批量提交成功: batchId={}, 文件数={}", batchId, jobs.size());
+            } catch (Exception e) {
+                log.error("远程 MinerU 批量提交失败: 文件数={}", jobs.size(), e);
+                jobs.forEach(j -> j.future.completeExceptionally(
+                        new MineruException("远程 MinerU 任务提交失败: " + e.getMessage(), e)));
+            }
+        }
+    }
+
+    private String submitBatch(List<RemoteJob> jobs) throws IOException {
+        AppProperties.MineruConfig config = appProperties.getMineru();
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode files = body.putArray("files");
+        for (RemoteJob job : jobs) {
+            files.addObject()
+                    .put("url", job.fileUrl)
+                    .put("data_id", job.dataId)
+                    .put("is_ocr", "ocr".equalsIgnoreCase(config.getParseMethod()));
+        }
+        body.put("model_version", config.getBackend() != null && config.getBackend().startsWith("vlm") ? "vlm" : "pipeline");
+        body.put("enable_formula", config.getEnableFormula());
+        body.put("enable_table", config.getEnableTable());
+        body.put("language", config.getLanguage());
+
+        Request request = authorized(new Request.Builder()
+                .url(config.getRemoteBaseUrl() + "/api/v4/extract/task/batch")
+                .post(RequestBody.create(objectMapper.writeValueAsBytes(body), JSON)));
+        return call(request).path("batch_id").asText();
+    }
+
+    private void pollBatches() {
+        long timeoutMillis = appProperties.getMineru().getRemoteJobTimeout() * 1000L;
+        Iterator<Map.Entry<String, List<RemoteJob>>> it = batches.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, List<RemoteJob>> entry = it.next();
+            String batchId = entry.getKey();
+            List<RemoteJob> jobs = entry.getValue();
+
+            Map<String, JsonNode> states = new HashMap<>();
+            try {
+                Request request = authorized(new Request.Builder()
+                        .url(appProperties.getMineru().getRemoteBaseUrl() + "/api/v4/extract-results/batch/" + batchId)
+                        .get());
+                for (JsonNode result : call(request).path("extract_result")) {
+                    states.put(result.path("data_id").asText(), result);
+                }
+            } catch (Exception e) {
+                // 查询失败视为暂时性错误，下个周期重试，由任务超时兜底
+                log.warn("查询远程 MinerU 批次状态失败: batchId={}, {}", batchId, e.getMessage());
+            }
+
+            jobs.removeIf(job -> resolve(job, states.get(job.dataId), timeoutMillis));
+            if (jobs.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 根据任务状态完成 Future
+     *
+     * @return 任务是否已结束（成功、失败或超时）
+     */
+    private boolean resolve(RemoteJob job, JsonNode state, long timeoutMillis) {
+        String status = state != null ? state.path("state").asText() : "unknown";
+        switch (status) {
+            case "done" -> {
+                String zipUrl = state.path("full_zip_url").asText();
+                log.info("远程 MinerU 解析完成: {}, 耗时: {} ms", job.fileName, System.currentTimeMillis() - job.submittedAt);
+                mineruExecutor.execute(() -> fetchResult(job, zipUrl));
+                return true;
+            }
+            case "failed" -> {
+                job.future.completeExceptionally(new MineruException("远程 MinerU 解析失败: " + state.path("err_msg").asText()));
+                return true;
+            }
+            default -> {
+                if (System.currentTimeMillis() - job.submittedAt > timeoutMillis) {
+                    job.future.completeExceptionally(new MineruException("远程 MinerU 解析超时, 最后状态: " + status));
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 下载结果 zip 并读取 Markdown 与图片
+     */
+    private void fetchResult(RemoteJob job, String zipUrl) {
+        Request request = new Request.Builder().url(zipUrl).get().build();
+        try (Response response = getHttpClient().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new MineruException("下载远程 MinerU 结果失败: status=" + response.code());
+            }
+            MineruParseResponse parseResponse = new MineruZipResponseReader(objectMapper).read(response.body().byteStream());
+            job.future.complete(parseResponse);
+        } catch (Exception e) {
+            log.error("读取远程 MinerU 结果失败: {}", job.fileName, e);
+            job.future.completeExceptionally(e instanceof MineruException ? e
+                    : new MineruException("读取远程 MinerU 结果失败: " + e.getMessage(), e));
+        }
+    }
+
+    private Request authorized(Request.Builder builder) {
+        return builder.addHeader("Authorization", "Bearer " + appProperties.getMineru().getToken()).build();
+    }
+
+    /**
+     * 发送请求并返回 data 节点，code 非 0 时抛出异常
+     */
+    private JsonNode call(Request request) throws IOException {
+        try (Response response = getHttpClient().newCall(request).execute()) {
+            String body = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new MineruException("远程 MinerU 请求失败: status=" + response.code() + ", body=" + body);
+            }
+            JsonNode root = objectMapper.readTree(body);
+            if (root.path("code").asInt(-1) != 0) {
+                throw new MineruException("远程 MinerU 返回错误: " + root.path("msg").asText());
+            }
+            return root.path("data");
+        }
+    }
+
+    /**
+     * 远程解析任务
+     */
+    private static class RemoteJob {
+        private final String dataId;
+        private final String fileUrl;
+        private final String fileName;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<MineruParseResponse> future = new CompletableFuture<>();
+
+        RemoteJob(String dataId, String fileUrl, String fileName) {
+            this.dataId = dataId;
+            this.fileUrl = fileUrl;
+            this.fileName = fileName;
+        }
+    }
+}
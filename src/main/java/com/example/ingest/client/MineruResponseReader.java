@@ -0,0 +1,140 @@
+package com.example.ingest.client;
+
+import com.example.ingest.exception.MineruException;
+import com.example.ingest.model.MineruParseResponse;
+import com.example.ingest.model.ParsedImage;
+import com.example.ingest.util.DataUriStrippingInputStream;
+import com.example.ingest.util.Hashes;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MinerU /file_parse 响应流式读取器
+ * 逐个 token 读取响应 JSON：Markdown 保留在内存，图片 base64 由 readBinaryValue 从输入缓冲区分块解码到临时文件
+ * （不经过 TextBuffer，单张图片的 base64 字符串不会整体驻留内存，也不受 maxStringLength 限制；data URI 前缀由
+ * {@link DataUriStrippingInputStream} 在字节层去掉），
+ * content_list 逐项转换为文档块，middle_json 等未使用的字段直接跳过，整份响应不会整体驻留内存
+ */
+@Slf4j
+class MineruResponseReader {
+
+    private final ObjectMapper objectMapper;
+
+    MineruResponseReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取响应
+     * 读取失败时删除已解码的图片临时文件
+     */
+    MineruParseResponse read(InputStream body) throws IOException {
+        Map<String, MineruParseResponse.FileResult> results = new LinkedHashMap<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(new DataUriStrippingInputStream(body))) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("results".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String fileName = parser.getCurrentName();
+                        expect(parser.nextToken(), JsonToken.START_OBJECT);
+                        results.put(fileName, readFileResult(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            results.values().forEach(r -> r.getImages().values().forEach(ParsedImage::delete));
+            throw e;
+        }
+
+        MineruParseResponse response = new MineruParseResponse();
+        response.setResults(results);
+        return response;
+    }
+
+    private MineruParseResponse.FileResult readFileResult(JsonParser parser) throws IOException {
+        MineruParseResponse.FileResult result = new MineruParseResponse.FileResult();
+        Map<String, ParsedImage> images = new LinkedHashMap<>();
+        result.setImages(images);
+
+        try {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("md_content".equals(field) && value == JsonToken.VALUE_STRING) {
+                    result.setMdContent(parser.getText());
+                } else if ("content_list".equals(field) && (value == JsonToken.VALUE_STRING || value == JsonToken.START_ARRAY)) {
+                    result.setBlocks(new MineruContentListReader(objectMapper).read(parser));
+                } else if ("images".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String imageName = parser.getCurrentName();
+                        if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                            images.put(imageName, decodeImage(parser, imageName));
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            images.values().forEach(ParsedImage::delete);
+            throw e;
+        }
+
+        log.debug("读取 MinerU 文件结果: markdown 长度={}, 图片数量={}",
+                result.getMdContent() != null ? result.getMdContent().length() : 0, images.size());
+        return result;
+    }
+
+    /**
+     * 将当前 base64 字符串分块解码写入临时文件，同时计算大小与 SHA-256
+     */
+    private ParsedImage decodeImage(JsonParser parser, String imageName) throws IOException {
+        File file = Files.createTempFile("dify-ingest-img-", "-" + imageName.replaceAll("[\\\\/]", "_")).toFile();
+        MessageDigest digest = Hashes.newSha256();
+        try {
+            try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+                 OutputStream out = new DigestOutputStream(fileOut, digest)) {
+                parser.readBinaryValue(out);
+            } catch (IllegalArgumentException e) {
+                // readBinaryValue 以 IllegalArgumentException 报告非法 base64 字符
+                throw new JsonParseException(parser, "图片 base64 格式错误: " + imageName, e);
+            }
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+
+        return ParsedImage.builder()
+                .name(imageName)
+                .file(file)
+                .size(file.length())
+                .sha256(Hashes.hex(digest))
+                .build();
+    }
+
+    private void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new MineruException("MinerU 响应格式错误: 期望 " + expected + "，实际 " + actual);
+        }
+    }
+}
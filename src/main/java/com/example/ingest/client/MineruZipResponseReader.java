@@ -0,0 +1,102 @@
+package com.example.ingest.client;
+
+import com.example.ingest.model.MineruParseResponse;
+import com.example.ingest.model.ParsedImage;
+import com.example.ingest.util.Hashes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * MinerU zip 响应读取器（response_format_zip=true）
+ * 图片以原始字节存放在 zip 中，边解压边写入临时文件，比 base64 JSON 少约 1/3 传输量且无需解码；
+ * 按目录区分文件结果：目录下的 *.md 为 Markdown，*_content_list.json 转换为文档块，目录下 images/ 中的文件为图片，其余条目跳过；
+ * 兼容本地服务（{文件名}/{解析方法}/...）与远程服务（根目录 full.md + images/）两种结构
+ */
+class MineruZipResponseReader {
+
+    private final ObjectMapper objectMapper;
+
+    MineruZipResponseReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取响应
+     * 读取失败时删除已写出的图片临时文件
+     */
+    MineruParseResponse read(InputStream body) throws IOException {
+        Map<String, MineruParseResponse.FileResult> results = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(body, StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String path = entry.getName();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                String dir = path.substring(0, path.lastIndexOf('/') + 1);
+                if (dir.equals("images/") || dir.endsWith("/images/")) {
+                    String imageName = path.substring(dir.length());
+                    String parentDir = dir.substring(0, dir.length() - "images/".length());
+                    resultOf(results, parentDir).getImages().put(imageName, spool(zip, imageName));
+                } else if (path.endsWith(".md")) {
+                    resultOf(results, dir).setMdContent(new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+                } else if (path.endsWith("_content_list.json")) {
+                    resultOf(results, dir).setBlocks(new MineruContentListReader(objectMapper).read(zip.readAllBytes()));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            results.values().forEach(r -> r.getImages().values().forEach(ParsedImage::delete));
+            throw e;
+        }
+
+        MineruParseResponse response = new MineruParseResponse();
+        response.setResults(results);
+        return response;
+    }
+
+    /**
+     * 同一目录下的 Markdown 与 images/ 子目录属于同一个文件结果
+     */
+    private MineruParseResponse.FileResult resultOf(Map<String, MineruParseResponse.FileResult> results, String dir) {
+        return results.computeIfAbsent(dir, k -> {
+            MineruParseResponse.FileResult result = new MineruParseResponse.FileResult();
+            result.setImages(new LinkedHashMap<>());
+            return result;
+        });
+    }
+
+    /**
+     * 将当前 zip 条目写入临时文件，同时计算 SHA-256
+     */
+    private ParsedImage spool(ZipInputStream zip, String imageName) throws IOException {
+        File file = Files.createTempFile("dify-ingest-img-", "-" + imageName.replaceAll("[\\\\/]", "_")).toFile();
+        MessageDigest digest = Hashes.newSha256();
+        long size;
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file.toPath()), digest)) {
+            size = zip.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+
+        return ParsedImage.builder()
+                .name(imageName)
+                .file(file)
+                .size(size)
+                .sha256(Hashes.hex(digest))
+                .build();
+    }
+}
@@ -1,15 +1,26 @@
 package com.example.ingest.client;
 
 import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.ImageHandle;
+import com.example.ingest.model.InMemoryImage;
+import com.example.ingest.util.Base64EncodingReader;
+import com.example.ingest.util.GenerationGuard;
+import com.example.ingest.util.VlmBatchAnswers;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSink;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -30,6 +41,7 @@ public class VlmClient {
     
     private final AppProperties appProperties;
     private final ObjectMapper objectMapper;
+    private final VlmImageOptimizer imageOptimizer;
     
     @Qualifier("vlmExecutor")
     private final Executor vlmExecutor;
@@ -41,6 +53,11 @@ public class VlmClient {
         OLLAMA
     }
     
+    private static final MediaType JSON = MediaType.parse("application/json");
+    
+    /** 单图回答的段落标记（行首匹配），流式输出时整组标记第二次按顺序出现即视为模型开始重复作答 */
+    private static final List<String> ANSWER_SECTIONS = List.of("描述:", "OCR:");
+    
     // 线程安全的单例 OkHttpClient，复用连接池与线程池，规避频繁创建导致的 Socket 端口耗尽与线程泄漏隐患
     private final OkHttpClient httpClient = new OkHttpClient.Builder()
             .connectTimeout(90, TimeUnit.SECONDS)
@@ -48,8 +65,14 @@ public class VlmClient {
             .writeTimeout(90, TimeUnit.SECONDS)
             .build();
     
-    private OkHttpClient getHttpClient() {
-        return this.httpClient;
+    /**
+     * 按单次调用超时派生客户端，共享连接池与调度线程
+     */
+    private OkHttpClient getHttpClient(Duration timeout) {
+        return this.httpClient.newBuilder()
+                .readTimeout(timeout)
+                .callTimeout(timeout)
+                .build();
     }
 
     /**
@@ -57,35 +80,121 @@ public class VlmClient {
      * 使用自定义线程池，避免阻塞 ForkJoinPool.commonPool()
      * 
      * @param imageUrl 图片 URL
+     * @param image 本地图片数据（解析缓存命中等无本地数据时为 null，从 imageUrl 下载）
      * @param imageName 图片名称（用于日志）
      * @param context 图片周围的上下文文本（前后各20字符）
+     * @param timeout 单次调用超时（不含线程池排队时间）
      * @return CompletableFuture<ImageAnalysisResult>
      */
-    public CompletableFuture<ImageAnalysisResult> analyzeImageAsync(String imageUrl, String imageName, String context) {
+    public CompletableFuture<ImageAnalysisResult> analyzeImageAsync(String imageUrl, ImageHandle image, String imageName, String context, Duration timeout) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return analyzeImage(imageUrl, imageName, context);
+                return analyzeImage(imageUrl, image, imageName, context, timeout);
             } catch (Exception e) {
                 log.error("VLM 分析图片失败: {}", imageName, e);
-                return ImageAnalysisResult.builder()
-                        .imageName(imageName)
-                        .description("图片分析失败")
-                        .ocrText("")
-                        .success(false)
-                        .build();
+                return failedResult(imageName);
             }
         }, vlmExecutor);  // 使用自定义线程池
     }
 
+    /**
+     * 异步分析一组图片
+     * 启用批量模式时先并发准备图片（下载、缩放转码），再按 batch-max-images 与 batch-max-payload-kb 打包为多图请求，
+     * 提示词前缀与 VLM 服务端的单次请求调度开销按批摊销；未启用或只有一张图片时逐张请求
+     *
+     * @param images 待分析图片
+     * @param timeout 单张图片的调用超时（多图请求按图片数放大）
+     * @return 与 images 顺序一致的分析结果
+     */
+    public List<CompletableFuture<ImageAnalysisResult>> analyzeImagesAsync(List<ImageRequest> images, Duration timeout) {
+        AppProperties.VlmConfig vlmConfig = appProperties.getVlm();
+        if (!Boolean.TRUE.equals(vlmConfig.getBatchEnabled()) || vlmConfig.getBatchMaxImages() <= 1 || images.size() <= 1) {
+            return images.stream()
+                    .map(image -> analyzeImageAsync(image.imageUrl(), image.image(), image.imageName(), image.context(), timeout))
+                    .toList();
+        }
+
+        VlmProvider provider = detectProvider(vlmConfig.getBaseUrl());
+        List<CompletableFuture<ImageAnalysisResult>> results = new ArrayList<>();
+        List<CompletableFuture<PreparedImage>> prepared = new ArrayList<>();
+        for (ImageRequest image : images) {
+            results.add(new CompletableFuture<>());
+            prepared.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return prepareImage(image, provider, timeout);
+                } catch (Exception e) {
+                    log.error("VLM 图片准备失败: {}", image.imageName(), e);
+                    return null;
+                }
+            }, vlmExecutor));
+        }
+
+        // 按实际发送的请求体大小打包：图片数达到上限或累计大小超过上限时开始新的一批，单张超限的图片单独成批
+        long maxPayloadBytes = vlmConfig.getBatchMaxPayloadKb() * 1024L;
+        CompletableFuture.allOf(prepared.toArray(new CompletableFuture[0])).thenRun(() -> {
+            List<PreparedImage> batch = new ArrayList<>();
+            List<CompletableFuture<ImageAnalysisResult>> targets = new ArrayList<>();
+            long batchBytes = 0;
+            for (int i = 0; i < images.size(); i++) {
+                PreparedImage image = prepared.get(i).join();
+                if (image == null) {
+                    results.get(i).complete(failedResult(images.get(i).imageName()));
+                    continue;
+                }
+                if (!batch.isEmpty() && (batch.size() >= vlmConfig.getBatchMaxImages() || batchBytes + image.payloadBytes() > maxPayloadBytes)) {
+                    submitBatch(batch, targets, provider, timeout);
+                    batch = new ArrayList<>();
+                    targets = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(image);
+                targets.add(results.get(i));
+                batchBytes += image.payloadBytes();
+            }
+            if (!batch.isEmpty()) {
+                submitBatch(batch, targets, provider, timeout);
+            }
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("VLM 批量分析提交失败", e);
+                for (int i = 0; i < images.size(); i++) {
+                    results.get(i).complete(failedResult(images.get(i).imageName()));
+                }
+            }
+        });
+        return results;
+    }
+
+    /**
+     * 提交一批图片，完成后按顺序写入各图片的结果
+     */
+    private void submitBatch(List<PreparedImage> batch, List<CompletableFuture<ImageAnalysisResult>> targets,
+                             VlmProvider provider, Duration timeout) {
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return analyzeBatch(batch, provider, timeout);
+            } catch (Exception e) {
+                log.error("VLM 批量分析失败: {} 张图片", batch.size(), e);
+                return batch.stream().map(image -> failedResult(image.request().imageName())).toList();
+            }
+        }, vlmExecutor).whenComplete((analyses, e) -> {
+            for (int i = 0; i < targets.size(); i++) {
+                targets.get(i).complete(e == null ? analyses.get(i) : failedResult(batch.get(i).request().imageName()));
+            }
+        });
+    }
+
     /**
      * 同步分析图片
      * 
      * @param imageUrl 图片 URL
+     * @param image 本地图片数据，可为 null
      * @param imageName 图片名称
      * @param context 图片周围的上下文文本
+     * @param timeout 单次调用超时
      * @return 分析结果
      */
-    private ImageAnalysisResult analyzeImage(String imageUrl, String imageName, String context) throws IOException {
+    private ImageAnalysisResult analyzeImage(String imageUrl, ImageHandle image, String imageName, String context, Duration timeout) throws IOException {
         long startTime = System.currentTimeMillis();
         log.info("开始 VLM 分析图片: {}", imageName);
         
@@ -94,26 +203,98 @@ public class VlmClient {
         
         log.debug("检测到 VLM 提供商: {}", provider);
         
-        // Ollama 需要 base64，其他使用 URL
-        String imageData;
-        if (provider == VlmProvider.OLLAMA) {
-            imageData = downloadAndEncodeImage(imageUrl);
-        } else {
-            imageData = imageUrl;
+        PreparedImage prepared = prepareImage(new ImageRequest(imageUrl, image, imageName, context), provider, timeout);
+        return analyzePrepared(prepared, provider, timeout, startTime);
+    }
+
+    /**
+     * 准备发送的图片
+     * Ollama 需要内联 base64；其他使用 URL，启用图片优化时改为内联优化后图片的 data URI
+     * 优先使用本地图片数据，没有时才从 MinIO 下载
+     */
+    private PreparedImage prepareImage(ImageRequest request, VlmProvider provider, Duration timeout) throws IOException {
+        ImageHandle inlineImage = null;
+        if (provider == VlmProvider.OLLAMA || Boolean.TRUE.equals(appProperties.getVlm().getOptimizeImages())) {
+            ImageHandle image = request.image() != null ? request.image() : downloadImage(request.imageUrl(), request.imageName(), timeout);
+            inlineImage = imageOptimizer.optimize(image);
         }
-        
+        return new PreparedImage(request, inlineImage);
+    }
+
+    /**
+     * 单图请求
+     */
+    private ImageAnalysisResult analyzePrepared(PreparedImage image, VlmProvider provider, Duration timeout, long startTime) throws IOException {
         // 拼接上下文到 Prompt
-        String configPrompt = vlmConfig.getPrompt();
-        String finalPrompt = String.format("结合图片周围的上下文文本：【%s】，%s", context, configPrompt);
+        String configPrompt = appProperties.getVlm().getPrompt();
+        String finalPrompt = String.format("结合图片周围的上下文文本：【%s】，%s", image.request().context(), configPrompt);
         log.debug("VLM理解Prompt: {}", finalPrompt);
         
-        // 构建请求体
-        String requestBody = buildVisionRequest(imageData, finalPrompt, provider);
+        String content = execute(buildVisionRequest(List.of(image), finalPrompt, provider), provider, timeout, ANSWER_SECTIONS);
         
-        // 构建请求
+        long duration = System.currentTimeMillis() - startTime;
+        ImageAnalysisResult result = parseAnalysis(image.request().imageName(), content, duration);
+        log.info("VLM 分析完成: {} - 描述长度={}, OCR长度={}, 耗时={}ms", 
+                result.getImageName(), result.getDescription().length(), result.getOcrText().length(), duration);
+        return result;
+    }
+
+    /**
+     * 多图请求：一次请求携带多张图片及各自的上下文，按「### 图片N」拆分回答；
+     * 回答缺失的图片逐张补充请求，耗时按批内图片数均摊
+     */
+    private List<ImageAnalysisResult> analyzeBatch(List<PreparedImage> batch, VlmProvider provider, Duration timeout) throws IOException {
+        long startTime = System.currentTimeMillis();
+        if (batch.size() == 1) {
+            return List.of(analyzePrepared(batch.get(0), provider, timeout, startTime));
+        }
+        log.info("开始 VLM 批量分析 {} 张图片", batch.size());
+        
+        StringBuilder prompt = new StringBuilder("以下共 ").append(batch.size()).append(" 张图片，按顺序编号为图片1至图片")
+                .append(batch.size()).append("，各图片周围的上下文文本：\n");
+        for (int i = 0; i < batch.size(); i++) {
+            prompt.append("图片").append(i + 1).append("：【").append(batch.get(i).request().context()).append("】\n");
+        }
+        prompt.append("请结合各自的上下文逐张完成：").append(appProperties.getVlm().getPrompt()).append("\n")
+                .append(VlmBatchAnswers.formatInstruction(batch.size()));
+        log.debug("VLM批量理解Prompt: {}", prompt);
+        
+        String content = execute(buildVisionRequest(batch, prompt.toString(), provider), provider, timeout.multipliedBy(batch.size()), List.of());
+        List<String> answers = VlmBatchAnswers.split(content, batch.size());
+        long duration = System.currentTimeMillis() - startTime;
+        
+        List<ImageAnalysisResult> results = new ArrayList<>();
+        int retried = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PreparedImage image = batch.get(i);
+            if (answers.get(i) != null) {
+                results.add(parseAnalysis(image.request().imageName(), answers.get(i), duration / batch.size()));
+                continue;
+            }
+            retried++;
+            try {
+                results.add(analyzePrepared(image, provider, timeout, System.currentTimeMillis()));
+            } catch (Exception e) {
+                log.error("VLM 分析图片失败: {}", image.request().imageName(), e);
+                results.add(failedResult(image.request().imageName()));
+            }
+        }
+        log.info("VLM 批量分析完成: {} 张, 回答缺失逐张补充 {} 张, 批量请求耗时={}ms", batch.size(), retried, duration);
+        return results;
+    }
+
+    /**
+     * 发送请求并返回模型回答
+     * 启用流式输出时逐段读取，出现重复循环或回答已完整（段落标记再次出现）时取消请求并截断多余内容
+     *
+     * @param sections 回答的段落标记，为空时只检测重复循环
+     */
+    private String execute(RequestBody body, VlmProvider provider, Duration timeout, List<String> sections) throws IOException {
+        AppProperties.VlmConfig vlmConfig = appProperties.getVlm();
+        // 构建请求（请求体流式写出，图片边读边编码 base64）
         Request.Builder requestBuilder = new Request.Builder()
                 .url(vlmConfig.getBaseUrl())
-                .post(RequestBody.create(requestBody, MediaType.parse("application/json")))
+                .post(body)
                 .addHeader("Content-Type", "application/json");
         
         // 添加 Authorization header
@@ -123,63 +304,83 @@ public class VlmClient {
         
         Request request = requestBuilder.build();
         
-        try (Response response = getHttpClient().newCall(request).execute()) {
+        Call call = getHttpClient(timeout).newCall(request);
+        try (Response response = call.execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "Unknown error";
                 log.error("VLM API 调用失败: status={}, body={}", response.code(), errorBody);
                 throw new IOException("VLM API 调用失败: " + errorBody);
             }
             
+            if (Boolean.TRUE.equals(vlmConfig.getStreamEnabled())) {
+                GenerationGuard guard = new GenerationGuard(vlmConfig.getLoopMinChars(), sections);
+                ChatCompletionStream.read(call, response, provider == VlmProvider.OLLAMA, objectMapper, guard);
+                if (guard.getStopReason() != null) {
+                    log.info("VLM 输出提前终止: 原因={}, 已生成长度={}", guard.getStopReason(), guard.getText().length());
+                }
+                return guard.getText();
+            }
+            
             String responseBody = response.body().string();
             log.debug("VLM 响应: {}", responseBody);
             
             // 解析响应（根据提供商类型）
-            String content = parseResponse(responseBody, provider);
-            
-            // 简单解析：假设返回格式为 "描述: xxx\nOCR: yyy"
-            String description = content;
-            String ocrText = "";
-            
-            if (content.contains("OCR:")) {
-                String[] parts = content.split("OCR:", 2);
-                description = parts[0].replace("描述:", "").trim();
-                ocrText = parts[1].trim();
-            }
-            
-            long duration = System.currentTimeMillis() - startTime;
-            log.info("VLM 分析完成: {} - 描述长度={}, OCR长度={}, 耗时={}ms", 
-                    imageName, description.length(), ocrText.length(), duration);
-            
-            return ImageAnalysisResult.builder()
-                    .imageName(imageName)
-                    .description(description)
-                    .ocrText(ocrText)
-                    .success(true)
-                    .duration(duration)
-                    .build();
+            return parseResponse(responseBody, provider);
         }
     }
 
     /**
-     * 下载图片并转换为 base64
+     * 解析单张图片的回答
+     * 简单解析：假设返回格式为 "描述: xxx\nOCR: yyy"
      */
-    private String downloadAndEncodeImage(String imageUrl) throws IOException {
+    private ImageAnalysisResult parseAnalysis(String imageName, String content, long duration) {
+        String description = content;
+        String ocrText = "";
+        
+        if (content.contains("OCR:")) {
+            String[] parts = content.split("OCR:", 2);
+            description = parts[0].replace("描述:", "").trim();
+            ocrText = parts[1].trim();
+        }
+        
+        return ImageAnalysisResult.builder()
+                .imageName(imageName)
+                .description(description)
+                .ocrText(ocrText)
+                .success(true)
+                .duration(duration)
+                .build();
+    }
+
+    private static ImageAnalysisResult failedResult(String imageName) {
+        return ImageAnalysisResult.builder()
+                .imageName(imageName)
+                .description("图片分析失败")
+                .ocrText("")
+                .success(false)
+                .build();
+    }
+
+    /**
+     * 从 MinIO 下载图片（无本地图片数据时）
+     */
+    private ImageHandle downloadImage(String imageUrl, String imageName, Duration timeout) throws IOException {
         log.debug("下载图片: {}", imageUrl);
         
         Request request = new Request.Builder()
                 .url(imageUrl)
                 .build();
         
-        try (Response response = getHttpClient().newCall(request).execute()) {
+        try (Response response = getHttpClient(timeout).newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("下载图片失败: " + response.code());
             }
             
             byte[] imageBytes = response.body().bytes();
-            String base64 = java.util.Base64.getEncoder().encodeToString(imageBytes);
-            
+            MediaType contentType = response.body().contentType();
             log.debug("图片下载完成，大小: {} bytes", imageBytes.length);
-            return base64;
+            return new InMemoryImage(imageName, imageBytes,
+                    contentType != null ? contentType.type() + "/" + contentType.subtype() : "image/jpeg", null);
         }
     }
 
@@ -245,46 +446,123 @@ public class VlmClient {
 
     /**
      * 构建 Vision API 请求体
+     * 以 JsonGenerator 直接写出到连接：图片从本地数据流边读边编码 base64，不生成完整的 base64 字符串与 JSON 字符串；
+     * 连接失败重试时重新打开图片数据流
+     * 多图请求时图片按顺序附加：Ollama 放入 images 数组，OpenAI 兼容接口在每张图片前插入「图片N：」文本标记，
+     * Ollama 的 num_predict 按图片数放大
+     *
+     * @param images 待发送的图片，inlineImage 为 null 时发送图片 URL（仅 OpenAI 兼容接口）
      */
-    private String buildVisionRequest(String imageData, String prompt, VlmProvider provider) throws IOException {
-        if (provider == VlmProvider.OLLAMA) {
-            AppProperties.VlmConfig vlmConfig = appProperties.getVlm();
-            Map<String, Object> options = Map.of(
-                    "temperature", vlmConfig.getTemperature(),
-                    "repeat_penalty", vlmConfig.getRepeatPenalty(),
-                    "repeat_last_n", vlmConfig.getRepeatLastN(),
-                    "top_p", vlmConfig.getTopP(),
-                    "num_predict", vlmConfig.getNumPredict()
-            );
-            Map<String, Object> requestMap = Map.of(
-                    "model", vlmConfig.getModel(),
-                    "messages", List.of(
-                            Map.of(
-                                    "role", "user",
-                                    "content", prompt,
-                                    "images", List.of(imageData)
-                            )
-                    ),
-                    "stream", false,
-                    "options", options
-            );
-            return objectMapper.writeValueAsString(requestMap);
-        } else {
-            // OpenAI 兼容格式（OpenAI, Qwen, ModelVerse）
-            Map<String, Object> requestMap = Map.of(
-                    "model", appProperties.getVlm().getModel(),
-                    "messages", List.of(
-                            Map.of(
-                                    "role", "user",
-                                    "content", List.of(
-                                            Map.of("type", "text", "text", prompt),
-                                            Map.of("type", "image_url", "image_url", Map.of("url", imageData))
-                                    )
-                            )
-                    ),
-                    "max_tokens", appProperties.getVlm().getMaxTokens()
-            );
-            return objectMapper.writeValueAsString(requestMap);
+    private RequestBody buildVisionRequest(List<PreparedImage> images, String prompt, VlmProvider provider) {
+        AppProperties.VlmConfig vlmConfig = appProperties.getVlm();
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(sink.outputStream())
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                    generator.writeStartObject();
+                    generator.writeStringField("model", vlmConfig.getModel());
+                    generator.writeArrayFieldStart("messages");
+                    generator.writeStartObject();
+                    generator.writeStringField("role", "user");
+                    if (provider == VlmProvider.OLLAMA) {
+                        generator.writeStringField("content", prompt);
+                        generator.writeArrayFieldStart("images");
+                        for (PreparedImage image : images) {
+                            try (InputStream in = image.inlineImage().openStream()) {
+                                generator.writeBinary(in, -1);
+                            }
+                        }
+                        generator.writeEndArray();
+                        generator.writeEndObject();
+                        generator.writeEndArray();
+                        generator.writeBooleanField("stream", Boolean.TRUE.equals(vlmConfig.getStreamEnabled()));
+                        generator.writeObjectField("options", Map.of(
+                                "temperature", vlmConfig.getTemperature(),
+                                "repeat_penalty", vlmConfig.getRepeatPenalty(),
+                                "repeat_last_n", vlmConfig.getRepeatLastN(),
+                                "top_p", vlmConfig.getTopP(),
+                                "num_predict", vlmConfig.getNumPredict() * images.size()
+                        ));
+                    } else {
+                        // OpenAI 兼容格式（OpenAI, Qwen, ModelVerse）
+                        generator.writeArrayFieldStart("content");
+                        generator.writeStartObject();
+                        generator.writeStringField("type", "text");
+                        generator.writeStringField("text", prompt);
+                        generator.writeEndObject();
+                        for (int i = 0; i < images.size(); i++) {
+                            PreparedImage image = images.get(i);
+                            if (images.size() > 1) {
+                                generator.writeStartObject();
+                                generator.writeStringField("type", "text");
+                                generator.writeStringField("text", "图片" + (i + 1) + "：");
+                                generator.writeEndObject();
+                            }
+                            generator.writeStartObject();
+                            generator.writeStringField("type", "image_url");
+                            generator.writeObjectFieldStart("image_url");
+                            generator.writeFieldName("url");
+                            if (image.inlineImage() != null) {
+                                writeDataUri(generator, image.inlineImage());
+                            } else {
+                                generator.writeString(image.request().imageUrl());
+                            }
+                            generator.writeEndObject();
+                            generator.writeEndObject();
+                        }
+                        generator.writeEndArray();
+                        generator.writeEndObject();
+                        generator.writeEndArray();
+                        generator.writeNumberField("max_tokens", vlmConfig.getMaxTokens());
+                        if (Boolean.TRUE.equals(vlmConfig.getStreamEnabled())) {
+                            generator.writeBooleanField("stream", true);
+                        }
+                    }
+                    generator.writeEndObject();
+                }
+            }
+        };
+    }
+
+    /**
+     * 写出 data URI 字符串值：图片边读边编码为 base64 交给生成器写出，不在内存中拼接完整字符串
+     */
+    private void writeDataUri(JsonGenerator generator, ImageHandle image) throws IOException {
+        try (Reader reader = new Base64EncodingReader("data:" + image.getMimeType() + ";base64,", image.openStream())) {
+            generator.writeString(reader, -1);
+        }
+    }
+
+    /**
+     * 待分析图片
+     *
+     * @param imageUrl 图片 URL
+     * @param image 本地图片数据，可为 null
+     * @param imageName 图片名称（用于日志）
+     * @param context 图片周围的上下文文本
+     */
+    public record ImageRequest(String imageUrl, ImageHandle image, String imageName, String context) {
+    }
+
+    /**
+     * 准备好的图片
+     *
+     * @param request 待分析图片
+     * @param inlineImage 内联发送的图片，为 null 时发送图片 URL
+     */
+    private record PreparedImage(ImageRequest request, ImageHandle inlineImage) {
+        /**
+         * 估算该图片在请求体中的大小：内联图片按 base64 膨胀计算，上下文按 UTF-8 中文计算
+         */
+        long payloadBytes() {
+            long imageBytes = inlineImage != null ? inlineImage.getSize() * 4 / 3 : request.imageUrl().length();
+            return imageBytes + (request.context() != null ? request.context().length() * 3L : 0L);
         }
     }
 
@@ -0,0 +1,184 @@
+package com.example.ingest.client;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.ImageHandle;
+import com.example.ingest.model.InMemoryImage;
+import com.example.ingest.util.DiskLruCache;
+import com.example.ingest.util.Hashes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * VLM 输入图片优化器
+ * VLM 推理耗时随图片分辨率增长，MinerU 裁出的图片常有数百万像素：
+ * 发送前将长边缩放到 image-max-dimension 以内并转码为 JPEG，结果按图片内容哈希与优化参数缓存到本地磁盘；
+ * 无法解码（如 webp）或优化后反而更大的图片原样返回
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VlmImageOptimizer {
+
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+
+    private volatile DiskLruCache cache;
+
+    /**
+     * 优化图片
+     *
+     * @param image 原始图片
+     * @return 优化后的图片（未优化时为原图）
+     */
+    public ImageHandle optimize(ImageHandle image) {
+        AppProperties.VlmConfig config = appProperties.getVlm();
+        if (!Boolean.TRUE.equals(config.getOptimizeImages())) {
+            return image;
+        }
+
+        try {
+            String sha256 = image.getSha256() != null ? image.getSha256() : sha256(image);
+            String cacheKey = sha256 + "-" + config.getImageMaxDimension() + "-" + Math.round(config.getImageJpegQuality() * 100);
+            Path cached = cache().get(cacheKey);
+            if (cached != null) {
+                counter("hit").increment();
+                return new InMemoryImage(image.getName(), Files.readAllBytes(cached), "image/jpeg", null);
+            }
+
+            BufferedImage decoded;
+            try (InputStream in = image.openStream()) {
+                decoded = ImageIO.read(in);
+            }
+            if (decoded == null) {
+                counter("unsupported").increment();
+                return image;
+            }
+
+            BufferedImage resized = resize(decoded, config.getImageMaxDimension());
+            byte[] jpeg = encodeJpeg(resized, config.getImageJpegQuality());
+            boolean scaled = resized.getWidth() != decoded.getWidth() || resized.getHeight() != decoded.getHeight();
+            if (!scaled && jpeg.length >= image.getSize()) {
+                // 未缩放且转码后不更小，保留原图
+                counter("skip").increment();
+                return image;
+            }
+
+            counter("miss").increment();
+            // 先写临时文件再原子移动，并发优化同一图片时不会读到半截缓存
+            Path writing = cache().createTempFile(cacheKey);
+            Files.write(writing, jpeg);
+            cache().put(cacheKey, writing);
+
+            log.debug("VLM 图片优化: {} {}x{} {} bytes -> {}x{} {} bytes", image.getName(), decoded.getWidth(), decoded.getHeight(),
+                    image.getSize(), resized.getWidth(), resized.getHeight(), jpeg.length);
+            return new InMemoryImage(image.getName(), jpeg, "image/jpeg", null);
+        } catch (Exception e) {
+            counter("error").increment();
+            log.warn("VLM 图片优化失败，使用原图: {}", e.getMessage());
+            return image;
+        }
+    }
+
+    /**
+     * 长边缩放到 maxDimension 以内，透明背景填充为白色；缩小超过一半时逐级减半，避免双线性插值丢失细节
+     */
+    private BufferedImage resize(BufferedImage image, int maxDimension) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        if (scale >= 1.0 && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        BufferedImage current = image;
+        do {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+            BufferedImage next = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, stepWidth, stepHeight);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image, double quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality((float) quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 优化结果缓存，首次使用时按配置创建
+     */
+    private DiskLruCache cache() throws IOException {
+        DiskLruCache current = cache;
+        if (current == null) {
+            synchronized (this) {
+                if (cache == null) {
+                    AppProperties.VlmConfig config = appProperties.getVlm();
+                    String dir = config.getImageCacheDir();
+                    Path path = dir != null && !dir.isBlank()
+                            ? Paths.get(dir)
+                            : Paths.get(System.getProperty("java.io.tmpdir"), "vlm-image-cache");
+                    cache = new DiskLruCache(path, ".jpg", config.getImageCacheMaxSizeMb() * 1024L * 1024L, evicted -> {
+                        counter("evict").increment(evicted);
+                        log.info("VLM 图片缓存超出容量上限 {} MB，淘汰 {} 个文件", config.getImageCacheMaxSizeMb(), evicted);
+                    });
+                }
+                current = cache;
+            }
+        }
+        return current;
+    }
+
+    private String sha256(ImageHandle image) throws IOException {
+        try (InputStream in = image.openStream()) {
+            return Hashes.sha256(in);
+        }
+    }
+
+    private Counter counter(String result) {
+        return meterRegistry.counter("ingest.vlm.image.optimize", "result", result);
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.ingest.config;
 
 import lombok.Data;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * 应用配置属性
  * 映射 application.yml 中的 app.* 配置
@@ -26,6 +29,30 @@ public class AppProperties {
     /** MinIO 存储配置 */
     private MinioConfig minio = new MinioConfig();
 
+    /** 文件下载配置 */
+    private DownloadConfig download = new DownloadConfig();
+
+    /** 解析结果缓存配置 */
+    private ParseCacheConfig parseCache = new ParseCacheConfig();
+
+    /** VLM 图片分析结果缓存配置 */
+    private VlmCacheConfig vlmCache = new VlmCacheConfig();
+
+    /** PDF 预检配置 */
+    private PreflightConfig preflight = new PreflightConfig();
+
+    /** Office 文档转换配置 */
+    private OfficeConfig office = new OfficeConfig();
+
+    /** PDF 快速文本提取配置 */
+    private FastPathConfig fastPath = new FastPathConfig();
+
+    /** 原生格式提取配置 */
+    private NativeExtractConfig nativeExtract = new NativeExtractConfig();
+
+    /** 外部调用超时策略配置 */
+    private TimeoutConfig timeout = new TimeoutConfig();
+
     /** 文档分段规则配置 */
     private ProcessRuleConfig processRule = new ProcessRuleConfig();
 
@@ -61,12 +88,39 @@ public class AppProperties {
         /** 服务地址 */
         private String baseUrl;
 
+        /** 多个服务节点地址（配置后替代 baseUrl，按负载路由） */
+        private List<String> endpoints;
+
+        /** 单节点最大并发解析数 */
+        private Integer maxConcurrentPerEndpoint = 2;
+
+        /** 连续失败多少次后将节点移出轮转 */
+        private Integer failureThreshold = 3;
+
+        /** 健康探测间隔（毫秒） */
+        private Long healthCheckInterval = 30000L;
+
+        /** 健康探测路径 */
+        private String healthCheckPath = "/docs";
+
         /** 服务类型: local 或 remote */
         private String serverType = "local";
 
         /** 远程服务 token（可选） */
         private String token;
 
+        /** 远程服务地址（serverType=remote 时使用） */
+        private String remoteBaseUrl = "https://mineru.net";
+
+        /** 远程服务单次批量提交的最大文件数 */
+        private Integer remoteBatchSize = 200;
+
+        /** 远程任务提交与状态轮询间隔（毫秒） */
+        private Long remotePollInterval = 5000L;
+
+        /** 远程任务超时时间（秒） */
+        private Long remoteJobTimeout = 7200L;
+
         /** 解析方法: auto, ocr, txt */
         private String parseMethod = "auto";
 
@@ -81,6 +135,31 @@ public class AppProperties {
 
         /** 文档语言: ch, en 等 */
         private String language = "ch";
+
+        /** 图片传输方式: base64（JSON 内嵌）或 zip（原始字节打包，需 MinerU 支持 response_format_zip） */
+        private String imageTransport = "base64";
+
+        /**
+         * 是否将 PDF 边下载边上传给 MinerU（不落盘）
+         * 文件哈希要等整个流读完才可知，而此时 MinerU 已开始解析，因此流式上传的文件只写入解析缓存、不查询；
+         * 重复文件占比高时建议关闭
+         */
+        private Boolean streamingUpload = false;
+
+        /** 允许流式上传的最大文件大小（字节），超过或大小未知时落盘下载 */
+        private Long streamingMaxSize = 200L * 1024 * 1024;
+
+        /** 流式上传缓冲区内存上限（字节），MinerU 读取慢于下载时超出部分溢出到临时文件 */
+        private Integer streamingBufferSize = 8 * 1024 * 1024;
+
+        /** 触发分片解析的最小页数，0 表示不分片 */
+        private Integer shardThresholdPages = 200;
+
+        /** 每个分片的页数 */
+        private Integer shardPages = 100;
+
+        /** 单个文档同时解析的分片数上限（实际不超过 MinerU 节点总容量：节点数 × maxConcurrentPerEndpoint） */
+        private Integer shardConcurrency = 4;
     }
 
     /**
@@ -95,6 +174,232 @@ public class AppProperties {
         private String region;
         private String imgPathPrefix;
         private String uploadPath = "knowledge-images/";
+
+        /** 单个文档同时在途的图片上传数 */
+        private Integer uploadConcurrency = 8;
+
+        /** 单张图片上传失败后的重试次数 */
+        private Integer uploadMaxRetries = 2;
+
+        /** 上传重试间隔（毫秒），按重试次数递增 */
+        private Long uploadRetryBackoff = 500L;
+    }
+
+    /**
+     * 文件下载配置
+     */
+    @Data
+    public static class DownloadConfig {
+        /** 连接超时（秒） */
+        private Integer connectTimeout = 60;
+
+        /** 读超时（秒）：两次数据包之间的最大间隔，超时后按断点续传重试 */
+        private Integer readTimeout = 120;
+
+        /** 断点续传最大重试次数 */
+        private Integer maxRetries = 3;
+
+        /** 重试间隔（毫秒），按重试次数线性递增 */
+        private Long retryBackoff = 2000L;
+
+        /** 落盘缓冲区大小（字节） */
+        private Integer bufferSize = 256 * 1024;
+
+        /** 并发连接数：服务端支持 Range 时按字节区间并发下载，1 表示关闭 */
+        private Integer connections = 4;
+
+        /** 单个区间最小大小（字节），文件小于 2 个区间时不拆分 */
+        private Long minRangeSize = 16L * 1024 * 1024;
+    }
+
+    /**
+     * 解析结果缓存配置
+     */
+    @Data
+    public static class ParseCacheConfig {
+        /** 是否启用：相同文件内容 + 相同解析参数时跳过 MinerU 解析 */
+        private Boolean enabled = true;
+
+        /** 缓存容量上限（MB），超出后淘汰最久未访问的条目 */
+        private Long maxSizeMb = 2048L;
+    }
+
+    /**
+     * VLM 图片分析结果缓存配置
+     */
+    @Data
+    public static class VlmCacheConfig {
+        /** 是否启用：相同图片内容 + 相同模型与提示词时跳过 VLM 请求 */
+        private Boolean enabled = true;
+
+        /** 进程内一级缓存条目上限 */
+        private Integer l1MaxEntries = 10000;
+
+        /** 数据库缓存条目上限，超出后淘汰最久未访问的条目 */
+        private Long maxEntries = 200000L;
+    }
+
+    /**
+     * PDF 预检配置
+     */
+    @Data
+    public static class PreflightConfig {
+        /** 是否在解析前执行预检并记录到任务 */
+        private Boolean enabled = true;
+
+        /** 文本层检测抽样页数 */
+        private Integer samplePages = 20;
+
+        /** 单页字符数达到该值视为有文本 */
+        private Integer minCharsPerPage = 50;
+
+        /** 有文本的抽样页占比达到该值视为包含文本层 */
+        private Double textLayerRatio = 0.9;
+
+        /** MinerU 解析方法配置为 auto 时，是否改用预检建议的解析方法（txt/ocr） */
+        private Boolean applyParseMethod = true;
+
+        /** 耗时回归使用的最近已完成任务数 */
+        private Integer regressionWindow = 500;
+
+        /** 回归所需的最少样本数，不足时不给出预估 */
+        private Integer regressionMinSamples = 5;
+
+        /** 回归结果缓存时间（秒） */
+        private Long regressionCacheSeconds = 600L;
+    }
+
+    /**
+     * Office 文档转换配置（LibreOffice 常驻进程池）
+     */
+    @Data
+    public static class OfficeConfig {
+        /** 是否启用 Office 转 PDF */
+        private Boolean enabled = true;
+
+        /** LibreOffice 安装目录，为空时自动探测 */
+        private String officeHome;
+
+        /** 常驻进程数 */
+        private Integer poolSize = 2;
+
+        /** 进程起始端口，第 N 个进程使用 basePort + N */
+        private Integer basePort = 2002;
+
+        /** 单次转换超时（毫秒） */
+        private Long taskTimeout = 120000L;
+
+        /** 排队等待空闲进程的超时（毫秒） */
+        private Long queueTimeout = 60000L;
+
+        /** 单个进程完成多少次转换后重启，回收 LibreOffice 内存 */
+        private Integer maxTasksPerProcess = 200;
+
+        /** 转换结果缓存目录，为空时使用系统临时目录下的 office-pdf-cache */
+        private String cacheDir;
+
+        /** 转换结果缓存容量上限（MB），超出后淘汰最久未访问的文件 */
+        private Long cacheMaxSizeMb = 2048L;
+    }
+
+    /**
+     * PDF 快速文本提取配置
+     */
+    @Data
+    public static class FastPathConfig {
+        /** 请求未指定 parseEngine 时的默认解析引擎: mineru, pdfbox, auto */
+        private String defaultEngine = "mineru";
+
+        /** auto 模式下允许走快速提取的最大内嵌图片数（快速提取不输出图片） */
+        private Integer maxImages = 0;
+
+        /** 平均每页字符数低于该值时回退 MinerU */
+        private Integer minCharsPerPage = 80;
+
+        /** 乱码字符（替换符、私有区、控制字符）占比超过该值时回退 MinerU */
+        private Double maxGarbledRatio = 0.01;
+
+        /** 字号达到正文字号的该倍数时视为标题 */
+        private Double headingFontRatio = 1.15;
+
+        /** 最多推断的标题层级数 */
+        private Integer maxHeadingLevels = 3;
+
+        /** 标题最大长度（字符数），超过视为正文 */
+        private Integer maxHeadingLength = 60;
+    }
+
+    /**
+     * 原生格式提取配置（TXT、Markdown、DOCX 不经过 MinerU）
+     */
+    @Data
+    public static class NativeExtractConfig {
+        /** 是否启用原生提取 */
+        private Boolean enabled = true;
+
+        /** 原生提取的文件类型，DOCX 含公式、图表、文本框等内容时回退 MinerU */
+        private List<String> fileTypes = List.of("txt", "md", "markdown", "docx");
+    }
+
+    /**
+     * 外部调用超时策略配置
+     * MinerU、VLM、Dify 的单次调用超时按文档页数、文件大小与历史耗时分位数推算，并限制在 [min, max] 范围内
+     */
+    @Data
+    public static class TimeoutConfig {
+        /** 是否启用自适应超时，关闭时各调用使用 max 作为固定超时 */
+        private Boolean enabled = true;
+
+        /** 历史耗时分位数 */
+        private Double percentile = 0.95;
+
+        /** 推算耗时的放大倍数 */
+        private Double safetyFactor = 3.0;
+
+        /** 统计使用的最近已完成任务数 */
+        private Integer historyWindow = 500;
+
+        /** 历史样本不足该数量时使用默认单位耗时 */
+        private Integer historyMinSamples = 20;
+
+        /** 历史分位数缓存时间（秒） */
+        private Long historyCacheSeconds = 600L;
+
+        /** MinerU 超时下限（秒） */
+        private Long mineruMinSeconds = 120L;
+
+        /** MinerU 超时上限（秒） */
+        private Long mineruMaxSeconds = 7200L;
+
+        /** 无历史数据时 MinerU 每页耗时（毫秒） */
+        private Long mineruDefaultMsPerPage = 5000L;
+
+        /** 无历史数据且页数未知时 MinerU 每 MB 耗时（毫秒） */
+        private Long mineruDefaultMsPerMb = 30000L;
+
+        /** 无历史数据时 MinerU 每张内嵌图片的额外耗时（毫秒） */
+        private Long mineruDefaultMsPerImage = 2000L;
+
+        /** VLM 单张图片超时下限（秒） */
+        private Long vlmMinSeconds = 30L;
+
+        /** VLM 单张图片超时上限（秒） */
+        private Long vlmMaxSeconds = 600L;
+
+        /** 无历史数据时 VLM 单张图片耗时（毫秒） */
+        private Long vlmDefaultMsPerImage = 20000L;
+
+        /** VLM 并发数（与 vlmExecutor 核心线程数一致），用于将任务 VLM 总耗时换算为单次调用耗时 */
+        private Integer vlmConcurrency = 8;
+
+        /** Dify 超时下限（秒） */
+        private Long difyMinSeconds = 30L;
+
+        /** Dify 超时上限（秒） */
+        private Long difyMaxSeconds = 300L;
+
+        /** Dify 请求体每 MB 耗时（毫秒） */
+        private Long difyMsPerMb = 10000L;
     }
 
     /**
@@ -200,6 +505,54 @@ public class AppProperties {
         
         /** Ollama 专属参数 - 最大生成 token 数：限制输出长度，防止无限生成 */
         private Integer numPredict = 512;
+
+        /** 是否在发送前缩放并转码图片（OpenAI 兼容接口改为以 data URI 内联发送） */
+        private Boolean optimizeImages = true;
+
+        /** 图片长边上限（像素） */
+        private Integer imageMaxDimension = 1024;
+
+        /** JPEG 转码质量（0.0-1.0） */
+        private Double imageJpegQuality = 0.85;
+
+        /** 优化结果缓存目录，为空时使用系统临时目录下的 vlm-image-cache */
+        private String imageCacheDir;
+
+        /** 优化结果缓存容量上限（MB），超出后淘汰最久未访问的文件 */
+        private Long imageCacheMaxSizeMb = 512L;
+
+        /** 是否在分析前分拣图片（跳过装饰性图片，近似重复图片只分析一张） */
+        private Boolean triageEnabled = false;
+
+        /** 短边小于该值（像素）的图片视为图标，跳过分析 */
+        private Integer triageMinSide = 48;
+
+        /** 长宽比大于该值的图片视为分隔线、页眉条，跳过分析 */
+        private Double triageMaxAspectRatio = 12.0;
+
+        /** 灰度熵低于该值（bit，0~8）且长边不超过 triageLowEntropyMaxSide 的图片视为纯色块，跳过分析 */
+        private Double triageMinEntropy = 0.5;
+
+        /** 低熵图片按纯色块跳过的长边上限（像素），更大的低熵图片（稀疏线图、黑白扫描）仍然分析 */
+        private Integer triageLowEntropyMaxSide = 256;
+
+        /** 感知哈希汉明距离不超过该值（0~64）的图片视为近似重复 */
+        private Integer triageHashDistance = 6;
+
+        /** 是否启用多图批量请求：一次请求携带多张图片及各自的上下文，需模型支持多图输入 */
+        private Boolean batchEnabled = false;
+
+        /** 单次请求最多携带的图片数 */
+        private Integer batchMaxImages = 4;
+
+        /** 单次请求的图片与上下文总大小上限（KB，内联图片按 base64 计算），超出时开始新的一批 */
+        private Integer batchMaxPayloadKb = 4096;
+
+        /** 是否流式读取输出：出现重复循环或回答已完整时提前取消生成 */
+        private Boolean streamEnabled = true;
+
+        /** 流式输出结尾重复片段累计达到该字符数时视为循环输出（只含一种非空白字符的片段除外，如目录引导线） */
+        private Integer loopMinChars = 100;
     }
 
     /**
@@ -230,6 +583,12 @@ public class AppProperties {
 
         /** 内容长度阈值（字符数），低于此值不调用 LLM */
         private Integer contentThreshold = 100;
+
+        /** 是否流式读取输出：出现重复循环时提前取消生成 */
+        private Boolean streamEnabled = true;
+
+        /** 流式输出结尾重复片段累计达到该字符数时视为循环输出（只含一种非空白字符的片段除外，如目录引导线） */
+        private Integer loopMinChars = 100;
     }
     
     /**
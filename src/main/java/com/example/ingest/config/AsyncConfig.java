@@ -43,4 +43,87 @@ public class AsyncConfig implements AsyncConfigurer {
         executor.initialize();
         return executor;
     }
+    
+    /**
+     * 文件下载专用线程池
+     * 用于大文件多连接分区间并发下载
+     */
+    @Bean(name = "downloadExecutor")
+    public Executor downloadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("download-task-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());  // 队列满时由调用线程执行
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * MinerU 分片解析专用线程池
+     * 用于大 PDF 按页分片后并发调用 MinerU
+     */
+    @Bean(name = "mineruExecutor")
+    public Executor mineruExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("mineru-task-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());  // 队列满时由调用线程执行
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 图片上传专用线程池
+     * 用于并发上传解析出的图片到 MinIO，单个文档的在途数另由 app.minio.upload-concurrency 限制
+     */
+    @Bean(name = "imageUploadExecutor")
+    public Executor imageUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("image-upload-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());  // 队列满时由调用线程执行
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 图片分拣专用线程池
+     * 用于 VLM 分析前并发解码图片计算指纹，属于 CPU 密集任务，线程数与 CPU 核数一致，
+     * 不占用图片上传与 VLM 调用的线程
+     */
+    @Bean(name = "imageTriageExecutor")
+    public Executor imageTriageExecutor() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(processors);
+        executor.setMaxPoolSize(processors);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("image-triage-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());  // 队列满时由调用线程执行
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 文档入库流水线线程池
+     * 远程 MinerU 解析完成后在此继续执行图片上传、语义增强与 Dify 写入，解析期间不占用线程；
+     * 本地模式不使用该线程池，入库流程直接在 ingest-task 线程上执行
+     */
+    @Bean(name = "ingestExecutor")
+    public Executor ingestExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(5);
+        executor.setMaxPoolSize(10);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("ingest-pipeline-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());  // 队列满时由调用线程执行，任务不会被丢弃
+        executor.initialize();
+        return executor;
+    }
 }
@@ -3,13 +3,17 @@ package com.example.ingest.controller;
 import com.example.ingest.client.DifyClient;
 import com.example.ingest.model.DifyDatasetDetail;
 import com.example.ingest.model.IngestRequest;
+import com.example.ingest.model.PdfPreflightReport;
 import com.example.ingest.repository.IngestTaskLogRepository;
 import com.example.ingest.repository.IngestTaskRepository;
 import com.example.ingest.service.IngestTaskService;
+import com.example.ingest.service.PdfPreflightService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -30,6 +34,7 @@ public class DocumentIngestController {
     private final IngestTaskRepository taskRepository;
     private final IngestTaskLogRepository taskLogRepository;
     private final DifyClient difyClient;
+    private final PdfPreflightService pdfPreflightService;
 
     /**
      * 异步文档入库
@@ -75,6 +80,29 @@ public class DocumentIngestController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * PDF 预检
+     * 不调用 MinerU，返回页数、文本层、图片数量、加密情况与预估耗时
+     */
+    @PostMapping("/preflight")
+    public ResponseEntity<PdfPreflightReport> preflight(@RequestBody IngestRequest request) throws IOException {
+        log.info("收到 PDF 预检请求: fileName={}", request.getFileName());
+        
+        if (request.getFileUrl() == null || request.getFileUrl().isEmpty()) {
+            throw new IllegalArgumentException("fileUrl 不能为空");
+        }
+        if (request.getFileName() == null || request.getFileName().isEmpty()) {
+            throw new IllegalArgumentException("fileName 不能为空");
+        }
+        if (request.getFileType() != null && !"pdf".equalsIgnoreCase(request.getFileType())) {
+            throw new IllegalArgumentException("预检仅支持 pdf 文件");
+        }
+        
+        PdfPreflightReport report = pdfPreflightService.analyze(request.getFileUrl(), request.getFileName(),
+                Boolean.TRUE.equals(request.getEnableVlm()));
+        return ResponseEntity.ok(report);
+    }
+
     /**
      * 参数校验
      */
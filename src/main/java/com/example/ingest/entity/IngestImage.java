@@ -29,6 +29,9 @@ public class IngestImage {
     @Column("mimetype")
     private String mimetype;
     
+    @Column("sha256")
+    private String sha256;
+    
     @Column("created_at")
     private LocalDateTime createdAt;
     
@@ -87,6 +87,33 @@ public class IngestTask {
     @Column("download_cost_time")
     private Long downloadCostTime;  // 文件下载耗时（毫秒）
     
+    @Column("image_upload_cost_time")
+    private Long imageUploadCostTime;  // 图片上传耗时（毫秒，含图片记录写入）
+    
+    @Column("vlm_cache_lookups")
+    private Integer vlmCacheLookups;  // VLM 结果缓存查询次数
+    
+    @Column("vlm_cache_hits")
+    private Integer vlmCacheHits;  // VLM 结果缓存命中次数
+    
+    @Column("vlm_cache_saved_time")
+    private Long vlmCacheSavedTime;  // 缓存命中节省的 VLM 耗时（毫秒）
+    
+    @Column("page_count")
+    private Integer pageCount;  // PDF 页数（预检）
+    
+    @Column("has_text_layer")
+    private Boolean hasTextLayer;  // PDF 是否包含文本层（预检）
+    
+    @Column("embedded_image_count")
+    private Integer embeddedImageCount;  // PDF 内嵌图片数量（预检）
+    
+    @Column("encrypted")
+    private Boolean encrypted;  // PDF 是否加密（预检）
+    
+    @Column("estimated_cost_time")
+    private Long estimatedCostTime;  // 预估处理耗时（毫秒）
+    
     /**
      * 任务状态枚举
      */
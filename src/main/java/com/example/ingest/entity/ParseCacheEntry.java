@@ -0,0 +1,46 @@
+package com.example.ingest.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * MinerU 解析结果缓存实体
+ */
+@Data
+@Table("mcp_parse_cache")
+public class ParseCacheEntry {
+    @Id
+    @Column("cache_key")
+    private String cacheKey;
+    
+    @Column("file_sha256")
+    private String fileSha256;
+    
+    @Column("parse_options")
+    private String parseOptions;
+    
+    @Column("md_content")
+    private String mdContent;
+    
+    @Column("image_manifest")
+    private String imageManifest;  // 图片名称 -> file_key（JSON 对象）
+    
+    @Column("blocks")
+    private String blocks;  // 文档块列表（JSON 数组），未返回 content_list 时为 null
+    
+    @Column("size_bytes")
+    private Long sizeBytes;
+    
+    @Column("hit_count")
+    private Long hitCount;
+    
+    @Column("created_at")
+    private LocalDateTime createdAt;
+    
+    @Column("last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+}
@@ -0,0 +1,46 @@
+package com.example.ingest.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * VLM 图片分析结果缓存实体
+ */
+@Data
+@Table("mcp_vlm_result_cache")
+public class VlmResultCacheEntry {
+    @Id
+    @Column("cache_key")
+    private String cacheKey;
+    
+    @Column("image_sha256")
+    private String imageSha256;
+    
+    @Column("model")
+    private String model;
+    
+    @Column("prompt_hash")
+    private String promptHash;
+    
+    @Column("description")
+    private String description;
+    
+    @Column("ocr_text")
+    private String ocrText;
+    
+    @Column("duration")
+    private Long duration;  // 原始 VLM 请求耗时（毫秒）
+    
+    @Column("hit_count")
+    private Long hitCount;
+    
+    @Column("created_at")
+    private LocalDateTime createdAt;
+    
+    @Column("last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+}
@@ -0,0 +1,84 @@
+package com.example.ingest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 文档块
+ * 由 MinerU content_list 一次性反序列化得到（其他来源由 Markdown 单遍切分得到），
+ * 文本清洗、图片路径替换、VLM 增强、摘要与父子分段均直接在块上进行，最后再渲染为 Markdown
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentBlock {
+
+    public enum Type {
+        HEADING, PARAGRAPH, TABLE, IMAGE, EQUATION
+    }
+
+    private Type type;
+
+    /** 标题/段落文本；表格为 HTML 或 Markdown 表格；公式为 $$ 包裹的 LaTeX */
+    private String text;
+
+    /** 标题级别（1~6），非标题为 0 */
+    private int level;
+
+    /** 图片路径：解析结果中为 images/{图片名称}，替换后为 MinIO URL；表格、公式无文本时以截图代替 */
+    private String imagePath;
+
+    /** 图片 alt 文本（VLM 增强后为图片描述与 OCR 文字） */
+    private String alt;
+
+    /** 图片、表格标题 */
+    private String caption;
+
+    /** 图片、表格脚注 */
+    private String footnote;
+
+    /** 所在页（从 0 开始），来源不含页码时为 -1 */
+    @Builder.Default
+    private int pageIndex = -1;
+
+    /** 章节摘要（仅一级标题，LLM 摘要增强写入） */
+    private String summary;
+
+    /**
+     * 渲染为 Markdown（不含摘要），标题/脚注位置与 MinerU 输出一致：图片标题在图片之后，表格标题在表格之前
+     */
+    public String toMarkdown() {
+        StringBuilder markdown = new StringBuilder();
+        switch (type) {
+            case HEADING -> markdown.append("#".repeat(Math.max(1, Math.min(level, 6)))).append(' ').append(text);
+            case PARAGRAPH -> markdown.append(text);
+            case IMAGE -> {
+                markdown.append(imageMarkdown());
+                appendLine(markdown, caption);
+                appendLine(markdown, footnote);
+            }
+            case TABLE, EQUATION -> {
+                appendLine(markdown, caption);
+                appendLine(markdown, text != null && !text.isBlank() ? text : imageMarkdown());
+                appendLine(markdown, footnote);
+            }
+        }
+        return markdown.toString();
+    }
+
+    private void appendLine(StringBuilder markdown, String line) {
+        if (line != null && !line.isBlank()) {
+            if (markdown.length() > 0) {
+                markdown.append('\n');
+            }
+            markdown.append(line);
+        }
+    }
+
+    private String imageMarkdown() {
+        return imagePath != null ? "![" + (alt != null ? alt : "") + "](" + imagePath + ")" : "";
+    }
+}
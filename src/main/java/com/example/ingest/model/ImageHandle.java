@@ -0,0 +1,37 @@
+package com.example.ingest.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片数据句柄
+ * 在解析、上传、分拣、VLM 分析各环节之间传递图片，各环节按需打开数据流读取（临时文件或内存字节），
+ * 不再经过 base64 字符串，也不从 MinIO 重新下载
+ */
+public interface ImageHandle {
+
+    /** 图片名称 */
+    String getName();
+
+    /** 图片大小（字节） */
+    long getSize();
+
+    /** 图片内容 SHA-256，未知时为 null */
+    String getSha256();
+
+    /**
+     * 打开图片数据输入流，可多次调用
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * MIME 类型，默认按名称扩展名推断
+     */
+    default String getMimeType() {
+        String lower = getName() != null ? getName().toLowerCase() : "";
+        if (lower.endsWith(".png")) return "image/png";
+        if (lower.endsWith(".gif")) return "image/gif";
+        if (lower.endsWith(".webp")) return "image/webp";
+        return "image/jpeg";
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.ingest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * 内存中的图片（VLM 优化后的缩略图、解析缓存命中时从 MinIO 下载的图片）
+ */
+@Data
+@AllArgsConstructor
+public class InMemoryImage implements ImageHandle {
+
+    private String name;
+
+    private byte[] data;
+
+    private String mimeType;
+
+    private String sha256;
+
+    @Override
+    public long getSize() {
+        return data.length;
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new ByteArrayInputStream(data);
+    }
+}
@@ -56,6 +56,9 @@ public class IngestRequest {
     /** 是否启用 VLM 图片理解 */
     private Boolean enableVlm = false;
     
+    /** 解析引擎: mineru, pdfbox（PDFBox 快速提取，质量不达标时回退 MinerU）, auto（预检判定为文本型 PDF 时快速提取）；为空时使用 app.fast-path.default-engine */
+    private String parseEngine;
+    
     /** 索引技术: high_quality, economy（从 Dataset 自动获取，无需传入） */
     private String indexingTechnique;
 }
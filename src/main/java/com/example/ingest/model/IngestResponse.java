@@ -33,6 +33,14 @@ public class IngestResponse {
     
     private Long downloadCostTime;
     
+    private Long imageUploadCostTime;
+    
+    private Integer vlmCacheLookups;
+    
+    private Integer vlmCacheHits;
+    
+    private Long vlmCacheSavedTime;
+    
     private Long totalCostTime;
     
     private Long fileSize;
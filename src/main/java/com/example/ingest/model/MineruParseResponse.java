@@ -1,24 +1,26 @@
 package com.example.ingest.model;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
 import java.util.List;
 import java.util.Map;
 
+/**
+ * MinerU 解析结果
+ * 由 MineruResponseReader 流式读取响应填充，只保留 Markdown、content_list 文档块与已解码到临时文件的图片
+ */
 @Data
 public class MineruParseResponse {
     private Map<String, FileResult> results;
 
     @Data
     public static class FileResult {
-        @JsonProperty("md_content")
         private String mdContent;
-        
-        @JsonProperty("content_list")
-        private String contentList;
-        
-        @JsonProperty("images")
-        private Map<String, String> images;
+
+        /** 图片名称 -> 已解码的图片 */
+        private Map<String, ParsedImage> images;
+
+        /** content_list 转换的文档块，MinerU 未返回 content_list 时为 null */
+        private List<DocumentBlock> blocks;
     }
 }
@@ -0,0 +1,51 @@
+package com.example.ingest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * MinerU 解析出的图片
+ * 图片数据在解析响应时已解码到本地临时文件，后续上传、分拣、VLM 分析等环节直接读取文件，不再经过 base64 字符串；
+ * 临时文件在入库流程结束后删除
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParsedImage implements ImageHandle {
+    /** 图片名称（MinerU 返回的文件名） */
+    private String name;
+
+    /** 解码后的图片临时文件 */
+    private File file;
+
+    /** 图片大小（字节） */
+    private long size;
+
+    /** 图片内容 SHA-256 */
+    private String sha256;
+
+    /**
+     * 打开图片数据输入流
+     */
+    @Override
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(file.toPath());
+    }
+
+    /**
+     * 删除临时文件
+     */
+    public void delete() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.ingest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PDF 预检报告
+ * 在调用 MinerU 之前基于 PDFBox 快速分析文档特征，并根据历史任务估算处理耗时
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfPreflightReport {
+    /** 文件大小（字节） */
+    private Long fileSize;
+
+    /** 页数（无法打开时为 null） */
+    private Integer pageCount;
+
+    /** 是否加密 */
+    private Boolean encrypted;
+
+    /** 是否需要密码才能打开（无法解析） */
+    private Boolean passwordProtected;
+
+    /** 是否包含文本层（抽样页中有文本的页占比达到阈值） */
+    private Boolean hasTextLayer;
+
+    /** 抽样页中包含文本的页占比 */
+    private Double textPageRatio;
+
+    /** 抽样页平均字符数 */
+    private Integer avgCharsPerPage;
+
+    /** 内嵌图片数量 */
+    private Integer imageCount;
+
+    /** 建议的解析方法: txt, ocr, auto（MinerU 解析方法配置为 auto 时按此下发） */
+    private String recommendedParseMethod;
+
+    /** 预估 MinerU 解析耗时（毫秒），历史样本不足时为 null */
+    private Long estimatedMineruCostTime;
+
+    /** 预估 VLM 处理耗时（毫秒），历史样本不足时为 null */
+    private Long estimatedVlmCostTime;
+
+    /** 预估总耗时（毫秒） */
+    private Long estimatedTotalCostTime;
+
+    /** 预检耗时（毫秒） */
+    private Long costTime;
+}
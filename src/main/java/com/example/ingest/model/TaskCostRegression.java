@@ -0,0 +1,30 @@
+package com.example.ingest.model;
+
+import lombok.Data;
+
+/**
+ * 历史任务耗时线性回归结果
+ * 由 mcp_ingest_tasks 中已完成任务的耗时与文档特征拟合（regr_slope / regr_intercept）
+ */
+@Data
+public class TaskCostRegression {
+    /** MinerU 耗时 ~ 页数 */
+    private Double mineruPageSlope;
+    private Double mineruPageIntercept;
+    private Long mineruPageSamples;
+
+    /** MinerU 耗时 ~ 文件大小（旧任务没有页数时使用） */
+    private Double mineruSizeSlope;
+    private Double mineruSizeIntercept;
+    private Long mineruSizeSamples;
+
+    /** VLM 耗时 ~ 内嵌图片数量 */
+    private Double vlmImageSlope;
+    private Double vlmImageIntercept;
+    private Long vlmImageSamples;
+
+    /** VLM 耗时 ~ 文件大小 */
+    private Double vlmSizeSlope;
+    private Double vlmSizeIntercept;
+    private Long vlmSizeSamples;
+}
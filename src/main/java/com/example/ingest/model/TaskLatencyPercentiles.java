@@ -0,0 +1,30 @@
+package com.example.ingest.model;
+
+import lombok.Data;
+
+/**
+ * 历史任务单位耗时分位数
+ * 由 mcp_ingest_tasks 中已完成任务的耗时与文档特征统计（percentile_cont），用于推算外部调用超时
+ */
+@Data
+public class TaskLatencyPercentiles {
+    /** MinerU 每页耗时（毫秒） */
+    private Double mineruMsPerPage;
+    private Long mineruPageSamples;
+
+    /** MinerU 无图片文档每页耗时（毫秒，与每张图片耗时配合使用） */
+    private Double mineruMsPerTextPage;
+    private Long mineruTextPageSamples;
+
+    /** MinerU 每张内嵌图片的额外耗时（毫秒，扣除纯文本页耗时后换算） */
+    private Double mineruMsPerImage;
+    private Long mineruImageSamples;
+
+    /** MinerU 每 MB 耗时（毫秒，页数未知时使用） */
+    private Double mineruMsPerMb;
+    private Long mineruSizeSamples;
+
+    /** VLM 单次调用耗时（毫秒） */
+    private Double vlmMsPerImage;
+    private Long vlmSamples;
+}
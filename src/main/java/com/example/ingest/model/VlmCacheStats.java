@@ -0,0 +1,26 @@
+package com.example.ingest.model;
+
+import lombok.Data;
+
+/**
+ * 单个任务的 VLM 结果缓存统计
+ */
+@Data
+public class VlmCacheStats {
+
+    /** 查询次数（待分析且内容哈希已知的图片数） */
+    private int lookups;
+
+    /** 命中次数 */
+    private int hits;
+
+    /** 命中节省的 VLM 耗时（毫秒，按缓存条目的原始请求耗时累计） */
+    private long savedTime;
+
+    /**
+     * 命中率，无查询时为 0
+     */
+    public double getHitRatio() {
+        return lookups > 0 ? (double) hits / lookups : 0.0;
+    }
+}
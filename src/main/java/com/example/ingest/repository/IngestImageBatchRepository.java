@@ -0,0 +1,19 @@
+package com.example.ingest.repository;
+
+import com.example.ingest.entity.IngestImage;
+
+import java.util.List;
+
+/**
+ * 图片记录批量写入
+ * 由 IngestImageRepository 组合，实现见 IngestImageBatchRepositoryImpl
+ */
+public interface IngestImageBatchRepository {
+
+    /**
+     * 批量插入图片记录（单次 JDBC 批量提交）
+     *
+     * @param images 图片记录（id 为空时自动生成）
+     */
+    void batchInsert(List<IngestImage> images);
+}
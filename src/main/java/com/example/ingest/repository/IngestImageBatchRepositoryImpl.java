@@ -0,0 +1,42 @@
+package com.example.ingest.repository;
+
+import com.example.ingest.entity.IngestImage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 图片记录批量写入实现
+ * 同一内容已被其他任务或节点写入时（sha256 唯一索引冲突）忽略该条
+ */
+@RequiredArgsConstructor
+public class IngestImageBatchRepositoryImpl implements IngestImageBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO mcp_ingest_images (id, name, file_key, minio_url, size, mimetype, sha256, created_at, updated_at) " +
+            "VALUES (:id, :name, :fileKey, :minioUrl, :size, :mimetype, :sha256, NOW(), NOW()) " +
+            "ON CONFLICT (sha256) DO NOTHING";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<IngestImage> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = images.stream()
+                .map(image -> new MapSqlParameterSource()
+                        .addValue("id", image.getId() != null ? image.getId() : UUID.randomUUID())
+                        .addValue("name", image.getName())
+                        .addValue("fileKey", image.getFileKey())
+                        .addValue("minioUrl", image.getMinioUrl())
+                        .addValue("size", image.getSize())
+                        .addValue("mimetype", image.getMimetype())
+                        .addValue("sha256", image.getSha256()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+    }
+}
@@ -10,18 +10,11 @@ import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface IngestImageRepository extends CrudRepository<IngestImage, UUID> {
+public interface IngestImageRepository extends CrudRepository<IngestImage, UUID>, IngestImageBatchRepository {
     
-    @Query("SELECT * FROM mcp_ingest_images WHERE name IN (:names)")
-    List<IngestImage> findByNameIn(@Param("names") List<String> names);
+    @Query("SELECT * FROM mcp_ingest_images WHERE sha256 IN (:hashes)")
+    List<IngestImage> findBySha256In(@Param("hashes") List<String> hashes);
     
-    @org.springframework.data.jdbc.repository.query.Modifying
-    @Query("INSERT INTO mcp_ingest_images (id, name, file_key, minio_url, size, mimetype, created_at, updated_at) " +
-           "VALUES (:id, :name, :fileKey, :minioUrl, :size, :mimetype, NOW(), NOW())")
-    void insertImage(@Param("id") UUID id, 
-                     @Param("name") String name, 
-                     @Param("fileKey") String fileKey,
-                     @Param("minioUrl") String minioUrl,
-                     @Param("size") long size,
-                     @Param("mimetype") String mimetype);
+    @Query("SELECT * FROM mcp_ingest_images WHERE minio_url IN (:urls)")
+    List<IngestImage> findByMinioUrlIn(@Param("urls") List<String> urls);
 }
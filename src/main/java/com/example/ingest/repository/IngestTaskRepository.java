@@ -1,11 +1,15 @@
 package com.example.ingest.repository;
 
 import com.example.ingest.entity.IngestTask;
+import com.example.ingest.model.TaskCostRegression;
+import com.example.ingest.model.TaskLatencyPercentiles;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jdbc.repository.query.Modifying;
 import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -45,4 +49,66 @@ public interface IngestTaskRepository extends
      */
     @Query("SELECT * FROM mcp_ingest_tasks ORDER BY created_at DESC LIMIT :limit")
     List<IngestTask> findRecentTasks(int limit);
+    
+    /**
+     * 写入 PDF 预检结果（只更新预检字段，不覆盖任务状态）
+     */
+    @Modifying
+    @Query("UPDATE mcp_ingest_tasks SET page_count = :pageCount, has_text_layer = :hasTextLayer, " +
+           "embedded_image_count = :imageCount, encrypted = :encrypted, estimated_cost_time = :estimatedCostTime, " +
+           "updated_at = NOW() WHERE id = :id")
+    void updatePreflight(@Param("id") UUID id,
+                         @Param("pageCount") Integer pageCount,
+                         @Param("hasTextLayer") Boolean hasTextLayer,
+                         @Param("imageCount") Integer imageCount,
+                         @Param("encrypted") Boolean encrypted,
+                         @Param("estimatedCostTime") Long estimatedCostTime);
+    
+    /**
+     * 基于最近已完成任务拟合耗时线性回归
+     * 排除耗时为 0 的样本（命中解析缓存、未启用 VLM 等）与文件大小未知的任务（远程 MinerU 模式探测失败）
+     */
+    @Query("SELECT " +
+           "regr_slope(mineru_cost_time, page_count) FILTER (WHERE mineru_cost_time > 0) AS mineru_page_slope, " +
+           "regr_intercept(mineru_cost_time, page_count) FILTER (WHERE mineru_cost_time > 0) AS mineru_page_intercept, " +
+           "regr_count(mineru_cost_time, page_count) FILTER (WHERE mineru_cost_time > 0) AS mineru_page_samples, " +
+           "regr_slope(mineru_cost_time, file_size) FILTER (WHERE mineru_cost_time > 0) AS mineru_size_slope, " +
+           "regr_intercept(mineru_cost_time, file_size) FILTER (WHERE mineru_cost_time > 0) AS mineru_size_intercept, " +
+           "regr_count(mineru_cost_time, file_size) FILTER (WHERE mineru_cost_time > 0) AS mineru_size_samples, " +
+           "regr_slope(vlm_cost_time, embedded_image_count) FILTER (WHERE enable_vlm AND vlm_cost_time > 0) AS vlm_image_slope, " +
+           "regr_intercept(vlm_cost_time, embedded_image_count) FILTER (WHERE enable_vlm AND vlm_cost_time > 0) AS vlm_image_intercept, " +
+           "regr_count(vlm_cost_time, embedded_image_count) FILTER (WHERE enable_vlm AND vlm_cost_time > 0) AS vlm_image_samples, " +
+           "regr_slope(vlm_cost_time, file_size) FILTER (WHERE enable_vlm AND vlm_cost_time > 0) AS vlm_size_slope, " +
+           "regr_intercept(vlm_cost_time, file_size) FILTER (WHERE enable_vlm AND vlm_cost_time > 0) AS vlm_size_intercept, " +
+           "regr_count(vlm_cost_time, file_size) FILTER (WHERE enable_vlm AND vlm_cost_time > 0) AS vlm_size_samples " +
+           "FROM (SELECT * FROM mcp_ingest_tasks WHERE status = 'COMPLETED' AND file_size > 0 ORDER BY created_at DESC LIMIT :limit) recent")
+    TaskCostRegression fitCostRegression(@Param("limit") int limit);
+    
+    /**
+     * 统计最近已完成任务的单位耗时分位数（排除文件大小未知的任务）
+     * MinerU 图片耗时：先由无图片文档统计纯文本页耗时，再从含图片文档的耗时中扣除页数部分后按图片数换算；
+     * VLM 按并发数将任务总耗时换算为单次调用耗时（图片数 / 并发数 轮）
+     */
+    @Query("WITH recent AS (SELECT * FROM mcp_ingest_tasks WHERE status = 'COMPLETED' AND file_size > 0 ORDER BY created_at DESC LIMIT :limit), " +
+           "text_page AS (SELECT percentile_cont(:percentile) WITHIN GROUP (ORDER BY mineru_cost_time * 1.0 / page_count) AS ms " +
+           "FROM recent WHERE mineru_cost_time > 0 AND page_count > 0 AND embedded_image_count = 0) " +
+           "SELECT " +
+           "percentile_cont(:percentile) WITHIN GROUP (ORDER BY mineru_cost_time * 1.0 / page_count) " +
+           "FILTER (WHERE mineru_cost_time > 0 AND page_count > 0) AS mineru_ms_per_page, " +
+           "COUNT(*) FILTER (WHERE mineru_cost_time > 0 AND page_count > 0) AS mineru_page_samples, " +
+           "MAX(text_page.ms) AS mineru_ms_per_text_page, " +
+           "COUNT(*) FILTER (WHERE mineru_cost_time > 0 AND page_count > 0 AND embedded_image_count = 0) AS mineru_text_page_samples, " +
+           "percentile_cont(:percentile) WITHIN GROUP (ORDER BY GREATEST(mineru_cost_time - COALESCE(text_page.ms, 0) * page_count, 0) * 1.0 / embedded_image_count) " +
+           "FILTER (WHERE mineru_cost_time > 0 AND page_count > 0 AND embedded_image_count > 0) AS mineru_ms_per_image, " +
+           "COUNT(*) FILTER (WHERE mineru_cost_time > 0 AND page_count > 0 AND embedded_image_count > 0) AS mineru_image_samples, " +
+           "percentile_cont(:percentile) WITHIN GROUP (ORDER BY mineru_cost_time * 1048576.0 / file_size) " +
+           "FILTER (WHERE mineru_cost_time > 0 AND file_size > 0) AS mineru_ms_per_mb, " +
+           "COUNT(*) FILTER (WHERE mineru_cost_time > 0 AND file_size > 0) AS mineru_size_samples, " +
+           "percentile_cont(:percentile) WITHIN GROUP (ORDER BY vlm_cost_time / CEIL(embedded_image_count * 1.0 / :vlmConcurrency)) " +
+           "FILTER (WHERE enable_vlm AND vlm_cost_time > 0 AND embedded_image_count > 0) AS vlm_ms_per_image, " +
+           "COUNT(*) FILTER (WHERE enable_vlm AND vlm_cost_time > 0 AND embedded_image_count > 0) AS vlm_samples " +
+           "FROM recent CROSS JOIN text_page")
+    TaskLatencyPercentiles fitLatencyPercentiles(@Param("percentile") double percentile,
+                                                 @Param("vlmConcurrency") int vlmConcurrency,
+                                                 @Param("limit") int limit);
 }
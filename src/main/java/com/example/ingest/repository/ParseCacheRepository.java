@@ -0,0 +1,48 @@
+package com.example.ingest.repository;
+
+import com.example.ingest.entity.ParseCacheEntry;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 解析结果缓存 Repository
+ */
+@Repository
+public interface ParseCacheRepository extends CrudRepository<ParseCacheEntry, String> {
+    
+    /**
+     * 记录一次命中（LRU 淘汰依据）
+     */
+    @Modifying
+    @Query("UPDATE mcp_parse_cache SET hit_count = hit_count + 1, last_accessed_at = NOW() WHERE cache_key = :cacheKey")
+    void touch(@Param("cacheKey") String cacheKey);
+    
+    /**
+     * 写入缓存，已存在时覆盖内容
+     */
+    @Modifying
+    @Query("INSERT INTO mcp_parse_cache (cache_key, file_sha256, parse_options, md_content, image_manifest, blocks, size_bytes, hit_count, created_at, last_accessed_at) " +
+           "VALUES (:cacheKey, :fileSha256, :parseOptions, :mdContent, :imageManifest, :blocks, :sizeBytes, 0, NOW(), NOW()) " +
+           "ON CONFLICT (cache_key) DO UPDATE SET md_content = EXCLUDED.md_content, image_manifest = EXCLUDED.image_manifest, " +
+           "blocks = EXCLUDED.blocks, " +
+           "size_bytes = EXCLUDED.size_bytes, last_accessed_at = NOW()")
+    void upsert(@Param("cacheKey") String cacheKey,
+                @Param("fileSha256") String fileSha256,
+                @Param("parseOptions") String parseOptions,
+                @Param("mdContent") String mdContent,
+                @Param("imageManifest") String imageManifest,
+                @Param("blocks") String blocks,
+                @Param("sizeBytes") long sizeBytes);
+    
+    /**
+     * 按最近访问时间从新到旧累加条目大小，删除累计超出容量上限的条目
+     */
+    @Modifying
+    @Query("DELETE FROM mcp_parse_cache WHERE cache_key IN (" +
+           "SELECT cache_key FROM (SELECT cache_key, SUM(size_bytes) OVER (ORDER BY last_accessed_at DESC, cache_key) AS running_size " +
+           "FROM mcp_parse_cache) t WHERE t.running_size > :maxBytes)")
+    int evictBeyond(@Param("maxBytes") long maxBytes);
+}
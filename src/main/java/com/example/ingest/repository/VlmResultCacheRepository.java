@@ -0,0 +1,49 @@
+package com.example.ingest.repository;
+
+import com.example.ingest.entity.VlmResultCacheEntry;
+import org.springframework.data.jdbc.repository.query.Modifying;
+import org.springframework.data.jdbc.repository.query.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * VLM 图片分析结果缓存 Repository
+ */
+@Repository
+public interface VlmResultCacheRepository extends CrudRepository<VlmResultCacheEntry, String> {
+    
+    /**
+     * 记录命中（LRU 淘汰依据）
+     */
+    @Modifying
+    @Query("UPDATE mcp_vlm_result_cache SET hit_count = hit_count + 1, last_accessed_at = NOW() WHERE cache_key IN (:cacheKeys)")
+    void touch(@Param("cacheKeys") List<String> cacheKeys);
+    
+    /**
+     * 写入缓存，已存在时覆盖内容
+     */
+    @Modifying
+    @Query("INSERT INTO mcp_vlm_result_cache (cache_key, image_sha256, model, prompt_hash, description, ocr_text, duration, hit_count, created_at, last_accessed_at) " +
+           "VALUES (:cacheKey, :imageSha256, :model, :promptHash, :description, :ocrText, :duration, 0, NOW(), NOW()) " +
+           "ON CONFLICT (cache_key) DO UPDATE SET description = EXCLUDED.description, ocr_text = EXCLUDED.ocr_text, " +
+           "duration = EXCLUDED.duration, last_accessed_at = NOW()")
+    void upsert(@Param("cacheKey") String cacheKey,
+                @Param("imageSha256") String imageSha256,
+                @Param("model") String model,
+                @Param("promptHash") String promptHash,
+                @Param("description") String description,
+                @Param("ocrText") String ocrText,
+                @Param("duration") long duration);
+    
+    /**
+     * 按最近访问时间从新到旧保留 maxEntries 条，删除其余条目
+     */
+    @Modifying
+    @Query("DELETE FROM mcp_vlm_result_cache WHERE cache_key IN (" +
+           "SELECT cache_key FROM (SELECT cache_key, ROW_NUMBER() OVER (ORDER BY last_accessed_at DESC, cache_key) AS rn " +
+           "FROM mcp_vlm_result_cache) t WHERE t.rn > :maxEntries)")
+    int evictBeyond(@Param("maxEntries") long maxEntries);
+}
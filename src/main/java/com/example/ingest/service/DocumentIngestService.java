@@ -2,31 +2,28 @@ package com.example.ingest.service;
 
 import com.example.ingest.client.DifyClient;
 import com.example.ingest.client.MineruClient;
+import com.example.ingest.client.MineruRemoteJobClient;
 import com.example.ingest.client.VlmClient;
 import com.example.ingest.config.AppProperties;
-import com.example.ingest.entity.IngestImage;
 import com.example.ingest.entity.IngestTask;
 import com.example.ingest.entity.IngestTaskLog;
 import com.example.ingest.model.*;
-import com.example.ingest.repository.IngestImageRepository;
 import com.example.ingest.repository.IngestTaskLogRepository;
+import com.example.ingest.util.DocumentBlocks;
 import com.example.ingest.util.TextCleaningUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * 文档入库服务
@@ -39,19 +36,29 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class DocumentIngestService {
     
+    private static final String PARSE_ENGINE_MINERU = "mineru";
+    private static final String PARSE_ENGINE_PDFBOX = "pdfbox";
+    private static final String PARSE_ENGINE_AUTO = "auto";
+    
     private final MineruClient mineruClient;
     private final DifyClient difyClient;
     private final VlmClient vlmClient;
     private final SemanticTextProcessor semanticTextProcessor;
-    private final IngestImageRepository ingestImageRepository;
     private final IngestTaskLogRepository taskLogRepository;
     private final AppProperties appProperties;
     private final MinioService minioService;
-    
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(60, TimeUnit.SECONDS)
-            .readTimeout(1800, TimeUnit.SECONDS)  // 30分钟，解决大文件下载超时
-            .build();
+    private final FileDownloadService fileDownloadService;
+    private final ParseCacheService parseCacheService;
+    private final PdfShardParser pdfShardParser;
+    private final MineruRemoteJobClient remoteJobClient;
+    private final PdfPreflightService pdfPreflightService;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final OfficeConversionService officeConversionService;
+    private final NativeDocumentExtractor nativeDocumentExtractor;
+    private final TimeoutPolicy timeoutPolicy;
+
+    @Qualifier("ingestExecutor")
+    private final Executor ingestExecutor;
 
     /**
      * 文档入库主流程
@@ -63,11 +70,16 @@ public class DocumentIngestService {
      * @return 入库结果
      */
     public IngestResponse ingestDocument(IngestRequest request, IngestTask.ExecutionMode executionMode, UUID taskId, DifyDatasetDetail dataset) {
+        if (remoteJobClient.isEnabled()) {
+            return ingestDocumentAsync(request, executionMode, taskId, dataset).join();
+        }
+        
         log.info("开始处理文档入库: datasetId={}, fileName={}, enableVlm={}, mode={}", 
                 request.getDatasetId(), request.getFileName(), request.getEnableVlm(), executionMode);
         
         long totalStartTime = System.currentTimeMillis();
-        long vlmCostTime = 0;
+        File downloadedFile = null;
+        File pdfFile = null;
         
         try {
             // 1. 记录 Dataset 信息
@@ -75,45 +87,216 @@ public class DocumentIngestService {
                     String.format("indexingTechnique=%s, docForm=%s", 
                             dataset.getIndexingTechnique(), dataset.getDocForm()));
 
-            // 2. 下载文件并记录大小
-            long downloadStartTime = System.currentTimeMillis();
-            File downloadedFile = downloadFile(request.getFileUrl(), request.getFileName());
-            long downloadCostTime = System.currentTimeMillis() - downloadStartTime;
-            long fileSize = downloadedFile.length();
-            logInfo(taskId, "文件下载完成", String.format("大小: %d bytes, 耗时: %d ms", fileSize, downloadCostTime));
+            // 2. 下载文件并记录大小（PDF 开启流式上传时边下载边交给 MinerU 解析，不落盘）
+            long mineruCostTime = 0;
+            MineruParseResponse parseResponse = null;
+            FileDownloadService.DownloadResult download;
             
-            // 3. 格式转换
-            File pdfFile = convertToPdfIfNeeded(downloadedFile, request.getFileType());
+            // 快速提取需要本地文件，仅 mineru 引擎走流式上传
+            String parseEngine = resolveParseEngine(request);
+            FileDownloadService.StreamingDownload streaming = PARSE_ENGINE_MINERU.equals(parseEngine) ? openStreamingIfEnabled(request) : null;
+            if (streaming != null) {
+                try (streaming) {
+                    long mineruStartTime = System.currentTimeMillis();
+                    parseResponse = mineruClient.parsePdf(streaming.getInputStream(), streaming.getContentLength(), request.getFileName(),
+                            timeoutPolicy.mineruTimeout(null, null, streaming.getContentLength()));
+                    mineruCostTime = System.currentTimeMillis() - mineruStartTime;
+                    download = streaming.awaitResult();
+                }
+                logInfo(taskId, "流式下载并解析完成", String.format("大小: %d bytes, 下载耗时: %d ms, 解析耗时（含下载）: %d ms, 吞吐: %s, sha256: %s",
+                        download.getSize(), download.getCostTime(), mineruCostTime, download.formatThroughput(), download.getSha256()));
+            } else {
+                download = fileDownloadService.download(request.getFileUrl(), request.getFileName());
+                downloadedFile = download.getFile();
+                logInfo(taskId, "文件下载完成", String.format("大小: %d bytes, 耗时: %d ms, 吞吐: %s, 续传次数: %d, sha256: %s",
+                        download.getSize(), download.getCostTime(), download.formatThroughput(), download.getResumeCount(), download.getSha256()));
+            }
             
-            // 4. 调用 MinerU 解析
-            long mineruStartTime = System.currentTimeMillis();
-            MineruParseResponse parseResponse = mineruClient.parsePdf(pdfFile, request.getFileName());
-            long mineruCostTime = System.currentTimeMillis() - mineruStartTime;
-            logInfo(taskId, "MinerU 解析完成", String.format("耗时: %d ms", mineruCostTime));
+            // 2.1 PDF 预检（页数、文本层、图片数量、预估耗时），结果记录到任务；auto 引擎依赖预检结果
+            PdfPreflightReport preflight = null;
+            if (downloadedFile != null && "pdf".equalsIgnoreCase(request.getFileType())
+                    && (Boolean.TRUE.equals(appProperties.getPreflight().getEnabled()) || PARSE_ENGINE_AUTO.equals(parseEngine))) {
+                preflight = pdfPreflightService.analyze(downloadedFile, Boolean.TRUE.equals(request.getEnableVlm()));
+                pdfPreflightService.saveToTask(taskId, preflight);
+                logInfo(taskId, "PDF 预检完成", String.format("页数: %s, 文本层: %s, 图片数量: %s, 加密: %s, 预估耗时: %s ms",
+                        preflight.getPageCount(), preflight.getHasTextLayer(), preflight.getImageCount(),
+                        preflight.getEncrypted(), preflight.getEstimatedTotalCostTime()));
+            }
             
-            // 5. 处理解析结果
-            MineruParseResponse.FileResult fileResult = parseResponse.getResults().values().iterator().next();
-            String mdContent = fileResult.getMdContent();
-            Map<String, String> images = fileResult.getImages();
+            // 3. 查询解析缓存（文件内容哈希 + 解析参数）
+            // 流式模式下文件哈希在下载（即上传）完成后才可知，MinerU 已开始解析，只写缓存不查缓存
+            String cacheKey = parseCacheService.buildKey(download.getSha256());
+            ParseCacheService.CachedParse cachedParse = parseResponse == null ? parseCacheService.get(cacheKey) : null;
             
-            log.info("MinerU 返回: markdown 长度={}, 图片数量={}", 
-                    mdContent != null ? mdContent.length() : 0, 
-                    images != null ? images.size() : 0);
+            StoredParse stored;
+            if (cachedParse != null) {
+                // 命中缓存：跳过格式转换、MinerU 解析与图片上传
+                stored = new StoredParse(cachedParse.getMdContent(), cachedParse.getBlocks(), cachedParse.getImageFileKeys().keySet(), cachedParse.getImageFileKeys(), Map.of(), true, 0);
+                logInfo(taskId, "命中解析缓存，跳过 MinerU 解析", 
+                        String.format("markdown 长度: %d, 图片数量: %d", stored.mdContent().length(), stored.imageNames().size()));
+            } else {
+                // 4. PDFBox 快速提取（文本型 PDF 不经过 MinerU；结果不写入按 MinerU 解析参数寻址的解析缓存）
+                stored = parseResponse == null ? extractTextIfEligible(request, parseEngine, preflight, downloadedFile, taskId) : null;
+                
+                // 4.1 TXT、Markdown、DOCX 原生提取（不经过格式转换与 MinerU；同样不写入解析缓存）
+                if (stored == null && parseResponse == null) {
+                    stored = extractNativeIfSupported(request, downloadedFile, taskId);
+                }
+                if (stored == null) {
+                    if (parseResponse == null) {
+                        // 4.2 格式转换
+                        long convertStartTime = System.currentTimeMillis();
+                        pdfFile = convertToPdfIfNeeded(downloadedFile, request.getFileType(), download.getSha256());
+                        String parseFileName = request.getFileName();
+                        if (pdfFile != downloadedFile) {
+                            // MinerU 按文件扩展名识别类型，转换后改用 .pdf 文件名
+                            parseFileName = parseFileName.replaceFirst("\\.[^.]*$", "") + ".pdf";
+                            logInfo(taskId, "Office 文档转换 PDF 完成", String.format("类型: %s, 耗时: %d ms",
+                                    request.getFileType(), System.currentTimeMillis() - convertStartTime));
+                        }
+                        
+                        // 5. 调用 MinerU 解析（大文件按页分片并发解析；预检报告仅适用于未经转换的原 PDF）
+                        long mineruStartTime = System.currentTimeMillis();
+                        parseResponse = pdfShardParser.parse(pdfFile, parseFileName, pdfFile == downloadedFile ? preflight : null);
+                        mineruCostTime = System.currentTimeMillis() - mineruStartTime;
+                        logInfo(taskId, "MinerU 解析完成", String.format("耗时: %d ms", mineruCostTime));
+                    }
+                    
+                    stored = storeParseResult(parseResponse, taskId);
+                    
+                    // 5.2 写入解析缓存（图片全部上传成功时才写入，避免缓存残缺的图片清单）
+                    if (stored.complete()) {
+                        parseCacheService.put(cacheKey, download.getSha256(), stored.mdContent(), stored.blocks(), stored.imageFileKeys());
+                    }
+                }
+            }
             
-            // 5.0 清洗 Markdown 文本（修复康熙部首问题）
-            mdContent = TextCleaningUtils.cleanText(mdContent);
-            log.info("文本清洗完成，清洗后长度={}", mdContent != null ? mdContent.length() : 0);
+            return completeIngest(request, taskId, dataset, stored, IngestResponse.builder()
+                    .mineruCostTime(mineruCostTime)
+                    .downloadCostTime(download.getCostTime())
+                    .fileSize(download.getSize()), totalStartTime);
+                    
+        } catch (Exception e) {
+            return failure(taskId, e);
+        } finally {
+            // 清理临时文件
+            cleanupTempFiles(downloadedFile, pdfFile);
+        }
+    }
+
+    /**
+     * 文档入库主流程（非阻塞）
+     * 远程 MinerU 模式下提交异步解析任务后立即返回，解析期间不占用线程，
+     * 解析完成后在 ingestExecutor 上继续执行后续流程；本地模式下在调用线程上同步执行，返回已完成的 Future。
+     * 远程模式由 MinerU 服务按 URL 自行下载文件，不经过本地下载、解析缓存、PDF 预检、PDFBox 快速提取、
+     * 原生提取与 Office 转换；文件大小通过 HEAD 请求探测，无法获取时记为 null，下载耗时记为 null
+     * 
+     * @param request 入库请求
+     * @param executionMode 执行模式（SYNC/ASYNC）
+     * @param taskId 任务 ID
+     * @param dataset Dataset 详情
+     * @return 入库结果 Future（不会异常完成，失败时返回 success=false）
+     */
+    public CompletableFuture<IngestResponse> ingestDocumentAsync(IngestRequest request, IngestTask.ExecutionMode executionMode, UUID taskId, DifyDatasetDetail dataset) {
+        if (!remoteJobClient.isEnabled()) {
+            return CompletableFuture.completedFuture(ingestDocument(request, executionMode, taskId, dataset));
+        }
+        
+        log.info("开始处理文档入库（远程 MinerU 异步任务）: datasetId={}, fileName={}, enableVlm={}, mode={}", 
+                request.getDatasetId(), request.getFileName(), request.getEnableVlm(), executionMode);
+        long totalStartTime = System.currentTimeMillis();
+        
+        logInfo(taskId, "开始处理文档", 
+                String.format("indexingTechnique=%s, docForm=%s", 
+                        dataset.getIndexingTechnique(), dataset.getDocForm()));
+        logInfo(taskId, "提交远程 MinerU 解析任务", request.getFileUrl());
+        // 不下载文件，只探测大小；探测失败记为 null，避免 0 值样本进入耗时回归与超时分位数
+        long probedSize = fileDownloadService.probeSize(request.getFileUrl());
+        Long fileSize = probedSize > 0 ? probedSize : null;
+        
+        return remoteJobClient.submit(request.getFileUrl(), request.getFileName())
+                .thenApplyAsync(parseResponse -> {
+                    long mineruCostTime = System.currentTimeMillis() - totalStartTime;
+                    logInfo(taskId, "MinerU 解析完成", String.format("耗时: %d ms", mineruCostTime));
+                    try {
+                        StoredParse stored = storeParseResult(parseResponse, taskId);
+                        return completeIngest(request, taskId, dataset, stored, IngestResponse.builder()
+                                .mineruCostTime(mineruCostTime)
+                                .downloadCostTime(null)
+                                .fileSize(fileSize), totalStartTime);
+                    } catch (Exception e) {
+                        return failure(taskId, e);
+                    }
+                }, ingestExecutor)
+                .exceptionally(e -> failure(taskId, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e));
+    }
+
+    /**
+     * 上传解析出的图片（数据库已有记录时直接复用），上传后删除图片临时文件
+     */
+    private StoredParse storeParseResult(MineruParseResponse parseResponse, UUID taskId) {
+        MineruParseResponse.FileResult fileResult = parseResponse.getResults().values().iterator().next();
+        String mdContent = fileResult.getMdContent();
+        Map<String, ParsedImage> images = fileResult.getImages() != null ? fileResult.getImages() : Map.of();
+        
+        log.info("MinerU 返回: markdown 长度={}, 图片数量={}", 
+                mdContent != null ? mdContent.length() : 0, images.size());
+        return storeImages(mdContent, fileResult.getBlocks(), images, taskId);
+    }
+
+    /**
+     * 上传 Markdown 引用的图片；图片临时文件保留到入库流程结束，供分拣与 VLM 分析直接读取
+     */
+    private StoredParse storeImages(String mdContent, List<DocumentBlock> blocks, Map<String, ParsedImage> images, UUID taskId) {
+        // 5.1 上传图片到 MinIO
+        long uploadStartTime = System.currentTimeMillis();
+        Map<String, String> imageFileKeys;
+        try {
+            imageFileKeys = uploadImages(images, taskId);
+        } catch (RuntimeException e) {
+            images.values().forEach(ParsedImage::delete);
+            throw e;
+        }
+        long uploadCostTime = System.currentTimeMillis() - uploadStartTime;
+        log.info("图片上传阶段耗时: {} ms", uploadCostTime);
+        return new StoredParse(mdContent, blocks, images.keySet(), imageFileKeys, images, imageFileKeys.size() == images.size(), uploadCostTime);
+    }
+
+    /**
+     * 解析结果就绪后的公共流程：文本清洗、图片路径替换、语义增强、写入 Dify
+     */
+    private IngestResponse completeIngest(IngestRequest request, UUID taskId, DifyDatasetDetail dataset, StoredParse stored,
+                                          IngestResponse.IngestResponseBuilder responseBuilder, long totalStartTime) throws Exception {
+        try {
+            // 6.0 文档块：MinerU content_list 已转换的直接使用，其余来源单遍切分 Markdown
+            List<DocumentBlock> blocks = stored.blocks() != null ? stored.blocks() : DocumentBlocks.fromMarkdown(stored.mdContent());
             
-            // 5.1 保存 Markdown 到本地（如果启用）
-            saveMdToTempIfEnabled(mdContent, request.getFileName(), taskId);
+            // 6.1 清洗文本（修复康熙部首问题）
+            TextCleaningUtils.cleanBlocks(blocks);
+            log.info("文本清洗完成，文档块数量={}, 来源: {}", blocks.size(), stored.blocks() != null ? "content_list" : "markdown");
             
-            // 6. 处理图片：替换 markdown 中的临时路径为真实 MinIO URL
-            String markdownWithRealUrls = replaceImagePaths(mdContent, images, taskId);
+            // 6.2 保存 Markdown 到本地（如果启用）
+            saveMdToTempIfEnabled(blocks, request.getFileName(), taskId);
+            
+            // 6.3 替换图片块中的临时路径为真实 MinIO URL
+            replaceImagePaths(blocks, stored.imageFileKeys(), taskId);
             
             // 7. 语义增强处理
             long vlmStartTime = System.currentTimeMillis();
-            String finalMarkdown = performSemanticEnrichment(markdownWithRealUrls, getImageRealUrls(images), request.getEnableVlm(), dataset);
-            vlmCostTime = System.currentTimeMillis() - vlmStartTime;
+            Map<String, String> imageUrls = getImageRealUrls(stored.imageFileKeys());
+            Map<String, ParsedImage> localImages = new HashMap<>();
+            stored.images().forEach((name, image) -> {
+                if (imageUrls.containsKey(name)) {
+                    localImages.put(imageUrls.get(name), image);
+                }
+            });
+            VlmCacheStats vlmCacheStats = new VlmCacheStats();
+            String finalMarkdown = performSemanticEnrichment(blocks, imageUrls, localImages, request.getEnableVlm(), dataset, vlmCacheStats);
+            long vlmCostTime = System.currentTimeMillis() - vlmStartTime;
+            if (vlmCacheStats.getLookups() > 0) {
+                logInfo(taskId, "VLM 结果缓存", String.format("命中 %d/%d (%.1f%%), 节省 VLM 耗时: %d ms",
+                        vlmCacheStats.getHits(), vlmCacheStats.getLookups(), vlmCacheStats.getHitRatio() * 100, vlmCacheStats.getSavedTime()));
+            }
             
             // 7.1 收集 VLM 失败图片
             List<String> vlmFailedImages = semanticTextProcessor.getVlmFailedImages();
@@ -123,41 +306,43 @@ public class DocumentIngestService {
             
             // 8. 调用 Dify API 写入知识库
             DifyCreateDocumentRequest difyRequest = buildDifyRequest(request, finalMarkdown, dataset);
-            DifyCreateDocumentResponse difyResponse = difyClient.createDocument(request.getDatasetId(), difyRequest);
-            
-            // 9. 清理临时文件
-            cleanupTempFiles(downloadedFile, pdfFile);
+            // 超时按 UTF-8 请求体大小推算（中文按 3 字节估算）
+            DifyCreateDocumentResponse difyResponse = difyClient.createDocument(request.getDatasetId(), difyRequest,
+                    timeoutPolicy.difyTimeout(finalMarkdown.length() * 3L));
             
-            // 10. 返回结果
+            // 9. 返回结果
             long totalCostTime = System.currentTimeMillis() - totalStartTime;
             
-            IngestResponse response = IngestResponse.builder()
+            return responseBuilder
                     .success(true)
                     .fileIds(Collections.singletonList(difyResponse.getDocument().getId()))
                     .stats(IngestResponse.Stats.builder()
-                            .imageCount(images != null ? images.size() : 0)
+                            .imageCount(stored.imageNames().size())
                             .build())
                     .vlmCostTime(vlmCostTime)
-                    .mineruCostTime(mineruCostTime)
-                    .downloadCostTime(downloadCostTime)
+                    .imageUploadCostTime(stored.uploadCostTime())
+                    .vlmCacheLookups(vlmCacheStats.getLookups())
+                    .vlmCacheHits(vlmCacheStats.getHits())
+                    .vlmCacheSavedTime(vlmCacheStats.getSavedTime())
                     .totalCostTime(totalCostTime)
-                    .fileSize(fileSize)
                     .vlmFailedImages(vlmFailedImages)
                     .build();
-            
-            return response;
-                    
-        } catch (Exception e) {
-            log.error("文档入库失败", e);
-            logError(taskId, "文档入库失败", e.getMessage());
-            return IngestResponse.builder()
-                    .success(false)
-                    .errorMsg(e.getMessage())
-                    .fileIds(Collections.emptyList())
-                    .build();
+        } finally {
+            // 图片临时文件用于分拣与 VLM 分析，入库流程结束后删除
+            stored.images().values().forEach(ParsedImage::delete);
         }
     }
 
+    private IngestResponse failure(UUID taskId, Throwable e) {
+        log.error("文档入库失败", e);
+        logError(taskId, "文档入库失败", e.getMessage());
+        return IngestResponse.builder()
+                .success(false)
+                .errorMsg(e.getMessage())
+                .fileIds(Collections.emptyList())
+                .build();
+    }
+
     /**
      * 前置校验：查询 Dataset 配置并校验规则
      * 
@@ -191,142 +376,167 @@ public class DocumentIngestService {
     }
 
     /**
-     * 下载文件到本地临时目录
+     * PDF 且开启流式上传时打开流式下载，否则返回 null 走落盘下载
      */
-    private File downloadFile(String fileUrl, String fileName) throws IOException {
-        log.info("开始下载文件: {}", fileUrl);
+    private FileDownloadService.StreamingDownload openStreamingIfEnabled(IngestRequest request) throws IOException {
+        AppProperties.MineruConfig config = appProperties.getMineru();
+        if (!Boolean.TRUE.equals(config.getStreamingUpload()) || !"pdf".equalsIgnoreCase(request.getFileType())) {
+            return null;
+        }
+        return fileDownloadService.openStreaming(request.getFileUrl(), config.getStreamingMaxSize(), config.getStreamingBufferSize());
+    }
+
+    /**
+     * 确定解析引擎：请求指定优先，否则使用配置的默认引擎
+     */
+    private String resolveParseEngine(IngestRequest request) {
+        String engine = request.getParseEngine() != null && !request.getParseEngine().isBlank()
+                ? request.getParseEngine() : appProperties.getFastPath().getDefaultEngine();
+        return engine != null ? engine.trim().toLowerCase() : PARSE_ENGINE_MINERU;
+    }
+
+    /**
+     * PDFBox 快速提取（不经过 MinerU）
+     * pdfbox 引擎直接尝试；auto 引擎仅在预检判定有完整文本层、无需密码且内嵌图片不超过上限时尝试。
+     * 质量校验未通过时返回 null，由调用方回退 MinerU
+     */
+    private StoredParse extractTextIfEligible(IngestRequest request, String parseEngine, PdfPreflightReport preflight,
+                                              File downloadedFile, UUID taskId) {
+        if (downloadedFile == null || !"pdf".equalsIgnoreCase(request.getFileType())) {
+            return null;
+        }
+        if (PARSE_ENGINE_AUTO.equals(parseEngine)) {
+            if (preflight == null || !Boolean.TRUE.equals(preflight.getHasTextLayer())
+                    || Boolean.TRUE.equals(preflight.getPasswordProtected())
+                    || preflight.getImageCount() == null
+                    || preflight.getImageCount() > appProperties.getFastPath().getMaxImages()) {
+                return null;
+            }
+        } else if (!PARSE_ENGINE_PDFBOX.equals(parseEngine)) {
+            return null;
+        }
         
-        Request request = new Request.Builder()
-                .url(fileUrl)
-                .build();
+        long startTime = System.currentTimeMillis();
+        String markdown = pdfTextExtractor.extract(downloadedFile);
+        long costTime = System.currentTimeMillis() - startTime;
+        if (markdown == null) {
+            logWarn(taskId, "PDFBox 快速提取质量不达标，回退 MinerU", String.format("引擎: %s, 耗时: %d ms", parseEngine, costTime));
+            return null;
+        }
+        logInfo(taskId, "PDFBox 快速提取完成", String.format("引擎: %s, markdown 长度: %d, 耗时: %d ms", parseEngine, markdown.length(), costTime));
+        return new StoredParse(markdown, null, Set.of(), Map.of(), Map.of(), true, 0);
+    }
+
+    /**
+     * TXT、Markdown、DOCX 原生提取为 Markdown，内嵌图片照常上传 MinIO
+     * 类型不支持或 DOCX 内容超出支持范围时返回 null，由调用方走格式转换 + MinerU
+     */
+    private StoredParse extractNativeIfSupported(IngestRequest request, File downloadedFile, UUID taskId) {
+        if (downloadedFile == null || !nativeDocumentExtractor.supports(request.getFileType())) {
+            return null;
+        }
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("下载文件失败: " + response.code());
-            }
-            
-            File tempFile = Files.createTempFile("dify-ingest-", "-" + fileName).toFile();
-            
-            try (InputStream inputStream = response.body().byteStream();
-                 FileOutputStream outputStream = new FileOutputStream(tempFile)) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-            }
-            
-            log.info("文件下载完成: {}, 大小: {} bytes", tempFile.getAbsolutePath(), tempFile.length());
-            return tempFile;
+        long startTime = System.currentTimeMillis();
+        NativeDocumentExtractor.Extracted extracted = nativeDocumentExtractor.extract(downloadedFile, request.getFileType());
+        long costTime = System.currentTimeMillis() - startTime;
+        if (extracted == null) {
+            logWarn(taskId, "原生提取不支持该文档内容，回退 MinerU", String.format("类型: %s, 耗时: %d ms", request.getFileType(), costTime));
+            return null;
         }
+        logInfo(taskId, "原生提取完成", String.format("类型: %s, markdown 长度: %d, 图片数量: %d, 耗时: %d ms",
+                request.getFileType(), extracted.markdown().length(), extracted.images().size(), costTime));
+        return storeImages(extracted.markdown(), null, extracted.images(), taskId);
     }
 
     /**
      * 格式转换（如需要）
+     * Office 文档经 LibreOffice 进程池转换为 PDF，转换不可用时直接使用原文件
      */
-    private File convertToPdfIfNeeded(File file, String fileType) {
+    private File convertToPdfIfNeeded(File file, String fileType, String sha256) throws IOException {
         if ("pdf".equalsIgnoreCase(fileType)) {
             return file;
         }
         
-        log.warn("暂不支持 {} 格式转换，直接使用原文件", fileType);
-        return file;
+        if (!officeConversionService.supports(fileType)) {
+            log.warn("暂不支持 {} 格式转换，直接使用原文件", fileType);
+            return file;
+        }
+        return officeConversionService.convertToPdf(file, fileType, sha256);
     }
 
     /**
-     * 替换 Markdown 中的图片路径为真实 MinIO URL
+     * 上传图片到 MinIO
+     * 按内容哈希去重：数据库已有同哈希图片时直接复用，否则并发上传并批量写入图片记录
+     * 
+     * @return 图片名称 -> MinIO file_key（仅包含成功的图片）
      */
-    private String replaceImagePaths(String mdContent, Map<String, String> images, UUID taskId) {
-        if (mdContent == null || images == null || images.isEmpty()) {
-            log.info("无需替换图片路径");
-            return mdContent;
+    private Map<String, String> uploadImages(Map<String, ParsedImage> images, UUID taskId) {
+        if (images.isEmpty()) {
+            return new HashMap<>();
         }
         
-        log.info("开始替换图片路径，共 {} 张图片", images.size());
-        
-        String result = mdContent;
-        
         try {
-            List<String> imageNames = new ArrayList<>(images.keySet());
-            
-            List<IngestImage> ingestImages = ingestImageRepository.findByNameIn(imageNames);
-            Map<String, String> nameToFileKey = new HashMap<>();
-            for (IngestImage image : ingestImages) {
-                nameToFileKey.put(image.getName(), image.getFileKey());
-            }
+            logInfo(taskId, "开始上传图片", String.format("共 %d 张图片", images.size()));
             
-            log.info("从数据库查询到 {} 条图片记录", ingestImages.size());
+            Map<String, String> nameToFileKey = minioService.uploadImages(images.values());
+            int successCount = nameToFileKey.size();
             
-            // 如果数据库无记录，尝试上传图片到 MinIO
-            if (ingestImages.isEmpty() && !imageNames.isEmpty()) {
-                log.info("数据库无图片记录，开始上传到 MinIO");
-                logInfo(taskId, "开始上传图片", String.format("共 %d 张图片", imageNames.size()));
-                
-                int successCount = 0;
-                for (String imageName : imageNames) {
-                    try {
-                        String base64Data = images.get(imageName);
-                        String fileKey = minioService.uploadImage(imageName, base64Data);
-                        nameToFileKey.put(imageName, fileKey);
-                        successCount++;
-                    } catch (Exception e) {
-                        log.error("图片上传失败: {}", imageName, e);
-                    }
-                }
-                
-                log.info("图片上传完成: 成功 {}/{}", successCount, imageNames.size());
-                logInfo(taskId, "图片上传完成", String.format("成功 %d/%d", successCount, imageNames.size()));
-            }
+            log.info("图片上传完成: 成功 {}/{}", successCount, images.size());
+            logInfo(taskId, "图片上传完成", String.format("成功 %d/%d", successCount, images.size()));
+            return nameToFileKey;
+        } catch (Exception e) {
+            log.error("图片上传失败", e);
+            logError(taskId, "图片上传失败", e.getMessage());
+            return new HashMap<>();
+        }
+    }
 
-            // 替换图片真实路径到md
-            for (String imageName : imageNames) {
-                String fileKey = nameToFileKey.get(imageName);
-                if (fileKey != null) {
-                    String realUrl = appProperties.getMinio().getImgPathPrefix() + "/" + fileKey;
-                    String tempPath = "images/" + imageName;
-                    String pattern = "(!\\[.*?\\]\\()" + Pattern.quote(tempPath) + "(\\))";
-                    result = result.replaceAll(pattern, "$1" + realUrl + "$2");
-                    log.debug("替换图片路径: {} -> {}", tempPath, realUrl);
-                } else {
-                    logWarn(taskId, "图片替换失败", "未找到图片 " + imageName + " 的 file_key");
-                }
+    /**
+     * 替换图片块中的临时路径为真实 MinIO URL（按图片名称查表，不扫描全文）
+     */
+    private void replaceImagePaths(List<DocumentBlock> blocks, Map<String, String> nameToFileKey, UUID taskId) {
+        int replaced = 0;
+        Set<String> missing = new LinkedHashSet<>();
+        for (DocumentBlock block : blocks) {
+            String imagePath = block.getImagePath();
+            if (imagePath == null || !imagePath.startsWith("images/")) {
+                continue;
+            }
+            String imageName = imagePath.substring("images/".length());
+            String fileKey = nameToFileKey.get(imageName);
+            if (fileKey != null) {
+                block.setImagePath(appProperties.getMinio().getImgPathPrefix() + "/" + fileKey);
+                replaced++;
+            } else {
+                missing.add(imageName);
             }
-        } catch (Exception e) {
-            log.error("图片路径替换失败", e);
-            logError(taskId, "图片路径替换失败", e.getMessage());
         }
         
-        return result;
+        log.info("图片路径替换完成: 成功 {} 处, 未找到 file_key {} 张", replaced, missing.size());
+        for (String imageName : missing) {
+            logWarn(taskId, "图片替换失败", "未找到图片 " + imageName + " 的 file_key");
+        }
     }
 
     /**
      * 语义增强处理
      */
-    private String performSemanticEnrichment(String markdown, Map<String, String> imageUrls, Boolean enableVlm, DifyDatasetDetail dataset) {
+    private String performSemanticEnrichment(List<DocumentBlock> blocks, Map<String, String> imageUrls, Map<String, ParsedImage> localImages,
+                                             Boolean enableVlm, DifyDatasetDetail dataset, VlmCacheStats cacheStats) {
         boolean enableHeaderProcessing = "parent_child".equalsIgnoreCase(dataset.getDocForm());
-        return semanticTextProcessor.enrichMarkdown(markdown, imageUrls, Boolean.TRUE.equals(enableVlm), enableHeaderProcessing);
+        return semanticTextProcessor.enrichBlocks(blocks, imageUrls, localImages, Boolean.TRUE.equals(enableVlm), enableHeaderProcessing, cacheStats);
     }
 
 
 
     /**
-     * 查询图片真实 URL
+     * 图片真实 URL（图片名称 -> MinIO URL）
      */
-    private Map<String, String> getImageRealUrls(Map<String, String> images) {
+    private Map<String, String> getImageRealUrls(Map<String, String> nameToFileKey) {
         Map<String, String> urls = new HashMap<>();
-        
-        try {
-            List<String> imageNames = new ArrayList<>(images.keySet());
-            List<IngestImage> ingestImages = ingestImageRepository.findByNameIn(imageNames);
-            
-            for (IngestImage image : ingestImages) {
-                urls.put(image.getName(), image.getMinioUrl());
-            }
-        } catch (Exception e) {
-            log.error("查询图片真实 URL 失败", e);
+        for (Map.Entry<String, String> entry : nameToFileKey.entrySet()) {
+            urls.put(entry.getKey(), appProperties.getMinio().getImgPathPrefix() + "/" + entry.getValue());
         }
-        
         return urls;
     }
 
@@ -506,11 +716,12 @@ public class DocumentIngestService {
     /**
      * 保存 Markdown 到本地 temp 目录（调试用）
      */
-    private void saveMdToTempIfEnabled(String mdContent, String fileName, UUID taskId) {
+    private void saveMdToTempIfEnabled(List<DocumentBlock> blocks, String fileName, UUID taskId) {
         if (appProperties.getDebug() == null || !Boolean.TRUE.equals(appProperties.getDebug().getSaveMd())) {
             return;
         }
         
+        String mdContent = DocumentBlocks.toMarkdown(blocks);
         if (mdContent == null || mdContent.isEmpty()) {
             log.warn("Markdown 内容为空，跳过保存");
             return;
@@ -593,4 +804,19 @@ public class DocumentIngestService {
             taskLogRepository.save(log);
         }
     }
+
+    /**
+     * 已落地的解析结果
+     *
+     * @param mdContent MinerU 返回的 Markdown
+     * @param blocks MinerU content_list 转换的文档块，其他来源为 null（按 Markdown 切分）
+     * @param imageNames 图片名称
+     * @param imageFileKeys 图片名称 -> MinIO file_key（仅包含上传成功的图片）
+     * @param images 图片名称 -> 已解码的图片（临时文件在入库流程结束后删除；解析缓存命中时为空）
+     * @param complete 图片是否全部上传成功
+     * @param uploadCostTime 图片上传阶段耗时（毫秒，含图片记录写入）
+     */
+    private record StoredParse(String mdContent, List<DocumentBlock> blocks, Set<String> imageNames, Map<String, String> imageFileKeys,
+                               Map<String, ParsedImage> images, boolean complete, long uploadCostTime) {
+    }
 }
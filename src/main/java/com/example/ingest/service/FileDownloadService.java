@@ -0,0 +1,531 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.util.Hashes;
+import com.example.ingest.util.SpillableBuffer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * 文件下载服务
+ * 基于 NIO FileChannel 的流式下载：直接缓冲区落盘、HTTP Range 断点续传、边下载边计算 SHA-256
+ * 服务端支持 Range 且文件足够大时，拆分为多个字节区间并发下载到同一个预分配文件
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileDownloadService {
+
+    private final AppProperties appProperties;
+
+    @Qualifier("downloadExecutor")
+    private final Executor downloadExecutor;
+
+    private OkHttpClient httpClient;
+
+    private synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            AppProperties.DownloadConfig config = appProperties.getDownload();
+            // 读超时只约束两次数据包之间的间隔，连接中断后由断点续传兜底，无需再设置 30 分钟的超长超时
+            httpClient = new OkHttpClient.Builder()
+                    .connectTimeout(config.getConnectTimeout(), TimeUnit.SECONDS)
+                    .readTimeout(config.getReadTimeout(), TimeUnit.SECONDS)
+                    .build();
+        }
+        return httpClient;
+    }
+
+    /**
+     * 下载文件到本地临时目录
+     * 服务端支持 Range 且文件大小达到分片阈值时走多连接并发下载，否则单连接流式下载
+     *
+     * @param fileUrl 文件下载地址
+     * @param fileName 文件名称（用于临时文件后缀）
+     * @return 下载结果（本地文件、大小、SHA-256、耗时、吞吐量）
+     */
+    public DownloadResult download(String fileUrl, String fileName) throws IOException {
+        log.info("开始下载文件: {}", fileUrl);
+
+        AppProperties.DownloadConfig config = appProperties.getDownload();
+        if (config.getConnections() > 1) {
+            long totalLength = probeRangeLength(fileUrl);
+            int rangeCount = (int) Math.min(config.getConnections(), totalLength / config.getMinRangeSize());
+            if (rangeCount > 1) {
+                return downloadInRanges(fileUrl, fileName, totalLength, rangeCount);
+            }
+        }
+        return downloadSingleStream(fileUrl, fileName);
+    }
+
+    /**
+     * 打开流式下载：后台线程把响应体写入有界缓冲区，调用方边下载边消费，文件不落盘
+     * 消费方读得慢时缓冲区溢出到临时文件，下载线程不会被阻塞
+     * 文件大小未知或超过上限时返回 null，调用方应改用 {@link #download} 落盘下载（可续传、可并发）
+     *
+     * @param fileUrl 文件下载地址
+     * @param maxSize 允许流式处理的最大文件大小（字节）
+     * @param memoryLimit 缓冲区内存上限（字节）
+     * @return 流式下载句柄，使用完毕后必须关闭
+     */
+    public StreamingDownload openStreaming(String fileUrl, long maxSize, int memoryLimit) throws IOException {
+        Request request = new Request.Builder().url(fileUrl).build();
+        Response response = getHttpClient().newCall(request).execute();
+
+        long contentLength = response.isSuccessful() ? response.body().contentLength() : -1;
+        if (!response.isSuccessful() || contentLength < 0 || contentLength > maxSize) {
+            log.info("文件不满足流式处理条件（status={}, contentLength={}），改用落盘下载", response.code(), contentLength);
+            response.close();
+            return null;
+        }
+
+        log.info("开始流式下载文件: {}, 大小: {} bytes", fileUrl, contentLength);
+        SpillableBuffer buffer = new SpillableBuffer(memoryLimit);
+        CompletableFuture<DownloadResult> result = CompletableFuture.supplyAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            MessageDigest digest = Hashes.newSha256();
+            long size = 0;
+            byte[] chunk = new byte[appProperties.getDownload().getBufferSize()];
+            try (InputStream in = response.body().byteStream()) {
+                int n;
+                while ((n = in.read(chunk)) != -1) {
+                    buffer.write(chunk, 0, n);
+                    digest.update(chunk, 0, n);
+                    size += n;
+                }
+                buffer.finish();
+            } catch (IOException e) {
+                buffer.fail(e);
+                throw new CompletionException(e);
+            } finally {
+                response.close();
+            }
+
+            DownloadResult downloadResult = DownloadResult.builder()
+                    .size(size)
+                    .sha256(Hashes.hex(digest))
+                    .costTime(System.currentTimeMillis() - startTime)
+                    .connections(1)
+                    .build();
+            log.info("流式下载完成: 大小: {} bytes, 耗时: {} ms, 吞吐: {}, 溢出到磁盘: {} bytes",
+                    size, downloadResult.getCostTime(), downloadResult.formatThroughput(), buffer.getSpilledBytes());
+            return downloadResult;
+        }, downloadExecutor);
+
+        return new StreamingDownload(response, buffer, contentLength, result);
+    }
+
+    /**
+     * 单连接流式下载
+     * 连接中断时携带 Range 头从已写入位置续传，服务端不支持 Range 时从头重新下载
+     */
+    private DownloadResult downloadSingleStream(String fileUrl, String fileName) throws IOException {
+        AppProperties.DownloadConfig config = appProperties.getDownload();
+        long startTime = System.currentTimeMillis();
+        File tempFile = Files.createTempFile("dify-ingest-", "-" + fileName).toFile();
+        MessageDigest digest = Hashes.newSha256();
+        DownloadState state = new DownloadState();
+        int attempt = 0;
+
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+            while (true) {
+                try {
+                    fetch(fileUrl, channel, digest, state);
+                    break;
+                } catch (IOException e) {
+                    attempt++;
+                    if (!state.retriable || attempt > config.getMaxRetries()) {
+                        throw e;
+                    }
+                    log.warn("下载中断，已写入 {} bytes，第 {}/{} 次续传: {}",
+                            state.written, attempt, config.getMaxRetries(), e.getMessage());
+                    sleepBeforeRetry(config.getRetryBackoff() * attempt);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+
+        DownloadResult result = DownloadResult.builder()
+                .file(tempFile)
+                .size(state.written)
+                .sha256(Hashes.hex(digest))
+                .costTime(System.currentTimeMillis() - startTime)
+                .resumeCount(attempt)
+                .connections(1)
+                .build();
+        logCompleted(result);
+        return result;
+    }
+
+    /**
+     * 发起一次 HTTP 请求并把响应体顺序写入文件
+     * 已写入部分不为空时携带 Range 头，只请求剩余字节
+     */
+    private void fetch(String fileUrl, FileChannel channel, MessageDigest digest, DownloadState state) throws IOException {
+        Request.Builder builder = new Request.Builder().url(fileUrl);
+        if (state.written > 0) {
+            builder.header("Range", "bytes=" + state.written + "-");
+        }
+
+        try (Response response = getHttpClient().newCall(builder.build()).execute()) {
+            if (!response.isSuccessful()) {
+                state.retriable = isRetriable(response.code());
+                throw new IOException("下载文件失败: " + response.code());
+            }
+
+            if (state.written > 0 && response.code() != 206) {
+                log.warn("服务端不支持 Range 请求，从头重新下载");
+                state.written = 0;
+                digest.reset();
+            }
+            if (state.totalLength < 0) {
+                state.totalLength = resolveTotalLength(response);
+            }
+
+            channel.truncate(state.written);
+            // 写盘成功后再更新摘要和进度，保证续传时两者与文件内容一致
+            copyToChannel(response.body().source(), channel, state.written, digest, position -> state.written = position);
+        }
+
+        if (state.totalLength > 0 && state.written < state.totalLength) {
+            throw new IOException(String.format("下载不完整: %d/%d bytes", state.written, state.totalLength));
+        }
+    }
+
+    /**
+     * 多连接并发下载
+     * 预分配目标文件后按字节区间并发请求，各区间用定位写直接落盘，不在内存中拼接
+     * 并发写入无法按序计算摘要，下载完成后顺序读取一遍文件计算 SHA-256
+     */
+    private DownloadResult downloadInRanges(String fileUrl, String fileName, long totalLength, int rangeCount) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long rangeSize = (totalLength + rangeCount - 1) / rangeCount;
+        log.info("服务端支持 Range，分 {} 个区间并发下载，总大小: {} bytes", rangeCount, totalLength);
+
+        File tempFile = Files.createTempFile("dify-ingest-", "-" + fileName).toFile();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        AtomicInteger resumeCount = new AtomicInteger(0);
+
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+                raf.setLength(totalLength);
+            }
+
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < rangeCount; i++) {
+                    long start = i * rangeSize;
+                    long end = Math.min(totalLength, start + rangeSize) - 1;
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            resumeCount.addAndGet(fetchRange(fileUrl, channel, start, end, aborted));
+                        } catch (IOException e) {
+                            aborted.set(true);
+                            throw new CompletionException(e);
+                        }
+                    }, downloadExecutor));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            }
+        } catch (CompletionException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("并发下载失败: " + cause.getMessage(), cause);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+
+        DownloadResult result = DownloadResult.builder()
+                .file(tempFile)
+                .size(totalLength)
+                .sha256(hashFile(tempFile))
+                .costTime(System.currentTimeMillis() - startTime)
+                .resumeCount(resumeCount.get())
+                .connections(rangeCount)
+                .build();
+        logCompleted(result);
+        return result;
+    }
+
+    /**
+     * 下载单个字节区间 [start, end]，中断后从区间内已写入位置续传
+     *
+     * @return 续传次数
+     */
+    private int fetchRange(String fileUrl, FileChannel channel, long start, long end, AtomicBoolean aborted) throws IOException {
+        AppProperties.DownloadConfig config = appProperties.getDownload();
+        long[] position = {start};
+        int attempt = 0;
+
+        while (true) {
+            if (aborted.get()) {
+                throw new IOException("其他区间下载失败，放弃区间 " + start + "-" + end);
+            }
+            Request request = new Request.Builder()
+                    .url(fileUrl)
+                    .header("Range", "bytes=" + position[0] + "-" + end)
+                    .build();
+            boolean retriable = true;
+            try (Response response = getHttpClient().newCall(request).execute()) {
+                if (response.code() != 206) {
+                    retriable = isRetriable(response.code());
+                    throw new IOException("区间下载失败: " + response.code());
+                }
+                copyToChannel(response.body().source(), channel, position[0], null, p -> position[0] = p);
+                if (position[0] <= end) {
+                    throw new IOException(String.format("区间下载不完整: %d-%d，已写入至 %d", start, end, position[0]));
+                }
+                return attempt;
+            } catch (IOException e) {
+                attempt++;
+                if (!retriable || aborted.get() || attempt > config.getMaxRetries()) {
+                    throw e;
+                }
+                log.warn("区间 {}-{} 下载中断，从 {} 第 {}/{} 次续传: {}",
+                        start, end, position[0], attempt, config.getMaxRetries(), e.getMessage());
+                sleepBeforeRetry(config.getRetryBackoff() * attempt);
+            }
+        }
+    }
+
+    /**
+     * 探测文件大小（不下载文件内容）：优先 HEAD 请求的 Content-Length，不支持时退回 Range 探测
+     *
+     * @param fileUrl 文件下载地址
+     * @return 文件大小，无法获取时返回 -1
+     */
+    public long probeSize(String fileUrl) {
+        Request request = new Request.Builder().url(fileUrl).head().build();
+        try (Response response = getHttpClient().newCall(request).execute()) {
+            String contentLength = response.header("Content-Length");
+            if (response.isSuccessful() && contentLength != null) {
+                return Long.parseLong(contentLength.trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug("HEAD 探测文件大小失败: {}", e.getMessage());
+        }
+        return probeRangeLength(fileUrl);
+    }
+
+    /**
+     * 探测服务端是否支持 Range：请求首个字节，206 响应的 Content-Range 中带有文件总长度
+     *
+     * @return 文件总长度，不支持 Range 或探测失败时返回 -1
+     */
+    private long probeRangeLength(String fileUrl) {
+        Request request = new Request.Builder()
+                .url(fileUrl)
+                .header("Range", "bytes=0-0")
+                .build();
+        try (Response response = getHttpClient().newCall(request).execute()) {
+            if (response.code() != 206) {
+                return -1;
+            }
+            return resolveTotalLength(response);
+        } catch (IOException e) {
+            log.debug("Range 探测失败，使用单连接下载: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 把响应体写入文件的指定位置
+     * 每个缓冲区写盘成功后才更新摘要并回调新位置
+     *
+     * @return 写入结束后的文件位置
+     */
+    private long copyToChannel(BufferedSource source, FileChannel channel, long position,
+                               MessageDigest digest, LongConsumer onWritten) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(appProperties.getDownload().getBufferSize());
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            ByteBuffer digestView = digest != null ? buffer.duplicate() : null;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (digest != null) {
+                digest.update(digestView);
+            }
+            onWritten.accept(position);
+            buffer.clear();
+        }
+        return position;
+    }
+
+    /**
+     * 顺序读取文件计算 SHA-256
+     */
+    private String hashFile(File file) throws IOException {
+        MessageDigest digest = Hashes.newSha256();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(appProperties.getDownload().getBufferSize());
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return Hashes.hex(digest);
+    }
+
+    /**
+     * 解析文件总长度：206 响应取 Content-Range 中的总长度，200 响应取 Content-Length
+     */
+    private long resolveTotalLength(Response response) {
+        String contentRange = response.header("Content-Range");
+        if (response.code() == 206 && contentRange != null) {
+            int slash = contentRange.lastIndexOf('/');
+            if (slash > 0 && !contentRange.endsWith("*")) {
+                try {
+                    return Long.parseLong(contentRange.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    log.debug("无法解析 Content-Range: {}", contentRange);
+                }
+            }
+            return -1;
+        }
+        return response.body().contentLength();
+    }
+
+    /**
+     * 4xx 说明地址或权限有问题，重试无意义（408/429 除外）
+     */
+    private boolean isRetriable(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    private void sleepBeforeRetry(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("下载重试被中断", e);
+        }
+    }
+
+    private void logCompleted(DownloadResult result) {
+        log.info("文件下载完成: {}, 大小: {} bytes, 耗时: {} ms, 吞吐: {}, 连接数: {}, 续传次数: {}",
+                result.getFile().getAbsolutePath(), result.getSize(), result.getCostTime(),
+                result.formatThroughput(), result.getConnections(), result.getResumeCount());
+    }
+
+    /**
+     * 单连接下载的进度状态（跨续传保留）
+     */
+    private static class DownloadState {
+        long written = 0;
+        long totalLength = -1;
+        boolean retriable = true;
+    }
+
+    /**
+     * 流式下载句柄
+     */
+    public static class StreamingDownload implements Closeable {
+        private final Response response;
+        private final SpillableBuffer buffer;
+        private final long contentLength;
+        private final CompletableFuture<DownloadResult> result;
+
+        StreamingDownload(Response response, SpillableBuffer buffer, long contentLength, CompletableFuture<DownloadResult> result) {
+            this.response = response;
+            this.buffer = buffer;
+            this.contentLength = contentLength;
+            this.result = result;
+        }
+
+        /**
+         * 按下载顺序读取文件内容
+         */
+        public InputStream getInputStream() {
+            return buffer.getInputStream();
+        }
+
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        /**
+         * 等待下载线程结束，返回大小、SHA-256 与耗时（file 为 null）
+         */
+        public DownloadResult awaitResult() throws IOException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待流式下载结束时被中断", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+                throw new IOException("流式下载失败: " + cause.getMessage(), cause);
+            }
+        }
+
+        /**
+         * 关闭连接并删除溢出文件；消费方提前失败时会中断下载线程的读取
+         */
+        @Override
+        public void close() throws IOException {
+            response.close();
+            buffer.close();
+        }
+    }
+
+    /**
+     * 下载结果
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class DownloadResult {
+        private File file;           // 本地文件（流式下载时为 null）
+        private long size;           // 文件大小（字节）
+        private String sha256;       // 文件内容 SHA-256（十六进制）
+        private long costTime;       // 下载耗时（毫秒）
+        private int resumeCount;     // 断点续传次数
+        private int connections;     // 并发连接数
+
+        /**
+         * 吞吐量（字节/秒）
+         */
+        public long getThroughput() {
+            return costTime > 0 ? size * 1000 / costTime : size;
+        }
+
+        public String formatThroughput() {
+            return String.format("%.2f MB/s", getThroughput() / 1024.0 / 1024.0);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.ImageHandle;
+import com.example.ingest.util.ImageFingerprints;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * VLM 分析前的图片分拣
+ * 语义增强时从本地图片数据计算尺寸、灰度熵与感知哈希，并据此：
+ * 1. 跳过装饰性图片：边长过小（图标）、长宽比过大（分隔线）、尺寸较小且灰度熵过低（纯色块）
+ * 2. 近似重复图片（感知哈希距离不超过阈值，如各页重复的 Logo、相近截图）聚为一簇，只分析簇中第一张；
+ *    簇内其余图片内容并不相同（相同内容上传后 URL 相同，已合并为同一张），只复用描述，不复用 OCR 文字
+ * 无本地数据（解析缓存命中）或无法解码的图片按原逻辑逐张分析
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageTriageService {
+
+    private final AppProperties appProperties;
+
+    @Qualifier("imageTriageExecutor")
+    private final Executor imageTriageExecutor;
+
+    /**
+     * 并发计算图片指纹
+     *
+     * @param images 图片 URL -> 本地图片数据
+     * @return 图片 URL -> 指纹（仅包含可解码的图片）
+     */
+    public Map<String, ImageFingerprints.Fingerprint> fingerprint(Map<String, ? extends ImageHandle> images) {
+        Map<String, ImageFingerprints.Fingerprint> fingerprints = new HashMap<>();
+        if (!Boolean.TRUE.equals(appProperties.getVlm().getTriageEnabled()) || images.isEmpty()) {
+            return fingerprints;
+        }
+
+        Map<String, CompletableFuture<ImageFingerprints.Fingerprint>> futures = new LinkedHashMap<>();
+        images.forEach((name, image) -> futures.put(name, CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = image.openStream()) {
+                return ImageFingerprints.compute(in);
+            } catch (Exception e) {
+                log.debug("计算图片指纹失败: {}, {}", name, e.getMessage());
+                return null;
+            }
+        }, imageTriageExecutor)));
+        futures.forEach((name, future) -> {
+            ImageFingerprints.Fingerprint fingerprint = future.join();
+            if (fingerprint != null) {
+                fingerprints.put(name, fingerprint);
+            }
+        });
+        return fingerprints;
+    }
+
+    /**
+     * 分拣图片
+     *
+     * @param imageUrls 图片 URL（按文档顺序，已去重）
+     * @param fingerprints 图片 URL -> 指纹
+     * @return 分拣结果
+     */
+    public TriageResult triage(List<String> imageUrls, Map<String, ImageFingerprints.Fingerprint> fingerprints) {
+        AppProperties.VlmConfig config = appProperties.getVlm();
+        Set<String> skipped = new LinkedHashSet<>();
+        Map<String, String> representatives = new LinkedHashMap<>();
+        if (!Boolean.TRUE.equals(config.getTriageEnabled())) {
+            return new TriageResult(skipped, representatives);
+        }
+
+        List<String> clusterHeads = new ArrayList<>();
+        for (String url : imageUrls) {
+            ImageFingerprints.Fingerprint fingerprint = fingerprints.get(url);
+            if (fingerprint == null) {
+                continue;
+            }
+            if (isDecorative(fingerprint, config)) {
+                skipped.add(url);
+                continue;
+            }
+            String head = null;
+            for (String candidate : clusterHeads) {
+                if (ImageFingerprints.distance(fingerprints.get(candidate).hash(), fingerprint.hash()) <= config.getTriageHashDistance()) {
+                    head = candidate;
+                    break;
+                }
+            }
+            if (head != null) {
+                representatives.put(url, head);
+            } else {
+                clusterHeads.add(url);
+            }
+        }
+
+        log.info("图片分拣完成: 共 {} 张, 跳过装饰性 {} 张, 近似重复 {} 张, 待分析 {} 张",
+                imageUrls.size(), skipped.size(), representatives.size(), imageUrls.size() - skipped.size() - representatives.size());
+        return new TriageResult(skipped, representatives);
+    }
+
+    private boolean isDecorative(ImageFingerprints.Fingerprint fingerprint, AppProperties.VlmConfig config) {
+        int shortSide = Math.min(fingerprint.width(), fingerprint.height());
+        int longSide = Math.max(fingerprint.width(), fingerprint.height());
+        return shortSide < config.getTriageMinSide()
+                || (double) longSide / Math.max(1, shortSide) > config.getTriageMaxAspectRatio()
+                || (fingerprint.entropy() < config.getTriageMinEntropy() && longSide <= config.getTriageLowEntropyMaxSide());
+    }
+
+    /**
+     * 分拣结果
+     *
+     * @param skipped 跳过分析的装饰性图片 URL
+     * @param representatives 近似重复图片 URL -> 所在簇中实际分析的图片 URL（只复用其描述）
+     */
+    public record TriageResult(Set<String> skipped, Map<String, String> representatives) {
+    }
+}
@@ -107,6 +107,10 @@ public class IngestTaskService {
                 response.put("vlmCostTime", ingestResponse.getVlmCostTime());
                 response.put("mineruCostTime", ingestResponse.getMineruCostTime());
                 response.put("downloadCostTime", ingestResponse.getDownloadCostTime());
+                response.put("imageUploadCostTime", ingestResponse.getImageUploadCostTime());
+                response.put("vlmCacheLookups", ingestResponse.getVlmCacheLookups());
+                response.put("vlmCacheHits", ingestResponse.getVlmCacheHits());
+                response.put("vlmCacheSavedTime", ingestResponse.getVlmCacheSavedTime());
                 response.put("totalCostTime", ingestResponse.getTotalCostTime());
             } else {
                 updateTaskFailure(task.getId(), ingestResponse.getErrorMsg());
@@ -128,6 +132,7 @@ public class IngestTaskService {
     
     /**
      * 异步执行任务
+     * 远程 MinerU 模式下入库流程以 Future 形式提交后立即返回，解析期间不占用 ingest-task 线程；本地模式下在当前线程同步执行
      * 
      * @param taskId 任务 ID
      * @param request 入库请求
@@ -140,19 +145,21 @@ public class IngestTaskService {
         // 1. 更新状态为 PROCESSING
         updateTaskStatus(taskId, IngestTask.TaskStatus.PROCESSING, LocalDateTime.now(), null);
         
+        // 2. 执行文档入库，完成后更新任务结果；提交阶段抛出的异常（如线程池拒绝）同样记为失败，避免任务停留在 PROCESSING
         try {
-            // 2. 执行文档入库
-            IngestResponse response = documentIngestService.ingestDocument(request, IngestTask.ExecutionMode.ASYNC, taskId, dataset);
-            
-            // 3. 更新任务结果
-            if (response.isSuccess()) {
-                updateTaskSuccess(taskId, response);
-            } else {
-                updateTaskFailure(taskId, response.getErrorMsg());
-            }
-            
-        } catch (Exception e) {
-            log.error("任务执行失败: {}", taskId, e);
+            documentIngestService.ingestDocumentAsync(request, IngestTask.ExecutionMode.ASYNC, taskId, dataset)
+                    .whenComplete((response, e) -> {
+                        if (e != null) {
+                            log.error("任务执行失败: {}", taskId, e);
+                            updateTaskFailure(taskId, e.getMessage());
+                        } else if (response.isSuccess()) {
+                            updateTaskSuccess(taskId, response);
+                        } else {
+                            updateTaskFailure(taskId, response.getErrorMsg());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.error("任务提交失败: {}", taskId, e);
             updateTaskFailure(taskId, e.getMessage());
         }
     }
@@ -185,6 +192,10 @@ public class IngestTaskService {
             task.setVlmCostTime(response.getVlmCostTime());
             task.setMineruCostTime(response.getMineruCostTime());
             task.setDownloadCostTime(response.getDownloadCostTime());
+            task.setImageUploadCostTime(response.getImageUploadCostTime());
+            task.setVlmCacheLookups(response.getVlmCacheLookups());
+            task.setVlmCacheHits(response.getVlmCacheHits());
+            task.setVlmCacheSavedTime(response.getVlmCacheSavedTime());
             task.setTotalCostTime(response.getTotalCostTime());
             task.setFileSize(response.getFileSize());
             
@@ -1,30 +1,52 @@
 package com.example.ingest.service;
 
 import com.example.ingest.config.AppProperties;
+import com.example.ingest.entity.IngestImage;
+import com.example.ingest.model.ParsedImage;
 import com.example.ingest.repository.IngestImageRepository;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
-import java.util.Base64;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 /**
  * MinIO 文件上传服务
+ * 图片对象以内容 SHA-256 命名（uploadPath + sha256.扩展名），同一内容只上传一次：
+ * 已有记录的哈希直接复用；本节点并发上传同一哈希时只有一个线程上传，其余等待其结果；
+ * 跨节点并发时对象名相同、内容相同，重复写入无副作用，图片记录由 sha256 唯一索引去重
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MinioService {
-    
+
     private final AppProperties appProperties;
     private final IngestImageRepository ingestImageRepository;
+
+    @Qualifier("imageUploadExecutor")
+    private final Executor imageUploadExecutor;
+
+    /** 本节点在途的上传（sha256 -> 上传结果），图片记录写入后移除 */
+    private final Map<String, CompletableFuture<IngestImage>> inFlight = new ConcurrentHashMap<>();
+
     private MinioClient minioClient;
-    
-    private MinioClient getMinioClient() {
+
+    private synchronized MinioClient getMinioClient() {
         if (minioClient == null) {
             AppProperties.MinioConfig config = appProperties.getMinio();
             minioClient = MinioClient.builder()
@@ -35,49 +57,156 @@ public class MinioService {
         }
         return minioClient;
     }
-    
+
     /**
-     * 上传 base64 图片到 MinIO
-     * 
-     * @param imageName 图片名称
-     * @param base64Data base64 编码的图片数据
-     * @return MinIO 文件路径
+     * 并发上传已解码的图片到 MinIO，直接读取临时文件，不经过 base64 与内存字节数组
+     * 按内容哈希去重：已有记录的直接复用，其他文档正在上传的等待其结果，其余才上传；
+     * 同一文档的在途上传数受 upload-concurrency 限制，单张失败按 upload-max-retries 重试，
+     * 全部上传结束后批量写入图片记录
+     *
+     * @param images 已解码的图片
+     * @return 图片名称 -> MinIO 文件路径（仅包含上传成功的图片）
      */
-    public String uploadImage(String imageName, String base64Data) {
-        try {
-            // 移除 data:image/xxx;base64, 前缀和所有空白字符
-            String cleanBase64 = base64Data;
-            if (base64Data.contains(",")) {
-                cleanBase64 = base64Data.substring(base64Data.indexOf(",") + 1);
+    public Map<String, String> uploadImages(Collection<ParsedImage> images) {
+        // 1. 文档内相同内容的图片只处理一次
+        Map<String, ParsedImage> byHash = new LinkedHashMap<>();
+        for (ParsedImage image : images) {
+            byHash.putIfAbsent(image.getSha256(), image);
+        }
+
+        // 2. 复用已有记录
+        Map<String, String> hashToFileKey = new LinkedHashMap<>();
+        for (IngestImage record : ingestImageRepository.findBySha256In(new ArrayList<>(byHash.keySet()))) {
+            hashToFileKey.put(record.getSha256(), record.getFileKey());
+        }
+
+        // 3. 上传缺失的哈希，本节点已在上传的哈希等待其结果
+        Semaphore permits = new Semaphore(Math.max(1, appProperties.getMinio().getUploadConcurrency()));
+        Map<String, CompletableFuture<IngestImage>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<IngestImage>> awaited = new LinkedHashMap<>();
+        for (Map.Entry<String, ParsedImage> entry : byHash.entrySet()) {
+            String sha256 = entry.getKey();
+            if (hashToFileKey.containsKey(sha256)) {
+                continue;
+            }
+            CompletableFuture<IngestImage> upload = new CompletableFuture<>();
+            CompletableFuture<IngestImage> running = inFlight.putIfAbsent(sha256, upload);
+            if (running != null) {
+                awaited.put(sha256, running);
+                continue;
+            }
+            owned.put(sha256, upload);
+            permits.acquireUninterruptibly();
+            CompletableFuture
+                    .supplyAsync(() -> uploadWithRetry(entry.getValue()), imageUploadExecutor)
+                    .whenComplete((record, e) -> {
+                        permits.release();
+                        if (e != null) {
+                            upload.completeExceptionally(e);
+                        } else {
+                            upload.complete(record);
+                        }
+                    });
+        }
+
+        List<IngestImage> records = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<IngestImage>> entry : owned.entrySet()) {
+            try {
+                IngestImage record = entry.getValue().join();
+                records.add(record);
+                hashToFileKey.put(entry.getKey(), record.getFileKey());
+            } catch (CompletionException e) {
+                // 失败原因已在 uploadWithRetry 中记录
             }
-            cleanBase64 = cleanBase64.replaceAll("\\s+", "");
-            
-            byte[] imageBytes = Base64.getDecoder().decode(cleanBase64);
-            String uploadPath = appProperties.getMinio().getUploadPath();
-            String fileKey = uploadPath + UUID.randomUUID() + "_" + imageName;
-            
-            getMinioClient().putObject(
-                    PutObjectArgs.builder()
-                            .bucket(appProperties.getMinio().getBucketName())
-                            .object(fileKey)
-                            .stream(new ByteArrayInputStream(imageBytes), imageBytes.length, -1)
-                            .contentType(getContentType(imageName))
-                            .build()
-            );
-            
-            // 保存到数据库
-            String mimetype = getContentType(imageName);
-            String minioUrl = appProperties.getMinio().getImgPathPrefix() + "/" + fileKey;
-            ingestImageRepository.insertImage(UUID.randomUUID(), imageName, fileKey, minioUrl, imageBytes.length, mimetype);
-            
-            log.debug("图片上传成功: {} -> {}", imageName, fileKey);
-            return fileKey;
+        }
+
+        // 4. 批量写入图片记录（哈希已存在时忽略）；记录写入失败不影响已上传对象的使用
+        try {
+            ingestImageRepository.batchInsert(records);
         } catch (Exception e) {
-            log.error("图片上传失败: {}", imageName, e);
-            throw new RuntimeException("图片上传失败: " + e.getMessage(), e);
+            log.error("批量写入图片记录失败: {} 条", records.size(), e);
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+
+        for (Map.Entry<String, CompletableFuture<IngestImage>> entry : awaited.entrySet()) {
+            try {
+                hashToFileKey.put(entry.getKey(), entry.getValue().join().getFileKey());
+            } catch (CompletionException e) {
+                log.warn("等待其他任务上传的图片失败: {}", entry.getKey());
+            }
+        }
+        log.info("图片上传完成: 去重后 {} 张, 复用 {} 张, 上传 {}/{} 张, 等待其他任务 {} 张",
+                byHash.size(), byHash.size() - owned.size() - awaited.size(), records.size(), owned.size(), awaited.size());
+
+        Map<String, String> nameToFileKey = new LinkedHashMap<>();
+        for (ParsedImage image : images) {
+            String fileKey = hashToFileKey.get(image.getSha256());
+            if (fileKey != null) {
+                nameToFileKey.put(image.getName(), fileKey);
+            }
+        }
+        return nameToFileKey;
+    }
+
+    /**
+     * 上传单张图片，失败时重新打开临时文件重试
+     *
+     * @return 待写入的图片记录
+     */
+    private IngestImage uploadWithRetry(ParsedImage image) {
+        AppProperties.MinioConfig config = appProperties.getMinio();
+        String imageName = image.getName();
+        String fileKey = buildFileKey(image.getSha256(), imageName);
+        String mimetype = getContentType(imageName);
+        int maxRetries = Math.max(0, config.getUploadMaxRetries());
+
+        for (int attempt = 0; ; attempt++) {
+            try (InputStream in = image.openStream()) {
+                getMinioClient().putObject(
+                        PutObjectArgs.builder()
+                                .bucket(config.getBucketName())
+                                .object(fileKey)
+                                .stream(in, image.getSize(), -1)
+                                .contentType(mimetype)
+                                .build()
+                );
+                log.debug("图片上传成功: {} -> {}", imageName, fileKey);
+
+                IngestImage record = new IngestImage();
+                record.setId(UUID.randomUUID());
+                record.setName(imageName);
+                record.setFileKey(fileKey);
+                record.setMinioUrl(config.getImgPathPrefix() + "/" + fileKey);
+                record.setSize(image.getSize());
+                record.setMimetype(mimetype);
+                record.setSha256(image.getSha256());
+                return record;
+            } catch (Exception e) {
+                if (attempt >= maxRetries) {
+                    log.error("图片上传失败: {}, 已重试 {} 次", imageName, attempt, e);
+                    throw new RuntimeException("图片上传失败: " + e.getMessage(), e);
+                }
+                log.warn("图片上传失败，准备重试 ({}/{}): {}, {}", attempt + 1, maxRetries, imageName, e.getMessage());
+                try {
+                    Thread.sleep(config.getUploadRetryBackoff() * (attempt + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("图片上传被中断: " + imageName, ie);
+                }
+            }
         }
     }
-    
+
+    /**
+     * 对象名：uploadPath + sha256 + 原扩展名
+     */
+    private String buildFileKey(String sha256, String imageName) {
+        int dot = imageName.lastIndexOf('.');
+        String extension = dot >= 0 ? imageName.substring(dot).toLowerCase() : "";
+        return appProperties.getMinio().getUploadPath() + sha256 + extension;
+    }
+
     private String getContentType(String fileName) {
         String lower = fileName.toLowerCase();
         if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
@@ -0,0 +1,173 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.ParsedImage;
+import com.example.ingest.util.DocxMarkdownConverter;
+import com.example.ingest.util.Hashes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+/**
+ * 原生格式提取服务
+ * TXT、Markdown 直接按文本读取，DOCX 流式解析为 Markdown 并将内嵌图片落地为临时文件，
+ * 均不经过格式转换与 MinerU；DOCX 内容超出支持范围时返回 null，由调用方回退到转换 + MinerU
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NativeDocumentExtractor {
+
+    private static final Set<String> TEXT_TYPES = Set.of("txt", "md", "markdown");
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("png", "jpg", "jpeg", "gif", "webp");
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    private final AppProperties appProperties;
+
+    /**
+     * 是否可原生提取该类型文件
+     *
+     * @param fileType 文件类型（扩展名）
+     */
+    public boolean supports(String fileType) {
+        AppProperties.NativeExtractConfig config = appProperties.getNativeExtract();
+        return Boolean.TRUE.equals(config.getEnabled()) && fileType != null
+                && config.getFileTypes().stream().anyMatch(fileType::equalsIgnoreCase);
+    }
+
+    /**
+     * 提取为 Markdown
+     *
+     * @param file 源文件
+     * @param fileType 文件类型（扩展名）
+     * @return 提取结果（图片为临时文件，调用方负责删除）；无法原生提取时返回 null
+     */
+    public Extracted extract(File file, String fileType) {
+        String type = fileType.toLowerCase(Locale.ROOT);
+        try {
+            if (TEXT_TYPES.contains(type)) {
+                return new Extracted(readText(file), Map.of());
+            }
+            if ("docx".equals(type)) {
+                return extractDocx(file);
+            }
+        } catch (IOException e) {
+            log.warn("原生提取失败，回退 MinerU: {}, {}", file.getName(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 按 UTF-8 严格解码读取，遇到非法字节时按 GB18030 重新读取；去除 BOM 并统一换行符
+     */
+    private String readText(File file) throws IOException {
+        String text;
+        try {
+            text = read(file, StandardCharsets.UTF_8);
+        } catch (CharacterCodingException e) {
+            log.info("文件不是 UTF-8 编码，按 GB18030 读取: {}", file.getName());
+            text = read(file, GB18030);
+        }
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        return text.replace("\r\n", "\n").replace('\r', '\n');
+    }
+
+    private String read(File file, Charset charset) throws IOException {
+        StringBuilder text = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+        char[] buffer = new char[8192];
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()),
+                charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)))) {
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, n);
+            }
+        }
+        return text.toString();
+    }
+
+    private Extracted extractDocx(File file) throws IOException {
+        Map<String, ParsedImage> images = new LinkedHashMap<>();
+        try (ZipFile docx = new ZipFile(file)) {
+            String markdown = DocxMarkdownConverter.convert(docx, (mediaName, data) -> spool(mediaName, data, images));
+            if (markdown == null || markdown.isBlank()) {
+                log.info("DOCX 包含公式、图表、文本框等不支持的内容，回退 MinerU: {}", file.getName());
+                images.values().forEach(ParsedImage::delete);
+                return null;
+            }
+            return new Extracted(markdown, images);
+        } catch (IOException | RuntimeException e) {
+            images.values().forEach(ParsedImage::delete);
+            throw e;
+        }
+    }
+
+    /**
+     * 图片写入临时文件并以内容哈希命名，同一图片多次引用只保留一份
+     *
+     * @return 图片名称；格式不支持时返回 null
+     */
+    private String spool(String mediaName, InputStream data, Map<String, ParsedImage> images) throws IOException {
+        String extension = mediaName.substring(mediaName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        if (!IMAGE_EXTENSIONS.contains(extension)) {
+            return null;
+        }
+
+        File file = Files.createTempFile("dify-ingest-img-", "." + extension).toFile();
+        MessageDigest digest = Hashes.newSha256();
+        long size;
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file.toPath()), digest)) {
+            size = data.transferTo(out);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+
+        String sha256 = Hashes.hex(digest);
+        String imageName = sha256 + "." + extension;
+        if (images.containsKey(imageName)) {
+            file.delete();
+        } else {
+            images.put(imageName, ParsedImage.builder()
+                    .name(imageName)
+                    .file(file)
+                    .size(size)
+                    .sha256(sha256)
+                    .build());
+        }
+        return imageName;
+    }
+
+    /**
+     * 提取结果
+     *
+     * @param markdown Markdown 文本，图片以 images/{名称} 引用
+     * @param images 图片名称 -> 图片临时文件
+     */
+    public record Extracted(String markdown, Map<String, ParsedImage> images) {
+    }
+}
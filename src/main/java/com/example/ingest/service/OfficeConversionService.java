@@ -0,0 +1,183 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.util.DiskLruCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFormat;
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.local.LocalConverter;
+import org.jodconverter.local.office.LocalOfficeManager;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Office 文档转 PDF 服务
+ * 启动时拉起常驻 LibreOffice 进程池（JODConverter），转换任务在进程间排队复用，
+ * 单个进程完成一定次数转换后自动重启以回收内存；转换结果按源文件内容哈希缓存到本地磁盘
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OfficeConversionService {
+
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+
+    private volatile LocalOfficeManager officeManager;
+    private volatile DiskLruCache cache;
+
+    /**
+     * 启动 LibreOffice 进程池，启动失败（未安装等）时禁用转换，原文件直接交给 MinerU
+     */
+    @PostConstruct
+    public void start() {
+        AppProperties.OfficeConfig config = appProperties.getOffice();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            log.info("Office 转换未启用");
+            return;
+        }
+
+        int[] ports = new int[config.getPoolSize()];
+        for (int i = 0; i < ports.length; i++) {
+            ports[i] = config.getBasePort() + i;
+        }
+
+        LocalOfficeManager.Builder builder = LocalOfficeManager.builder()
+                .portNumbers(ports)
+                .taskExecutionTimeout(config.getTaskTimeout())
+                .taskQueueTimeout(config.getQueueTimeout())
+                .maxTasksPerProcess(config.getMaxTasksPerProcess());
+        if (config.getOfficeHome() != null && !config.getOfficeHome().isBlank()) {
+            builder.officeHome(config.getOfficeHome());
+        }
+
+        try {
+            LocalOfficeManager manager = builder.build();
+            manager.start();
+            officeManager = manager;
+            log.info("LibreOffice 进程池已启动: 进程数={}, 端口={}, 单进程最大转换次数={}",
+                    ports.length, config.getBasePort(), config.getMaxTasksPerProcess());
+        } catch (Exception e) {
+            log.warn("LibreOffice 进程池启动失败，Office 文档将不做转换: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        LocalOfficeManager manager = officeManager;
+        officeManager = null;
+        if (manager != null) {
+            try {
+                manager.stop();
+                log.info("LibreOffice 进程池已停止");
+            } catch (OfficeException e) {
+                log.warn("停止 LibreOffice 进程池失败", e);
+            }
+        }
+    }
+
+    /**
+     * 是否可转换该类型文件
+     *
+     * @param fileType 文件类型（扩展名）
+     */
+    public boolean supports(String fileType) {
+        return officeManager != null && fileType != null && !"pdf".equalsIgnoreCase(fileType)
+                && DefaultDocumentFormatRegistry.getFormatByExtension(fileType.toLowerCase()) != null;
+    }
+
+    /**
+     * 转换为 PDF，相同内容的文件直接复用缓存
+     *
+     * @param source 源文件
+     * @param fileType 文件类型（扩展名）
+     * @param sha256 源文件内容 SHA-256
+     * @return 转换后的 PDF 临时文件（调用方负责删除，删除不影响缓存）
+     */
+    public File convertToPdf(File source, String fileType, String sha256) throws IOException {
+        Path cached = cache().get(sha256);
+        if (cached != null) {
+            counter("hit").increment();
+            log.info("Office 转换缓存命中: {}", sha256);
+            return linkToTemp(cached);
+        }
+
+        counter("miss").increment();
+        DocumentFormat sourceFormat = DefaultDocumentFormatRegistry.getFormatByExtension(fileType.toLowerCase());
+        Path converting = cache().createTempFile(sha256);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            LocalConverter.make(officeManager)
+                    .convert(source)
+                    .as(sourceFormat)
+                    .to(converting.toFile())
+                    .as(DefaultDocumentFormatRegistry.PDF)
+                    .execute();
+        } catch (OfficeException e) {
+            counter("error").increment();
+            Files.deleteIfExists(converting);
+            throw new IOException("Office 文档转换 PDF 失败: " + e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("ingest.office.conversion", "type", fileType.toLowerCase()));
+        }
+
+        // 先写临时文件再原子移动，并发转换同一文件时不会读到半截缓存
+        return linkToTemp(cache().put(sha256, converting));
+    }
+
+    /**
+     * 以硬链接方式取出缓存文件（不支持时复制），调用方删除临时文件不影响缓存
+     */
+    private File linkToTemp(Path cached) throws IOException {
+        Path temp = Files.createTempFile("office-", ".pdf");
+        Files.delete(temp);
+        try {
+            Files.createLink(temp, cached);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(cached, temp);
+        }
+        return temp.toFile();
+    }
+
+    /**
+     * 转换结果缓存，首次使用时按配置创建
+     */
+    private DiskLruCache cache() throws IOException {
+        DiskLruCache current = cache;
+        if (current == null) {
+            synchronized (this) {
+                if (cache == null) {
+                    AppProperties.OfficeConfig config = appProperties.getOffice();
+                    String dir = config.getCacheDir();
+                    Path path = dir != null && !dir.isBlank()
+                            ? Paths.get(dir)
+                            : Paths.get(System.getProperty("java.io.tmpdir"), "office-pdf-cache");
+                    cache = new DiskLruCache(path, ".pdf", config.getCacheMaxSizeMb() * 1024L * 1024L, evicted -> {
+                        counter("evict").increment(evicted);
+                        log.info("Office 转换缓存超出容量上限 {} MB，淘汰 {} 个文件", config.getCacheMaxSizeMb(), evicted);
+                    });
+                }
+                current = cache;
+            }
+        }
+        return current;
+    }
+
+    private Counter counter(String result) {
+        return meterRegistry.counter("ingest.office.cache", "result", result);
+    }
+}
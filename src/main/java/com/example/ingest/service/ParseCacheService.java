@@ -0,0 +1,162 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.entity.ParseCacheEntry;
+import com.example.ingest.model.DocumentBlock;
+import com.example.ingest.repository.ParseCacheRepository;
+import com.example.ingest.util.Hashes;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MinerU 解析结果缓存服务
+ * 以「文件内容 SHA-256 + MinerU 解析参数」寻址，重复入库同一文件时跳过 MinerU 解析与图片上传
+ * 缓存内容：MinerU 返回的 Markdown + 文档块（content_list 转换结果）+ 图片清单（图片名称 -> MinIO file_key）。
+ * PDF 流式上传（mineru.streaming-upload）时文件哈希要等下载结束才可知，而此时文件已边下载边交给 MinerU，
+ * 来不及在解析前查询缓存，因此流式上传的文件只写入缓存、不查询缓存
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ParseCacheService {
+
+    private final ParseCacheRepository parseCacheRepository;
+    private final AppProperties appProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 构建缓存键：SHA-256(文件内容哈希 | 解析参数)
+     *
+     * @param fileSha256 文件内容 SHA-256
+     * @return 缓存键
+     */
+    public String buildKey(String fileSha256) {
+        return Hashes.sha256(fileSha256 + "|" + describeParseOptions());
+    }
+
+    /**
+     * 查询缓存，未启用、未命中或读取失败时返回 null
+     *
+     * @param cacheKey 缓存键
+     * @return 缓存的解析结果
+     */
+    public CachedParse get(String cacheKey) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        try {
+            ParseCacheEntry entry = parseCacheRepository.findById(cacheKey).orElse(null);
+            if (entry == null) {
+                counter("miss").increment();
+                log.info("解析缓存未命中: {}", cacheKey);
+                return null;
+            }
+
+            parseCacheRepository.touch(cacheKey);
+            counter("hit").increment();
+
+            Map<String, String> imageFileKeys = entry.getImageManifest() == null
+                    ? Map.of()
+                    : objectMapper.readValue(entry.getImageManifest(), new TypeReference<Map<String, String>>() {});
+            List<DocumentBlock> blocks = entry.getBlocks() == null
+                    ? null
+                    : objectMapper.readValue(entry.getBlocks(), new TypeReference<List<DocumentBlock>>() {});
+            log.info("解析缓存命中: {}, 图片数量={}, 历史命中次数={}", cacheKey, imageFileKeys.size(), entry.getHitCount());
+
+            return CachedParse.builder()
+                    .mdContent(entry.getMdContent())
+                    .blocks(blocks)
+                    .imageFileKeys(imageFileKeys)
+                    .build();
+        } catch (Exception e) {
+            counter("error").increment();
+            log.warn("读取解析缓存失败，回退到 MinerU 解析: {}", cacheKey, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存，并按容量上限淘汰最久未访问的条目
+     * 写入失败只记录日志，不影响入库主流程
+     *
+     * @param cacheKey 缓存键
+     * @param fileSha256 文件内容 SHA-256
+     * @param mdContent MinerU 返回的 Markdown
+     * @param blocks 文档块（须在清洗、路径替换等修改之前写入），未返回 content_list 时为 null
+     * @param imageFileKeys 图片名称 -> MinIO file_key
+     */
+    public void put(String cacheKey, String fileSha256, String mdContent, List<DocumentBlock> blocks, Map<String, String> imageFileKeys) {
+        if (!isEnabled() || mdContent == null) {
+            return;
+        }
+
+        try {
+            String manifest = objectMapper.writeValueAsString(imageFileKeys);
+            String blocksJson = blocks != null ? objectMapper.writeValueAsString(blocks) : null;
+            long sizeBytes = mdContent.getBytes(StandardCharsets.UTF_8).length
+                    + manifest.getBytes(StandardCharsets.UTF_8).length
+                    + (blocksJson != null ? blocksJson.getBytes(StandardCharsets.UTF_8).length : 0);
+
+            parseCacheRepository.upsert(cacheKey, fileSha256, describeParseOptions(), mdContent, manifest, blocksJson, sizeBytes);
+
+            long maxBytes = appProperties.getParseCache().getMaxSizeMb() * 1024L * 1024L;
+            int evicted = parseCacheRepository.evictBeyond(maxBytes);
+            if (evicted > 0) {
+                counter("evict").increment(evicted);
+                log.info("解析缓存超出容量上限 {} MB，淘汰 {} 条", appProperties.getParseCache().getMaxSizeMb(), evicted);
+            }
+            log.info("解析结果已写入缓存: {}, 大小: {} bytes", cacheKey, sizeBytes);
+        } catch (Exception e) {
+            log.warn("写入解析缓存失败: {}", cacheKey, e);
+        }
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(appProperties.getParseCache().getEnabled());
+    }
+
+    /**
+     * 影响 MinerU 解析结果的参数，任一变化都会产生不同的缓存键
+     */
+    private String describeParseOptions() {
+        AppProperties.MineruConfig config = appProperties.getMineru();
+        String options = String.format("parseMethod=%s,backend=%s,formula=%s,table=%s,language=%s",
+                config.getParseMethod(), config.getBackend(),
+                config.getEnableFormula(), config.getEnableTable(), config.getLanguage());
+        // auto 时实际解析方法由预检按文件内容决定，开关变化同样影响解析结果
+        if ("auto".equalsIgnoreCase(config.getParseMethod())
+                && Boolean.TRUE.equals(appProperties.getPreflight().getApplyParseMethod())) {
+            options += ",preflightParseMethod=true";
+        }
+        return options;
+    }
+
+    private Counter counter(String result) {
+        return meterRegistry.counter("ingest.parse.cache", "result", result);
+    }
+
+
+    /**
+     * 缓存的解析结果
+     */
+    @lombok.Data
+    @lombok.Builder
+    public static class CachedParse {
+        private String mdContent;
+        private List<DocumentBlock> blocks;  // 旧条目或未返回 content_list 时为 null
+        private Map<String, String> imageFileKeys;  // 图片名称 -> MinIO file_key
+    }
+}
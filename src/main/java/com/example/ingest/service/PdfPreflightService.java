@@ -0,0 +1,262 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.PdfPreflightReport;
+import com.example.ingest.model.TaskCostRegression;
+import com.example.ingest.repository.IngestTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * PDF 预检服务
+ * 调用 MinerU 之前基于 PDFBox 分析页数、文本层、内嵌图片与加密情况，
+ * 并用历史任务拟合的线性回归预估 MinerU / VLM 耗时
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfPreflightService {
+
+    private final AppProperties appProperties;
+    private final IngestTaskRepository taskRepository;
+    private final FileDownloadService fileDownloadService;
+
+    private volatile TaskCostRegression cachedRegression;
+    private volatile long regressionFittedAt;  // 上次尝试拟合的时间（失败也记录），为 0 表示尚未拟合
+
+    /**
+     * 下载远程 PDF 并预检，预检完成后删除临时文件
+     *
+     * @param fileUrl 文件下载地址
+     * @param fileName 文件名称
+     * @param enableVlm 是否启用 VLM（影响耗时预估）
+     * @return 预检报告
+     */
+    public PdfPreflightReport analyze(String fileUrl, String fileName, boolean enableVlm) throws IOException {
+        FileDownloadService.DownloadResult download = fileDownloadService.download(fileUrl, fileName);
+        try {
+            return analyze(download.getFile(), enableVlm);
+        } finally {
+            Files.deleteIfExists(download.getFile().toPath());
+        }
+    }
+
+    /**
+     * 记录预检结果到任务
+     *
+     * @param taskId 任务 ID
+     * @param report 预检报告
+     */
+    public void saveToTask(UUID taskId, PdfPreflightReport report) {
+        if (taskId == null) {
+            return;
+        }
+        try {
+            taskRepository.updatePreflight(taskId, report.getPageCount(), report.getHasTextLayer(),
+                    report.getImageCount(), report.getEncrypted(), report.getEstimatedTotalCostTime());
+        } catch (Exception e) {
+            log.warn("记录预检结果失败: {}", taskId, e);
+        }
+    }
+
+    /**
+     * 预检 PDF
+     *
+     * @param pdfFile PDF 文件
+     * @param enableVlm 是否启用 VLM（影响耗时预估）
+     * @return 预检报告
+     */
+    public PdfPreflightReport analyze(File pdfFile, boolean enableVlm) {
+        long startTime = System.currentTimeMillis();
+        PdfPreflightReport report = PdfPreflightReport.builder()
+                .fileSize(pdfFile.length())
+                .encrypted(false)
+                .passwordProtected(false)
+                .build();
+
+        try (PDDocument document = PDDocument.load(pdfFile, MemoryUsageSetting.setupTempFileOnly())) {
+            report.setPageCount(document.getNumberOfPages());
+            report.setEncrypted(document.isEncrypted());
+            analyzeText(document, report);
+            report.setImageCount(countImages(document));
+        } catch (InvalidPasswordException e) {
+            report.setEncrypted(true);
+            report.setPasswordProtected(true);
+            log.warn("PDF 需要密码才能打开: {}", pdfFile.getName());
+        } catch (IOException e) {
+            log.warn("PDF 预检失败: {}, {}", pdfFile.getName(), e.getMessage());
+        }
+
+        estimate(report, enableVlm);
+        report.setCostTime(System.currentTimeMillis() - startTime);
+        log.info("PDF 预检完成: 页数={}, 文本层={}({}), 图片={}, 加密={}, 预估耗时={} ms, 预检耗时={} ms",
+                report.getPageCount(), report.getHasTextLayer(), report.getTextPageRatio(), report.getImageCount(),
+                report.getEncrypted(), report.getEstimatedTotalCostTime(), report.getCostTime());
+        return report;
+    }
+
+    /**
+     * 均匀抽样若干页提取文本，判断是否包含可用文本层
+     */
+    private void analyzeText(PDDocument document, PdfPreflightReport report) throws IOException {
+        AppProperties.PreflightConfig config = appProperties.getPreflight();
+        int pageCount = document.getNumberOfPages();
+        if (pageCount == 0) {
+            report.setHasTextLayer(false);
+            report.setTextPageRatio(0.0);
+            report.setAvgCharsPerPage(0);
+            report.setRecommendedParseMethod("auto");
+            return;
+        }
+
+        int samples = Math.min(pageCount, config.getSamplePages());
+        PDFTextStripper stripper = new PDFTextStripper();
+        int textPages = 0;
+        long totalChars = 0;
+        for (int i = 0; i < samples; i++) {
+            int page = (int) ((long) i * pageCount / samples) + 1;
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            int chars = countVisibleChars(stripper.getText(document));
+            totalChars += chars;
+            if (chars >= config.getMinCharsPerPage()) {
+                textPages++;
+            }
+        }
+
+        double ratio = (double) textPages / samples;
+        report.setTextPageRatio(Math.round(ratio * 100) / 100.0);
+        report.setAvgCharsPerPage((int) (totalChars / samples));
+        report.setHasTextLayer(ratio >= config.getTextLayerRatio());
+        // 文本层完整时直接提取文本即可，完全没有文本时只能 OCR，其余交给 MinerU 自动判断
+        report.setRecommendedParseMethod(ratio >= config.getTextLayerRatio() ? "txt" : textPages == 0 ? "ocr" : "auto");
+    }
+
+    private int countVisibleChars(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 统计内嵌图片数量（含表单 XObject 中的图片，同一图片对象只计一次）
+     */
+    private int countImages(PDDocument document) {
+        Set<Object> seen = new HashSet<>();
+        int count = 0;
+        for (var page : document.getPages()) {
+            count += countImages(page.getResources(), seen);
+        }
+        return count;
+    }
+
+    private int countImages(PDResources resources, Set<Object> seen) {
+        if (resources == null) {
+            return 0;
+        }
+        int count = 0;
+        for (COSName name : resources.getXObjectNames()) {
+            try {
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject == null || !seen.add(xObject.getCOSObject())) {
+                    continue;
+                }
+                if (xObject instanceof PDImageXObject) {
+                    count++;
+                } else if (xObject instanceof PDFormXObject form) {
+                    count += countImages(form.getResources(), seen);
+                }
+            } catch (IOException e) {
+                log.debug("读取 XObject 失败: {}", name.getName());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 基于历史任务回归预估耗时：MinerU 优先按页数回归，旧数据不足时按文件大小回归；VLM 按图片数量回归
+     */
+    private void estimate(PdfPreflightReport report, boolean enableVlm) {
+        TaskCostRegression regression = getRegression();
+        if (regression == null) {
+            return;
+        }
+        long minSamples = appProperties.getPreflight().getRegressionMinSamples();
+
+        Long mineru = null;
+        if (report.getPageCount() != null && samples(regression.getMineruPageSamples()) >= minSamples) {
+            mineru = predict(regression.getMineruPageSlope(), regression.getMineruPageIntercept(), report.getPageCount());
+        } else if (samples(regression.getMineruSizeSamples()) >= minSamples) {
+            mineru = predict(regression.getMineruSizeSlope(), regression.getMineruSizeIntercept(), report.getFileSize());
+        }
+
+        Long vlm = enableVlm ? null : 0L;
+        if (enableVlm) {
+            if (report.getImageCount() != null && samples(regression.getVlmImageSamples()) >= minSamples) {
+                vlm = predict(regression.getVlmImageSlope(), regression.getVlmImageIntercept(), report.getImageCount());
+            } else if (samples(regression.getVlmSizeSamples()) >= minSamples) {
+                vlm = predict(regression.getVlmSizeSlope(), regression.getVlmSizeIntercept(), report.getFileSize());
+            }
+        }
+
+        report.setEstimatedMineruCostTime(mineru);
+        report.setEstimatedVlmCostTime(vlm);
+        if (mineru != null && vlm != null) {
+            report.setEstimatedTotalCostTime(mineru + vlm);
+        }
+    }
+
+    private long samples(Long count) {
+        return count != null ? count : 0;
+    }
+
+    private Long predict(Double slope, Double intercept, Number x) {
+        if (slope == null || intercept == null || x == null) {
+            return null;
+        }
+        return Math.max(0L, Math.round(slope * x.doubleValue() + intercept));
+    }
+
+    /**
+     * 回归结果按配置时间缓存，避免每次预检都扫描任务表
+     * 是否重新拟合只看上次尝试的时间：拟合失败且无缓存时同样按刷新间隔推迟重试，不会每次预检都查库
+     */
+    private TaskCostRegression getRegression() {
+        AppProperties.PreflightConfig config = appProperties.getPreflight();
+        long now = System.currentTimeMillis();
+        if (regressionFittedAt == 0 || now - regressionFittedAt > config.getRegressionCacheSeconds() * 1000) {
+            try {
+                cachedRegression = taskRepository.fitCostRegression(config.getRegressionWindow());
+                regressionFittedAt = now;
+            } catch (Exception e) {
+                // 拟合失败时推迟重试，期间沿用上次结果或默认估算
+                regressionFittedAt = now;
+                log.warn("拟合历史耗时回归失败: {}", e.getMessage());
+            }
+        }
+        return cachedRegression;
+    }
+}
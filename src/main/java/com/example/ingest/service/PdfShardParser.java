@@ -0,0 +1,220 @@
+package com.example.ingest.service;
+
+import com.example.ingest.client.MineruClient;
+import com.example.ingest.client.MineruEndpointPool;
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.exception.MineruException;
+import com.example.ingest.model.MineruParseResponse;
+import com.example.ingest.model.ParsedImage;
+import com.example.ingest.model.PdfPreflightReport;
+import com.example.ingest.util.MarkdownShardMerger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PDF 分片解析服务
+ * 页数较多的 PDF 按固定页数拆分为多个分片，并发调用 MinerU 解析后按页序拼接，
+ * 避免单次 /file_parse 调用逼近读超时；页数不足阈值时直接整本解析
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfShardParser {
+
+    private final MineruClient mineruClient;
+    private final MineruEndpointPool endpointPool;
+    private final AppProperties appProperties;
+    private final TimeoutPolicy timeoutPolicy;
+
+    @Qualifier("mineruExecutor")
+    private final Executor mineruExecutor;
+
+    /**
+     * 解析 PDF，必要时分片并发解析
+     * 传入预检报告时直接使用其页数判断是否分片（不再加载 PDF 计数），并按预检建议选择 MinerU 解析方法
+     *
+     * @param pdfFile PDF 文件
+     * @param fileName 原始文件名
+     * @param preflight 该文件的预检报告，未预检时为 null
+     * @return 解析结果（分片时合并为单个文件结果）
+     */
+    public MineruParseResponse parse(File pdfFile, String fileName, PdfPreflightReport preflight) throws IOException {
+        AppProperties.MineruConfig config = appProperties.getMineru();
+        int threshold = config.getShardThresholdPages();
+        String parseMethod = resolveParseMethod(preflight);
+        Integer knownPages = preflight != null ? preflight.getPageCount() : null;
+        Integer knownImages = preflight != null ? preflight.getImageCount() : null;
+        if (threshold <= 0 || (knownPages != null && knownPages < threshold)) {
+            if (knownPages != null && threshold > 0) {
+                log.info("PDF 页数 {} 未达到分片阈值 {}，整本解析", knownPages, threshold);
+            }
+            return mineruClient.parsePdf(pdfFile, fileName, parseMethod, timeoutPolicy.mineruTimeout(knownPages, knownImages, pdfFile.length()));
+        }
+
+        List<File> shardFiles = new ArrayList<>();
+        Integer shardImages = null;
+        try {
+            try (PDDocument document = PDDocument.load(pdfFile, MemoryUsageSetting.setupTempFileOnly())) {
+                int pageCount = document.getNumberOfPages();
+                if (pageCount < threshold) {
+                    log.info("PDF 页数 {} 未达到分片阈值 {}，整本解析", pageCount, threshold);
+                    return mineruClient.parsePdf(pdfFile, fileName, parseMethod, timeoutPolicy.mineruTimeout(pageCount, knownImages, pdfFile.length()));
+                }
+                log.info("PDF 页数 {} 达到分片阈值 {}，按每片 {} 页拆分", pageCount, threshold, config.getShardPages());
+                shardFiles = split(document, fileName, config.getShardPages());
+                // 分片内图片分布未知，按页数比例分摊预检统计的图片数量
+                if (knownImages != null) {
+                    shardImages = (int) Math.ceil((double) knownImages * config.getShardPages() / pageCount);
+                }
+            }
+            return parseShards(shardFiles, fileName, parseMethod, shardConcurrency(config), config.getShardPages(), shardImages);
+        } finally {
+            for (File shardFile : shardFiles) {
+                Files.deleteIfExists(shardFile.toPath());
+            }
+        }
+    }
+
+    /**
+     * 同时在途的分片数：配置值与 MinerU 节点总容量取较小值
+     * 超出节点容量的分片只会阻塞在节点池上等待，白白占用 mineruExecutor 线程
+     */
+    private int shardConcurrency(AppProperties.MineruConfig config) {
+        int capacity = endpointPool.capacity();
+        if (config.getShardConcurrency() > capacity) {
+            log.debug("分片并发数 {} 超过 MinerU 节点总容量 {}，按节点容量并发", config.getShardConcurrency(), capacity);
+            return capacity;
+        }
+        return config.getShardConcurrency();
+    }
+
+    /**
+     * 配置的解析方法为 auto 时改用预检建议的方法：文本层完整时 txt，完全没有文本时 ocr；
+     * 返回 null 表示沿用配置
+     */
+    private String resolveParseMethod(PdfPreflightReport preflight) {
+        if (preflight == null || preflight.getRecommendedParseMethod() == null
+                || !"auto".equalsIgnoreCase(appProperties.getMineru().getParseMethod())
+                || !Boolean.TRUE.equals(appProperties.getPreflight().getApplyParseMethod())) {
+            return null;
+        }
+        return preflight.getRecommendedParseMethod();
+    }
+
+    /**
+     * 按页数拆分并保存为临时文件
+     */
+    private List<File> split(PDDocument document, String fileName, int shardPages) throws IOException {
+        Splitter splitter = new Splitter();
+        splitter.setSplitAtPage(shardPages);
+        splitter.setMemoryUsageSetting(MemoryUsageSetting.setupTempFileOnly());
+
+        List<File> shardFiles = new ArrayList<>();
+        List<PDDocument> shards = splitter.split(document);
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                File shardFile = Files.createTempFile("dify-ingest-shard-" + i + "-", ".pdf").toFile();
+                shardFiles.add(shardFile);
+                shards.get(i).save(shardFile);
+            }
+        } finally {
+            for (PDDocument shard : shards) {
+                shard.close();
+            }
+        }
+        log.info("PDF 拆分完成: {}, 分片数量: {}", fileName, shardFiles.size());
+        return shardFiles;
+    }
+
+    /**
+     * 并发解析所有分片，同一文档同时在途的分片数不超过 concurrency
+     */
+    private MineruParseResponse parseShards(List<File> shardFiles, String fileName, String parseMethod, int concurrency,
+                                            int shardPages, Integer shardImages) {
+        long startTime = System.currentTimeMillis();
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        String baseName = fileName.endsWith(".pdf") ? fileName.substring(0, fileName.length() - 4) : fileName;
+
+        List<CompletableFuture<MineruParseResponse.FileResult>> futures = new ArrayList<>();
+        for (int i = 0; i < shardFiles.size(); i++) {
+            File shardFile = shardFiles.get(i);
+            String shardName = baseName + "_part" + (i + 1) + ".pdf";
+            permits.acquireUninterruptibly();
+            CompletableFuture<MineruParseResponse.FileResult> future = CompletableFuture
+                    .supplyAsync(() -> {
+                        if (aborted.get()) {
+                            throw new MineruException("其他分片解析失败，跳过 " + shardName);
+                        }
+                        return firstResult(mineruClient.parsePdf(shardFile, shardName, parseMethod,
+                                timeoutPolicy.mineruTimeout(shardPages, shardImages, shardFile.length())));
+                    }, mineruExecutor)
+                    .whenComplete((result, e) -> permits.release());
+            futures.add(future);
+        }
+
+        List<MarkdownShardMerger.Shard> shards = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                MineruParseResponse.FileResult result = futures.get(i).join();
+                shards.add(new MarkdownShardMerger.Shard(result.getMdContent(), result.getImages(), result.getBlocks(), i * shardPages));
+            } catch (CompletionException e) {
+                aborted.set(true);
+                discardImages(futures);
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw new MineruException(String.format("分片 %d/%d 解析失败: %s", i + 1, futures.size(), cause.getMessage()), cause);
+            }
+        }
+
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(shards);
+        log.info("分片解析完成: {}, 分片数量: {}, 图片数量: {}, 耗时: {} ms",
+                fileName, shards.size(), merged.images().size(), System.currentTimeMillis() - startTime);
+
+        MineruParseResponse.FileResult fileResult = new MineruParseResponse.FileResult();
+        fileResult.setMdContent(merged.markdown());
+        fileResult.setImages(merged.images());
+        fileResult.setBlocks(merged.blocks());
+        MineruParseResponse response = new MineruParseResponse();
+        response.setResults(Map.of(baseName, fileResult));
+        return response;
+    }
+
+    /**
+     * 分片失败时删除其余分片解码出的图片临时文件（仍在解析的分片完成后删除）
+     */
+    private void discardImages(List<CompletableFuture<MineruParseResponse.FileResult>> futures) {
+        for (CompletableFuture<MineruParseResponse.FileResult> future : futures) {
+            future.whenComplete((result, e) -> {
+                if (result != null && result.getImages() != null) {
+                    result.getImages().values().forEach(ParsedImage::delete);
+                }
+            });
+        }
+    }
+
+    private MineruParseResponse.FileResult firstResult(MineruParseResponse response) {
+        if (response.getResults() == null || response.getResults().isEmpty()) {
+            throw new MineruException("MinerU 未返回解析结果");
+        }
+        return response.getResults().values().iterator().next();
+    }
+}
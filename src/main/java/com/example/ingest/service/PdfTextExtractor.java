@@ -0,0 +1,247 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * PDF 快速文本提取服务
+ * 针对带完整文本层的 PDF（如 Word 导出）在 JVM 内用 PDFBox 直接提取文本，
+ * 按字号推断标题层级生成 Markdown，不经过 MinerU；不提取图片
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfTextExtractor {
+
+    private static final Pattern PAGE_NUMBER = Pattern.compile("^(第\\s*)?[-—\\s]*\\d{1,4}[-—\\s]*(页)?$|^\\d{1,4}\\s*/\\s*\\d{1,4}$");
+    private static final String SENTENCE_END = "。！？；.!?;:：";
+
+    private final AppProperties appProperties;
+
+    /**
+     * 提取 PDF 文本并生成 Markdown
+     *
+     * @param pdfFile PDF 文件
+     * @return Markdown 文本；质量校验未通过时返回 null，由调用方回退到 MinerU
+     */
+    public String extract(File pdfFile) {
+        AppProperties.FastPathConfig config = appProperties.getFastPath();
+        try (PDDocument document = PDDocument.load(pdfFile, MemoryUsageSetting.setupTempFileOnly())) {
+            if (document.isEncrypted() && !document.getCurrentAccessPermission().canExtractContent()) {
+                log.info("PDF 不允许提取内容，回退 MinerU: {}", pdfFile.getName());
+                return null;
+            }
+
+            LineCollector collector = new LineCollector();
+            collector.writeText(document, Writer.nullWriter());
+            collector.flushLine();
+
+            String rejectReason = checkQuality(collector.lines, document.getNumberOfPages(), config);
+            if (rejectReason != null) {
+                log.info("PDFBox 提取质量不达标，回退 MinerU: {}, 原因: {}", pdfFile.getName(), rejectReason);
+                return null;
+            }
+
+            return toMarkdown(collector.lines, config);
+        } catch (IOException e) {
+            log.warn("PDFBox 提取失败，回退 MinerU: {}, {}", pdfFile.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 质量校验：平均每页字符数过少（扫描件或图片为主），或乱码字符占比过高（字体缺少 ToUnicode 映射）
+     *
+     * @return 不达标原因，达标时返回 null
+     */
+    private String checkQuality(List<Line> lines, int pageCount, AppProperties.FastPathConfig config) {
+        long total = 0;
+        long garbled = 0;
+        for (Line line : lines) {
+            String text = line.text();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                total++;
+                if (c == '\uFFFD' || Character.isISOControl(c)
+                        || Character.getType(c) == Character.PRIVATE_USE || Character.getType(c) == Character.SURROGATE) {
+                    garbled++;
+                }
+            }
+        }
+
+        if (pageCount == 0 || total < (long) pageCount * config.getMinCharsPerPage()) {
+            return String.format("平均每页字符数 %d 低于 %d", pageCount == 0 ? 0 : total / pageCount, config.getMinCharsPerPage());
+        }
+        double garbledRatio = (double) garbled / total;
+        if (garbledRatio > config.getMaxGarbledRatio()) {
+            return String.format("乱码字符占比 %.4f 超过 %.4f", garbledRatio, config.getMaxGarbledRatio());
+        }
+        return null;
+    }
+
+    /**
+     * 生成 Markdown：正文字号取字符数最多的字号，明显大于正文的字号按从大到小映射为 1~N 级标题
+     */
+    private String toMarkdown(List<Line> lines, AppProperties.FastPathConfig config) {
+        Map<Float, Integer> charsBySize = new HashMap<>();
+        for (Line line : lines) {
+            charsBySize.merge(line.fontSize(), line.text().length(), Integer::sum);
+        }
+        float bodySize = charsBySize.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(0f);
+
+        TreeSet<Float> headingSizes = new TreeSet<>((a, b) -> Float.compare(b, a));
+        for (Line line : lines) {
+            if (isHeadingCandidate(line, bodySize, config)) {
+                headingSizes.add(line.fontSize());
+            }
+        }
+        List<Float> levels = new ArrayList<>(headingSizes).subList(0, Math.min(headingSizes.size(), config.getMaxHeadingLevels()));
+
+        StringBuilder markdown = new StringBuilder();
+        StringBuilder paragraph = new StringBuilder();
+        for (Line line : lines) {
+            String text = line.text().strip();
+            if (text.isEmpty() || PAGE_NUMBER.matcher(text).matches()) {
+                continue;
+            }
+
+            int level = isHeadingCandidate(line, bodySize, config) ? levels.indexOf(line.fontSize()) + 1 : 0;
+            if (level > 0) {
+                flushParagraph(markdown, paragraph);
+                markdown.append("#".repeat(level)).append(' ').append(text).append("\n\n");
+                continue;
+            }
+
+            if (line.paragraphStart() && paragraph.length() > 0) {
+                flushParagraph(markdown, paragraph);
+            }
+            appendLine(paragraph, text);
+        }
+        flushParagraph(markdown, paragraph);
+        return markdown.toString().strip() + "\n";
+    }
+
+    private boolean isHeadingCandidate(Line line, float bodySize, AppProperties.FastPathConfig config) {
+        String text = line.text().strip();
+        return bodySize > 0
+                && line.fontSize() >= bodySize * config.getHeadingFontRatio()
+                && !text.isEmpty()
+                && text.length() <= config.getMaxHeadingLength()
+                && SENTENCE_END.indexOf(text.charAt(text.length() - 1)) < 0;
+    }
+
+    /**
+     * 同一段落内的折行合并：英文单词之间补空格，行尾连字符去掉，中文直接拼接
+     */
+    private void appendLine(StringBuilder paragraph, String text) {
+        if (paragraph.length() > 0) {
+            char last = paragraph.charAt(paragraph.length() - 1);
+            if (last == '-' && paragraph.length() > 1 && Character.isLetter(paragraph.charAt(paragraph.length() - 2))
+                    && Character.isLowerCase(text.charAt(0))) {
+                paragraph.setLength(paragraph.length() - 1);
+            } else if (last < 0x80 && text.charAt(0) < 0x80) {
+                paragraph.append(' ');
+            }
+        }
+        paragraph.append(text);
+    }
+
+    private void flushParagraph(StringBuilder markdown, StringBuilder paragraph) {
+        if (paragraph.length() > 0) {
+            markdown.append(paragraph).append("\n\n");
+            paragraph.setLength(0);
+        }
+    }
+
+    /**
+     * 提取出的一行文本及其最大字号
+     */
+    private record Line(String text, float fontSize, boolean paragraphStart) {
+    }
+
+    /**
+     * 按行收集文本与字号，不输出到 Writer
+     */
+    private static class LineCollector extends PDFTextStripper {
+        private final List<Line> lines = new ArrayList<>();
+        private final StringBuilder current = new StringBuilder();
+        private float currentSize;
+        private boolean paragraphStart = true;
+
+        private LineCollector() throws IOException {
+            super();
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) {
+            current.append(text);
+            for (TextPosition position : textPositions) {
+                // 字号保留一位小数，避免同一样式因浮点误差被拆成多个字号
+                float size = Math.round(position.getFontSizeInPt() * 10) / 10f;
+                currentSize = Math.max(currentSize, size);
+            }
+        }
+
+        @Override
+        protected void writeWordSeparator() {
+            current.append(' ');
+        }
+
+        @Override
+        protected void writeLineSeparator() {
+            flushLine();
+        }
+
+        @Override
+        protected void writeParagraphStart() {
+            flushLine();
+            paragraphStart = true;
+        }
+
+        @Override
+        protected void writeParagraphEnd() {
+            flushLine();
+            paragraphStart = true;
+        }
+
+        @Override
+        protected void writePageEnd() {
+            flushLine();
+        }
+
+        private void flushLine() {
+            if (current.toString().isBlank()) {
+                current.setLength(0);
+                return;
+            }
+            lines.add(new Line(current.toString(), currentSize, paragraphStart));
+            current.setLength(0);
+            currentSize = 0;
+            paragraphStart = false;
+        }
+    }
+}
@@ -3,21 +3,23 @@ package com.example.ingest.service;
 import com.example.ingest.client.LlmClient;
 import com.example.ingest.client.VlmClient;
 import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.DocumentBlock;
+import com.example.ingest.model.ImageHandle;
+import com.example.ingest.model.VlmCacheStats;
+import com.example.ingest.util.DocumentBlocks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * 语义文本处理器
  * 
- * 核心功能：
- * 1. Markdown 格式转换：将标准 Markdown 转换为 Dify 层级分段格式
+ * 核心功能（均直接在文档块上进行，不再对整份 Markdown 反复做正则扫描与替换）：
+ * 1. 格式转换：将文档块转换为 Dify 层级分段格式
  * 2. 上下文注入：为子分段注入父标题上下文，提升 RAG 检索准确率
  * 3. 递归预切分：防止超长子段被 Dify 硬截断，保持文档结构完整性
  * 4. VLM 图片增强：使用视觉语言模型对图片进行语义描述和 OCR 提取
@@ -32,45 +34,44 @@ public class SemanticTextProcessor {
     private final AppProperties appProperties;
     private final VlmClient vlmClient;
     private final LlmClient llmClient;
-    
-    // Markdown 标题正则：匹配 # 开头的标题
-    private static final Pattern HEADER_PATTERN = Pattern.compile("^(#{1,6})\\s+(.+)$", Pattern.MULTILINE);
-    
-    // Markdown 图片正则：匹配 ![alt](url)
-    private static final Pattern IMAGE_PATTERN = Pattern.compile("!\\[([^\\]]*)\\]\\(([^)]+)\\)");
+    private final TimeoutPolicy timeoutPolicy;
+    private final ImageTriageService imageTriageService;
+    private final VlmResultCacheService vlmResultCacheService;
 
     private final List<String> vlmFailedImages = new ArrayList<>();
     
     /**
      * 语义增强主流程
      * 
-     * @param markdown 原始 Markdown 文本
+     * @param blocks 文档块（图片路径已替换为真实 URL，VLM 增强与摘要直接写回块中）
      * @param imageUrls 图片 URL 列表（用于 VLM 分析）
+     * @param images 图片 URL -> 本地图片数据（分拣与 VLM 请求直接读取，不从 MinIO 下载；可为空）
      * @param enableVlm 是否启用 VLM 图片分析
      * @param enableHeaderProcessing 是否启用标题处理
+     * @param cacheStats VLM 结果缓存统计（由调用方创建，按任务累计）
      * @return 增强后的 Markdown 文本
      */
-    public String enrichMarkdown(String markdown, Map<String, String> imageUrls, boolean enableVlm, boolean enableHeaderProcessing) {
-        log.info("开始语义增强处理，原始文本长度: {}, 启用 VLM: {}, 启用标题处理: {}", 
-                markdown.length(), enableVlm, enableHeaderProcessing);
+    public String enrichBlocks(List<DocumentBlock> blocks, Map<String, String> imageUrls, Map<String, ? extends ImageHandle> images,
+                               boolean enableVlm, boolean enableHeaderProcessing, VlmCacheStats cacheStats) {
+        log.info("开始语义增强处理，文档块数量: {}, 启用 VLM: {}, 启用标题处理: {}", 
+                blocks.size(), enableVlm, enableHeaderProcessing);
         
         vlmFailedImages.clear();
-        String enrichedMarkdown = markdown;
         
         // 1. VLM 图片增强（在此处提取上下文并调用 VLM）
         if (enableVlm && imageUrls != null && !imageUrls.isEmpty()) {
-            enrichedMarkdown = enrichImageDescriptionsWithVlm(enrichedMarkdown);
+            enrichImageDescriptionsWithVlm(blocks, new HashSet<>(imageUrls.values()), images != null ? images : Map.of(), cacheStats);
         }
         
         // 2. LLM 摘要增强（仅在父子结构模式下生效）
         if (appProperties.getLlm().getEnabled() && enableHeaderProcessing) {
-            enrichedMarkdown = enrichParentWithSummary(enrichedMarkdown);
+            enrichParentWithSummary(blocks);
         }
         
         // 3. 父子结构处理
-        if (enableHeaderProcessing) {
-            enrichedMarkdown = processParentChildStructure(enrichedMarkdown);
-        }
+        String enrichedMarkdown = enableHeaderProcessing
+                ? processParentChildStructure(blocks)
+                : DocumentBlocks.toMarkdown(blocks);
         
         log.info("语义增强完成，增强后文本长度: {}, VLM 失败图片数: {}", enrichedMarkdown.length(), vlmFailedImages.size());
         return enrichedMarkdown;
@@ -79,306 +80,165 @@ public class SemanticTextProcessor {
     public List<String> getVlmFailedImages() {
         return new ArrayList<>(vlmFailedImages);
     }
-    
-
 
     /**
-     * 格式转换：将标准 Markdown 转换为 Dify 父子分段格式
-     * 
-     * 转换规则：
-     * - # 一级标题 → {{>1#}} 父段
-     * - 标题下的段落 → {{>2#}} 子段
-     * - 如果标题后有 "> 摘要：xxx"，追加到父段同一行
-     * 
-     * 示例：
-     * # 技术架构
-     * > 摘要：本章介绍...
-     * 
-     * 服务发现模块负责...
-     * ↓
-     * {{>1#}} 技术架构 摘要：本章介绍...
-     * 
-     * {{>2#}} 服务发现模块负责...
-     * 
-     * @param markdown 原始 Markdown 文本
-     * @return 格式转换后的 Markdown 文本
+     * VLM 图片增强：先分拣图片（跳过装饰性图片，近似重复图片只分析一张），再查询 VLM 结果缓存，
+     * 未命中的图片并发提取上下文并调用 VLM 分析，分析结果写入图片块的 alt 文本并写入缓存；
+     * 同一图片的其余出现位置复用同一结果，近似重复图片只复用描述
      */
-    private String preprocessForParentChildFormat(String markdown) {
-        log.debug("开始格式转换（父子分段格式）");
-        
-        String parentSeparator = appProperties.getProcessRule().getParentChild().getParentSeparator();
-        String subSeparator = appProperties.getProcessRule().getParentChild().getSubSeparator();
-        
-        StringBuilder result = new StringBuilder();
-        String[] lines = markdown.split("\n", -1);
-        
-        boolean inParagraph = false;
-        String pendingParentLine = null;
-        StringBuilder paragraphBuffer = new StringBuilder();
-        
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
-            String trimmed = line.trim();
-            
-            // 检测一级标题
-            if (trimmed.startsWith("# ") && !trimmed.startsWith("##")) {
-                // 先输出之前的段落
-                if (!paragraphBuffer.isEmpty()) {
-                    result.append(subSeparator).append(" ").append(paragraphBuffer.toString().trim()).append("\n\n");
-                    paragraphBuffer.setLength(0);
-                    inParagraph = false;
-                }
-                
-                // 输出之前待定的父段
-                if (pendingParentLine != null) {
-                    result.append(pendingParentLine).append("\n\n");
-                }
-                
-                // 构建父段标题（标题中可能已包含 "摘要：xxx"）
-                String title = trimmed.substring(2).trim();
-                pendingParentLine = parentSeparator + " " + title;
+    private void enrichImageDescriptionsWithVlm(List<DocumentBlock> blocks, Set<String> imageUrls, Map<String, ? extends ImageHandle> images,
+                                                VlmCacheStats cacheStats) {
+        // 收集图片出现位置（同一内容的图片上传后 URL 相同，可能出现多次）
+        Map<String, List<Integer>> occurrences = new LinkedHashMap<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            DocumentBlock block = blocks.get(i);
+            if (block.getType() == DocumentBlock.Type.IMAGE && imageUrls.contains(block.getImagePath())) {
+                occurrences.computeIfAbsent(block.getImagePath(), url -> new ArrayList<>()).add(i);
             }
-            // 空行：段落分隔符
-            else if (trimmed.isEmpty()) {
-                if (inParagraph && !paragraphBuffer.isEmpty()) {
-                    result.append(subSeparator).append(" ").append(paragraphBuffer.toString().trim()).append("\n\n");
-                    paragraphBuffer.setLength(0);
-                    inParagraph = false;
-                } else if (!inParagraph && pendingParentLine == null) {
-                    result.append("\n");
-                }
-            }
-            // 普通文本行：累积到段落缓冲区
-            else {
-                // 输出待定的父段
-                if (pendingParentLine != null) {
-                    result.append(pendingParentLine).append("\n\n");
-                    pendingParentLine = null;
-                }
-                
-                if (!inParagraph) {
-                    inParagraph = true;
-                }
-                if (paragraphBuffer.length() > 0) {
-                    paragraphBuffer.append("\n");
-                }
-                paragraphBuffer.append(line);
-            }
-        }
-        
-        // 输出待定的父段
-        if (pendingParentLine != null) {
-            result.append(pendingParentLine).append("\n\n");
-        }
-        
-        // 输出最后的段落
-        if (paragraphBuffer.length() > 0) {
-            result.append(subSeparator).append(" ").append(paragraphBuffer.toString().trim()).append("\n\n");
-        }
-        
-        log.debug("格式转换完成");
-        return result.toString();
-    }
-    
-
-    /**
-     * 解析 Markdown 标题结构
-     */
-    private List<HeaderNode> parseHeaders(String markdown) {
-        List<HeaderNode> headers = new ArrayList<>();
-        Matcher matcher = HEADER_PATTERN.matcher(markdown);
-        
-        while (matcher.find()) {
-            int level = matcher.group(1).length(); // # 的数量
-            String title = matcher.group(2).trim();
-            int position = matcher.start();
-            
-            headers.add(new HeaderNode(level, title, position));
         }
-        
-        log.debug("解析到 {} 个标题", headers.size());
-        return headers;
-    }
-
-    /**
-     * 注入标题上下文到正文
-     * 策略：在每个段落前添加 [章节: 一级标题 > 二级标题 > 三级标题]
-     */
-    private String injectHeaderContext(String markdown, List<HeaderNode> headers) {
-        if (headers.isEmpty()) {
-            return markdown;
+        if (occurrences.isEmpty()) {
+            return;
         }
-        
-        StringBuilder result = new StringBuilder();
-        String[] lines = markdown.split("\n");
-        
-        // 维护标题栈
-        Deque<HeaderNode> headerStack = new ArrayDeque<>();
-        int headerIndex = 0;
-        int currentPosition = 0;
-        
-        for (String line : lines) {
-            // 更新标题栈
-            while (headerIndex < headers.size() && headers.get(headerIndex).position <= currentPosition) {
-                HeaderNode currentHeader = headers.get(headerIndex);
-                
-                // 弹出更高或同级的标题
-                while (!headerStack.isEmpty() && headerStack.peek().level >= currentHeader.level) {
-                    headerStack.pop();
-                }
-                
-                headerStack.push(currentHeader);
-                headerIndex++;
+        Map<String, ImageHandle> localImages = new HashMap<>();
+        for (String url : occurrences.keySet()) {
+            if (images.containsKey(url)) {
+                localImages.put(url, images.get(url));
             }
-            
-            // 判断是否需要注入上下文
-            boolean isHeader = line.trim().startsWith("#");
-            boolean isEmpty = line.trim().isEmpty();
-            boolean isImage = line.trim().startsWith("!");
-            
-            // 在非标题、非空行、非图片的正文段落前注入上下文
-            if (!isHeader && !isEmpty && !isImage && !headerStack.isEmpty()) {
-                String context = buildHeaderContext(headerStack);
-                result.append(context).append("\n");
-            }
-            
-            result.append(line).append("\n");
-            currentPosition += line.length() + 1;
-        }
-        
-        return result.toString();
-    }
-
-    /**
-     * 构建标题上下文字符串
-     * 例如：[章节: 部署 > 环境准备 > JDK 安装]
-     */
-    private String buildHeaderContext(Deque<HeaderNode> headerStack) {
-        List<String> titles = new ArrayList<>();
-        
-        // 从栈底到栈顶（从一级到三级）
-        Iterator<HeaderNode> iterator = headerStack.descendingIterator();
-        while (iterator.hasNext()) {
-            titles.add(iterator.next().title);
         }
+        ImageTriageService.TriageResult triage = imageTriageService.triage(new ArrayList<>(occurrences.keySet()),
+                imageTriageService.fingerprint(localImages));
         
-        return "[章节: " + String.join(" > ", titles) + "]";
-    }
-
-    /**
-     * VLM 图片增强：并发提取上下文并调用 VLM 分析
-     */
-    private String enrichImageDescriptionsWithVlm(String markdown) {
-        Matcher matcher = IMAGE_PATTERN.matcher(markdown);
-        
-        // 收集所有图片信息
+        // 每张待分析图片取第一次出现的位置提取上下文
         List<ImageTask> imageTasks = new ArrayList<>();
-        while (matcher.find()) {
-            String imageUrl = matcher.group(2);
-            int start = matcher.start();
-            int end = matcher.end();
-            // 提取图片周围上下文（前后各30字符）
-            String beforeContext = markdown.substring(Math.max(0, start - 30), start).replace("\n", " ").trim();
-            String afterContext = markdown.substring(end, Math.min(markdown.length(), end + 30)).replace("\n", " ").trim();
+        for (Map.Entry<String, List<Integer>> entry : occurrences.entrySet()) {
+            if (triage.skipped().contains(entry.getKey()) || triage.representatives().containsKey(entry.getKey())) {
+                continue;
+            }
+            int i = entry.getValue().get(0);
+            DocumentBlock block = blocks.get(i);
+            // 提取图片周围上下文（前后相邻块各30字符，图片标题视为图片后文本）
+            String before = i > 0 ? blocks.get(i - 1).toMarkdown() : "";
+            String after = (block.getCaption() != null ? block.getCaption() + " " : "")
+                    + (i + 1 < blocks.size() ? blocks.get(i + 1).toMarkdown() : "");
+            String beforeContext = before.substring(Math.max(0, before.length() - 30)).replace("\n", " ").trim();
+            String afterContext = after.substring(0, Math.min(after.length(), 30)).replace("\n", " ").trim();
             String context = String.format("图片前部分文本：%s | 图片后部分文本：%s", beforeContext, afterContext);
             
-            imageTasks.add(new ImageTask(imageUrl, context, matcher.group(0), start, end));
+            imageTasks.add(new ImageTask(block, context));
         }
         
         if (imageTasks.isEmpty()) {
-            return markdown;
+            return;
+        }
+        
+        // 查询 VLM 结果缓存，命中的图片直接使用缓存结果
+        int successCount = 0;
+        Map<String, VlmClient.ImageAnalysisResult> analyses = new HashMap<>();
+        Map<String, String> imageHashes = vlmResultCacheService.resolveHashes(
+                imageTasks.stream().map(ImageTask::imageUrl).toList(), localImages);
+        Map<String, VlmClient.ImageAnalysisResult> cached = vlmResultCacheService.getAll(imageHashes.values());
+        List<ImageTask> pendingTasks = new ArrayList<>();
+        for (ImageTask task : imageTasks) {
+            String imageHash = imageHashes.get(task.imageUrl());
+            if (imageHash != null && cacheStats != null) {
+                cacheStats.setLookups(cacheStats.getLookups() + 1);
+            }
+            VlmClient.ImageAnalysisResult hit = imageHash != null ? cached.get(imageHash) : null;
+            if (hit == null) {
+                pendingTasks.add(task);
+                continue;
+            }
+            analyses.put(task.imageUrl(), hit);
+            successCount++;
+            if (cacheStats != null) {
+                cacheStats.setHits(cacheStats.getHits() + 1);
+                cacheStats.setSavedTime(cacheStats.getSavedTime() + hit.getDuration());
+            }
         }
         
-        log.info("开始并发分析 {} 张图片", imageTasks.size());
+        Duration timeout = timeoutPolicy.vlmTimeout();
+        log.info("开始并发分析 {} 张图片（缓存命中 {} 张），单张超时 {} s", pendingTasks.size(), imageTasks.size() - pendingTasks.size(), timeout.toSeconds());
         long startTime = System.currentTimeMillis();
         
-        // 并发提交所有图片分析任务
-        List<CompletableFuture<ImageTaskResult>> futures = imageTasks.stream()
-                .map(task -> vlmClient.analyzeImageAsync(task.imageUrl, task.imageUrl, task.context)
-                        .thenApply(analysis -> new ImageTaskResult(task, analysis))
-                        .exceptionally(e -> {
-                            log.error("VLM 分析异常: {}", task.imageUrl, e);
-                            return new ImageTaskResult(task, VlmClient.ImageAnalysisResult.builder()
-                                    .imageName(task.imageUrl)
-                                    .description("图片分析失败")
-                                    .ocrText("")
-                                    .success(false)
-                                    .build());
-                        }))
-                .toList();
+        // 并发提交所有图片分析任务（启用批量模式时由 VlmClient 打包为多图请求）
+        List<CompletableFuture<VlmClient.ImageAnalysisResult>> pending = vlmClient.analyzeImagesAsync(pendingTasks.stream()
+                .map(task -> new VlmClient.ImageRequest(task.imageUrl(), localImages.get(task.imageUrl()), task.imageUrl(), task.context()))
+                .toList(), timeout);
+        List<CompletableFuture<ImageTaskResult>> futures = new ArrayList<>();
+        for (int i = 0; i < pendingTasks.size(); i++) {
+            ImageTask task = pendingTasks.get(i);
+            futures.add(pending.get(i)
+                    .thenApply(analysis -> new ImageTaskResult(task, analysis))
+                    .exceptionally(e -> {
+                        log.error("VLM 分析异常: {}", task.imageUrl(), e);
+                        return new ImageTaskResult(task, VlmClient.ImageAnalysisResult.builder()
+                                .imageName(task.imageUrl())
+                                .description("图片分析失败")
+                                .ocrText("")
+                                .success(false)
+                                .build());
+                    }));
+        }
         
         // 等待所有任务完成
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
         
         // 收集结果
-        Map<String, String> replacements = new HashMap<>();
         for (CompletableFuture<ImageTaskResult> future : futures) {
             try {
                 ImageTaskResult result = future.get();
-                if (result.analysis.isSuccess()) {
-                    String enrichedAlt = buildEnrichedAlt(result.analysis);
-                    String replacement = "![" + enrichedAlt + "](" + result.task.imageUrl + ")";
-                    replacements.put(result.task.originalMatch, replacement);
-                    log.debug("VLM 增强完成: {}", result.task.imageUrl);
+                if (result.analysis().isSuccess()) {
+                    analyses.put(result.task().imageUrl(), result.analysis());
+                    vlmResultCacheService.put(imageHashes.get(result.task().imageUrl()), result.analysis());
+                    successCount++;
+                    log.debug("VLM 增强完成: {}", result.task().imageUrl());
                 } else {
-                    vlmFailedImages.add(result.task.imageUrl);
+                    vlmFailedImages.add(result.task().imageUrl());
                 }
             } catch (Exception e) {
                 log.error("获取 VLM 结果失败", e);
             }
         }
+        if (!futures.isEmpty()) {
+            vlmResultCacheService.evictIfNeeded();
+        }
         
-        long duration = System.currentTimeMillis() - startTime;
-        log.info("并发分析完成，成功 {} 张，失败 {} 张，总耗时 {}ms", 
-                replacements.size(), vlmFailedImages.size(), duration);
-        
-        // 批量替换
-        String result = markdown;
-        for (Map.Entry<String, String> entry : replacements.entrySet()) {
-            result = result.replace(entry.getKey(), entry.getValue());
+        // 写回所有出现位置；近似重复图片与簇代表内容不同，只复用描述，OCR 文字不适用
+        for (Map.Entry<String, List<Integer>> entry : occurrences.entrySet()) {
+            String representative = triage.representatives().get(entry.getKey());
+            VlmClient.ImageAnalysisResult analysis = analyses.get(representative != null ? representative : entry.getKey());
+            String alt = analysis != null ? buildEnrichedAlt(analysis, representative == null) : "";
+            if (!alt.isEmpty()) {
+                entry.getValue().forEach(i -> blocks.get(i).setAlt(alt));
+            }
         }
         
-        return result;
+        long duration = System.currentTimeMillis() - startTime;
+        log.info("并发分析完成，成功 {} 张，失败 {} 张，总耗时 {}ms", 
+                successCount, vlmFailedImages.size(), duration);
     }
     
     /**
      * 图片任务
      */
-    private static class ImageTask {
-        String imageUrl;
-        String context;
-        String originalMatch;
-        int start;
-        int end;
-        
-        ImageTask(String imageUrl, String context, String originalMatch, int start, int end) {
-            this.imageUrl = imageUrl;
-            this.context = context;
-            this.originalMatch = originalMatch;
-            this.start = start;
-            this.end = end;
+    private record ImageTask(DocumentBlock block, String context) {
+        String imageUrl() {
+            return block.getImagePath();
         }
     }
     
     /**
      * 图片任务结果
      */
-    private static class ImageTaskResult {
-        ImageTask task;
-        VlmClient.ImageAnalysisResult analysis;
-        
-        ImageTaskResult(ImageTask task, VlmClient.ImageAnalysisResult analysis) {
-            this.task = task;
-            this.analysis = analysis;
-        }
+    private record ImageTaskResult(ImageTask task, VlmClient.ImageAnalysisResult analysis) {
     }
 
-
-
     /**
      * 构建增强的 alt 文本：格式为 "描述 | 文字: OCR内容"
+     *
+     * @param includeOcr 是否包含 OCR 文字（复用近似重复图片的结果时只保留描述）
      */
-    private String buildEnrichedAlt(VlmClient.ImageAnalysisResult analysis) {
+    private String buildEnrichedAlt(VlmClient.ImageAnalysisResult analysis, boolean includeOcr) {
         StringBuilder alt = new StringBuilder();
         
         // 限制描述长度（避免过长导致切分问题）
@@ -392,7 +252,7 @@ public class SemanticTextProcessor {
         }
         
         // 限制 OCR 长度并清理噪音
-        if (!analysis.getOcrText().isEmpty()) {
+        if (includeOcr && !analysis.getOcrText().isEmpty()) {
             String ocrText = cleanOcrText(analysis.getOcrText());
             if (!ocrText.isEmpty()) {
                 if (alt.length() > 0) {
@@ -439,9 +299,9 @@ public class SemanticTextProcessor {
     /**
      * 基于摘要的父文档检索增强
      * 
-     * 策略：直接在标题后追加摘要，使用正则替换
+     * 策略：为每个一级标题生成摘要，直接写入标题块，格式转换时追加到父段同一行
      */
-    private String enrichParentWithSummary(String markdown) {
+    private void enrichParentWithSummary(List<DocumentBlock> blocks) {
         log.info("开始 LLM 摘要增强处理");
         long startTime = System.currentTimeMillis();
         
@@ -449,64 +309,42 @@ public class SemanticTextProcessor {
         int contentThreshold = llmConfig.getContentThreshold();
         
         // 解析章节结构
-        List<ChapterSection> sections = parseChapterSections(markdown);
+        List<ChapterSection> sections = parseChapterSections(blocks);
         log.info("解析到 {} 个章节", sections.size());
         
         if (sections.isEmpty()) {
-            return markdown;
+            return;
         }
         
         // 并发生成摘要
-        Map<String, String> summaryMap = new HashMap<>();
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
         
         for (ChapterSection section : sections) {
-            if (section.content.length() >= contentThreshold) {
-                futures.add(CompletableFuture.runAsync(() -> {
+            if (section.content().length() >= contentThreshold) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
                     try {
-                        String fullText = "标题：" + section.title + "\n\n" + section.content.toString() + "/no_think";
-                        String summary = llmClient.summarizeText(fullText);
-                        summary = cleanThinkTags(summary);
+                        String title = section.heading().getText();
+                        String fullText = "标题：" + title + "\n\n" + section.content() + "/no_think";
+                        String summary = cleanThinkTags(llmClient.summarizeText(fullText));
                         
-                        if (!summary.isEmpty()) {
-                            synchronized (summaryMap) {
-                                summaryMap.put(section.title, summary);
-                            }
+                        if (summary != null && !summary.isEmpty()) {
+                            section.heading().setSummary(summary);
+                            return true;
                         }
                     } catch (Exception e) {
-                        log.error("LLM 摘要生成失败: {}", section.title, e);
+                        log.error("LLM 摘要生成失败: {}", section.heading().getText(), e);
                     }
+                    return false;
                 }));
             }
         }
         
         // 等待所有摘要完成
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-        
-        // 使用正则替换：在一级标题同一行追加摘要
-        String result = markdown;
-        for (Map.Entry<String, String> entry : summaryMap.entrySet()) {
-            String title = entry.getKey();
-            String summary = entry.getValue();
-            
-            // 转义特殊字符并匹配 "# title"（行尾）
-            String escapedTitle = Pattern.quote(title);
-            Pattern pattern = Pattern.compile("(^# " + escapedTitle + ")\\s*$", Pattern.MULTILINE);
-            Matcher matcher = pattern.matcher(result);
-            
-            if (matcher.find()) {
-                // 直接追加到标题同一行
-                result = matcher.replaceFirst("$1 摘要：" + Matcher.quoteReplacement(summary));
-                log.debug("成功插入摘要到标题: {}", title);
-            } else {
-                log.warn("未找到标题进行摘要插入: {}", title);
-            }
-        }
+        long successCount = futures.stream().filter(CompletableFuture::join).count();
         
         long duration = System.currentTimeMillis() - startTime;
-        log.info("LLM 摘要增强完成，成功生成 {} 个摘要，耗时 {}ms", summaryMap.size(), duration);
-        
-        return result;
+        log.info("LLM 摘要增强完成，成功生成 {} 个摘要，耗时 {}ms", successCount, duration);
     }
 
     /**
@@ -527,47 +365,25 @@ public class SemanticTextProcessor {
     }
 
     /**
-     * 解析章节结构（识别一级标题及其正文内容）
+     * 解析章节结构（一级标题及其正文：段落、表格、公式，不含子标题与图片）
      */
-    private List<ChapterSection> parseChapterSections(String markdown) {
+    private List<ChapterSection> parseChapterSections(List<DocumentBlock> blocks) {
         List<ChapterSection> sections = new ArrayList<>();
-        
-        // 使用正则匹配一级标题
-        Pattern h1Pattern = Pattern.compile("^# ([^#\\n].*)$", Pattern.MULTILINE);
-        Matcher matcher = h1Pattern.matcher(markdown);
-        
-        List<Integer> headerPositions = new ArrayList<>();
-        List<String> headerTitles = new ArrayList<>();
-        
-        while (matcher.find()) {
-            headerPositions.add(matcher.start());
-            headerTitles.add(matcher.group(1).trim());
-        }
-        
-        // 提取每个章节的正文内容
-        for (int i = 0; i < headerPositions.size(); i++) {
-            int startPos = headerPositions.get(i);
-            int endPos = (i + 1 < headerPositions.size()) ? headerPositions.get(i + 1) : markdown.length();
-            
-            String title = headerTitles.get(i);
-            String sectionText = markdown.substring(startPos, endPos);
-            
-            // 提取正文（跳过标题行）
-            String[] lines = sectionText.split("\n", -1);
-            StringBuilder content = new StringBuilder();
-            
-            for (int j = 1; j < lines.length; j++) {
-                String line = lines[j].trim();
-                // 排除空行、图片、代码块
-                if (!line.isEmpty() && !line.startsWith("!") && !line.startsWith("```") && !line.startsWith("#")) {
-                    if (content.length() > 0) {
-                        content.append("\n");
+        ChapterSection current = null;
+        
+        for (DocumentBlock block : blocks) {
+            if (block.getType() == DocumentBlock.Type.HEADING && block.getLevel() == 1) {
+                current = new ChapterSection(block, new StringBuilder());
+                sections.add(current);
+            } else if (current != null && block.getType() != DocumentBlock.Type.HEADING && block.getType() != DocumentBlock.Type.IMAGE) {
+                String text = block.toMarkdown().strip();
+                if (!text.isEmpty()) {
+                    if (current.content().length() > 0) {
+                        current.content().append("\n");
                     }
-                    content.append(lines[j]);
+                    current.content().append(text);
                 }
             }
-            
-            sections.add(new ChapterSection(title, startPos, content));
         }
         
         return sections;
@@ -576,146 +392,54 @@ public class SemanticTextProcessor {
     /**
      * 层级结构深度处理
      * 
-     * 三步走策略：
-     * 1. 格式转换：将标准 Markdown 转换为 Dify 层级分段格式
-     * 2. 摘要注入：将摘要追加到 {{>1#}} 父段之后（如果已生成）
-     * 3. 上下文注入：为子分段注入父标题上下文
-     * 4. 递归预切分：对超长子段进行智能切分
+     * 逐块一次完成：
+     * 1. 格式转换：一级标题 → {{>1#}} 父段（已生成摘要时追加到同一行），其余块 → {{>2#}} 子段
+     * 2. 上下文注入：为子分段注入父标题上下文
+     * 3. 递归预切分：对超长子段进行智能切分
      * 
-     * @param markdown 原始 Markdown 文本
-     * @return 处理后的 Markdown 文本
-     */
-    private String processParentChildStructure(String markdown) {
-        log.debug("开始父子结构深度处理");
-        
-        // 步骤1：格式转换（# -> {{>1#}}, 段落 -> {{>2#}}）
-        String formatted = preprocessForParentChildFormat(markdown);
-        
-        // 步骤2：上下文注入（{{>2#}} 子标题 -> {{>2#}} （所属章节：xxx） 子标题）
-        String contextInjected = injectParentContext(formatted);
-        
-        // 步骤3：递归预切分（防止超长子段被 Dify 截断）
-        String chunked = applyRecursivePreChunking(contextInjected);
-        
-        log.debug("父子结构深度处理完成");
-        return chunked;
-    }
-    
-    /**
-     * 上下文注入：将父标题注入到子标题中
-     * 
-     * 目的：解决子分段独立向量化后缺少父标题上下文的问题，提升 RAG 检索准确率
+     * 示例：
+     * # 技术架构（摘要：本章介绍...）
      * 
-     * 转换规则：
-     * {{>1#}} 技术架构
-     * {{>2#}} 服务发现
+     * 服务发现模块负责...
      * ↓
-     * {{>1#}} 技术架构
-     * {{>2#}} (所属章节: 技术架构) 服务发现
+     * {{>1#}} 技术架构 摘要：本章介绍...
      * 
-     * @param markdown 格式转换后的 Markdown 文本
-     * @return 注入上下文后的 Markdown 文本
+     * {{>2#}} (所属章节: 技术架构) 服务发现模块负责...
+     * 
+     * @param blocks 文档块
+     * @return 处理后的 Markdown 文本
      */
-    private String injectParentContext(String markdown) {
-        log.debug("开始上下文注入");
+    private String processParentChildStructure(List<DocumentBlock> blocks) {
+        log.debug("开始父子结构深度处理");
         
         String parentSeparator = appProperties.getProcessRule().getParentChild().getParentSeparator();
-        String subSeparator = appProperties.getProcessRule().getParentChild().getSubSeparator();
         
         StringBuilder result = new StringBuilder();
-        String[] lines = markdown.split("\n", -1);
         String currentParentTitle = null;
         
-        for (String line : lines) {
-            String trimmed = line.trim();
-            
-            // 检测父分段标识
-            if (trimmed.startsWith(parentSeparator)) {
-                // 提取标题（去掉可能的摘要部分）
-                String fullTitle = trimmed.substring(parentSeparator.length()).trim();
-                // 如果包含 "摘要："，只取摘要之前的部分作为标题
-                int summaryIndex = fullTitle.indexOf("摘要：");
-                if (summaryIndex > 0) {
-                    currentParentTitle = fullTitle.substring(0, summaryIndex).trim();
-                } else {
-                    currentParentTitle = fullTitle;
+        for (DocumentBlock block : blocks) {
+            if (block.getType() == DocumentBlock.Type.HEADING && block.getLevel() == 1) {
+                result.append(parentSeparator).append(" ").append(block.getText());
+                if (block.getSummary() != null && !block.getSummary().isEmpty()) {
+                    result.append(" 摘要：").append(block.getSummary());
                 }
-                result.append(line).append("\n");
-            }
-            // 检测子分段标识，注入父标题
-            else if (trimmed.startsWith(subSeparator) && currentParentTitle != null) {
-                String subTitle = trimmed.substring(subSeparator.length()).trim();
-                // 注入格式：{{>2#}} (所属章节: 父标题) 子标题
-                result.append(subSeparator).append(" (所属章节: ").append(currentParentTitle).append(") ").append(subTitle).append("\n");
-            }
-            // 其他行保持原样
-            else {
-                result.append(line).append("\n");
+                result.append("\n\n");
+                currentParentTitle = block.getText();
+                continue;
             }
-        }
-        
-        log.debug("上下文注入完成");
-        return result.toString();
-    }
-    
-    /**
-     * 递归预切分：扫描并处理超长子分段
-     * 
-     * 目的：防止子分段内容超过 Dify 的 max_tokens 限制被硬截断，导致剩余部分丢失 {{>2#}} 前缀
-     * 
-     * 处理逻辑：
-     * 1. 逐行扫描，识别 {{>2#}} 子分段标识
-     * 2. 收集子分段的完整内容（包括后续非标识行）
-     * 3. 调用 recursiveSplit 进行智能切分
-     * 4. 父分段和其他层级标识保持原样
-     * 
-     * @param markdown 注入上下文后的 Markdown 文本
-     * @return 预切分后的 Markdown 文本
-     */
-    private String applyRecursivePreChunking(String markdown) {
-        log.debug("开始递归预切分处理");
-        
-        String subSeparator = appProperties.getProcessRule().getParentChild().getSubSeparator();
-        
-        StringBuilder result = new StringBuilder();
-        String[] lines = markdown.split("\n", -1);
-        
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
             
-            // 检测是否为子分段标识行
-            if (line.startsWith(subSeparator)) {
-                // 提取子分段内容（去掉前缀）
-                String content = line.substring(subSeparator.length()).trim();
-                
-                // 收集后续非标识行作为子分段的完整内容
-                StringBuilder subContent = new StringBuilder(content);
-                int j = i + 1;
-                while (j < lines.length && !lines[j].startsWith("{{>")) {
-                    subContent.append("\n").append(lines[j]);
-                    j++;
-                }
-                
-                // 提取父子标题上下文（用于递归切分时保持上下文）
-                String contextPrefix = extractContextPrefix(content);
-                
-                // 递归切分
-                String chunked = recursiveSplit(subContent.toString().trim(), contextPrefix);
-                result.append(chunked);
-                
-                // 跳过已处理的行
-                i = j - 1;
-            } else if (line.startsWith("{{>1#}}") || line.startsWith("{{>3#}}") || 
-                       line.startsWith("{{>4#}}") || line.startsWith("{{>5#}}") || line.startsWith("{{>6#}}")) {
-                // 父分段或其他层级标识，保持原样
-                result.append(line).append("\n");
-            } else if (!line.startsWith("{{>")) {
-                // 普通文本行，保持原样
-                result.append(line).append("\n");
+            String content = block.toMarkdown().strip();
+            if (content.isEmpty()) {
+                continue;
             }
+            // 注入格式：{{>2#}} (所属章节: 父标题) 子段内容
+            if (currentParentTitle != null) {
+                content = "(所属章节: " + currentParentTitle + ") " + content;
+            }
+            result.append(recursiveSplit(content, extractContextPrefix(content)));
         }
         
-        log.debug("递归预切分完成");
+        log.debug("父子结构深度处理完成");
         return result.toString();
     }
     
@@ -836,48 +560,12 @@ public class SemanticTextProcessor {
         return maxPos;
     }
 
-    /**
-     * 标题节点
-     */
-    private static class HeaderNode {
-        int level;      // 标题级别（1-6）
-        String title;   // 标题文本
-        int position;   // 在原文中的位置
-        
-        HeaderNode(int level, String title, int position) {
-            this.level = level;
-            this.title = title;
-            this.position = position;
-        }
-    }
-
     /**
      * 章节结构（用于摘要增强）
+     *
+     * @param heading 一级标题块
+     * @param content 章节正文内容
      */
-    private static class ChapterSection {
-        String title;              // 章节标题
-        int headerPosition;        // 标题在原文中的位置
-        StringBuilder content;     // 章节正文内容
-        
-        ChapterSection(String title, int headerPosition, StringBuilder content) {
-            this.title = title;
-            this.headerPosition = headerPosition;
-            this.content = content;
-        }
-    }
-
-    /**
-     * 摘要结果
-     */
-    private static class SummaryResult {
-        int headerPosition;        // 标题位置
-        String summary;            // 摘要内容
-        boolean success;           // 是否成功
-        
-        SummaryResult(int headerPosition, String summary, boolean success) {
-            this.headerPosition = headerPosition;
-            this.summary = summary;
-            this.success = success;
-        }
+    private record ChapterSection(DocumentBlock heading, StringBuilder content) {
     }
 }
@@ -0,0 +1,137 @@
+package com.example.ingest.service;
+
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.model.TaskLatencyPercentiles;
+import com.example.ingest.repository.IngestTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * 外部调用超时策略
+ * 按文档页数、图片数量、文件大小与历史任务的单位耗时分位数推算 MinerU、VLM、Dify 的单次调用超时：
+ * 超时 = 单位耗时 × 数量 × 放大倍数，限制在配置的 [min, max] 范围内；
+ * 历史样本不足时使用配置的默认单位耗时，小文档不会长时间占用工作线程，大文档也不会被固定超时截断
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimeoutPolicy {
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final AppProperties appProperties;
+    private final IngestTaskRepository taskRepository;
+
+    private volatile TaskLatencyPercentiles cachedPercentiles;
+    private volatile long percentilesFittedAt;  // 上次尝试统计的时间（失败也记录），为 0 表示尚未统计
+
+    /**
+     * MinerU 解析超时：页数已知时按每页耗时推算（图片数量也已知时按纯文本页耗时 + 每张图片耗时推算），
+     * 否则按文件大小推算
+     *
+     * @param pageCount 页数，未知时为 null
+     * @param imageCount 内嵌图片数量，未知时为 null
+     * @param fileSize 文件大小（字节）
+     */
+    public Duration mineruTimeout(Integer pageCount, Integer imageCount, long fileSize) {
+        AppProperties.TimeoutConfig config = appProperties.getTimeout();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return Duration.ofSeconds(config.getMineruMaxSeconds());
+        }
+
+        TaskLatencyPercentiles percentiles = getPercentiles();
+        double estimate;
+        if (pageCount != null && pageCount > 0 && imageCount != null) {
+            double msPerTextPage = unitCost(percentiles != null ? percentiles.getMineruMsPerTextPage() : null,
+                    percentiles != null ? percentiles.getMineruTextPageSamples() : null, config.getMineruDefaultMsPerPage());
+            double msPerImage = unitCost(percentiles != null ? percentiles.getMineruMsPerImage() : null,
+                    percentiles != null ? percentiles.getMineruImageSamples() : null, config.getMineruDefaultMsPerImage());
+            estimate = msPerTextPage * pageCount + msPerImage * imageCount;
+        } else if (pageCount != null && pageCount > 0) {
+            double msPerPage = unitCost(percentiles != null ? percentiles.getMineruMsPerPage() : null,
+                    percentiles != null ? percentiles.getMineruPageSamples() : null, config.getMineruDefaultMsPerPage());
+            estimate = msPerPage * pageCount;
+        } else {
+            double msPerMb = unitCost(percentiles != null ? percentiles.getMineruMsPerMb() : null,
+                    percentiles != null ? percentiles.getMineruSizeSamples() : null, config.getMineruDefaultMsPerMb());
+            estimate = msPerMb * Math.max(fileSize, 1) / BYTES_PER_MB;
+        }
+        Duration timeout = clamp(estimate * config.getSafetyFactor(), config.getMineruMinSeconds(), config.getMineruMaxSeconds());
+        log.debug("MinerU 超时: 页数={}, 图片={}, 大小={} bytes, 超时={} s", pageCount, imageCount, fileSize, timeout.toSeconds());
+        return timeout;
+    }
+
+    /**
+     * VLM 单张图片分析超时
+     */
+    public Duration vlmTimeout() {
+        AppProperties.TimeoutConfig config = appProperties.getTimeout();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return Duration.ofSeconds(config.getVlmMaxSeconds());
+        }
+
+        TaskLatencyPercentiles percentiles = getPercentiles();
+        double msPerImage = unitCost(percentiles != null ? percentiles.getVlmMsPerImage() : null,
+                percentiles != null ? percentiles.getVlmSamples() : null, config.getVlmDefaultMsPerImage());
+        return clamp(msPerImage * config.getSafetyFactor(), config.getVlmMinSeconds(), config.getVlmMaxSeconds());
+    }
+
+    /**
+     * Dify 写入超时：按请求体大小推算（Dify 耗时不记录到任务表，不使用历史分位数）
+     *
+     * @param requestBytes 请求体大小（字节）
+     */
+    public Duration difyTimeout(long requestBytes) {
+        AppProperties.TimeoutConfig config = appProperties.getTimeout();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return Duration.ofSeconds(config.getDifyMaxSeconds());
+        }
+        double estimate = config.getDifyMsPerMb() * requestBytes / BYTES_PER_MB;
+        return clamp(estimate * config.getSafetyFactor(), config.getDifyMinSeconds(), config.getDifyMaxSeconds());
+    }
+
+    private double unitCost(Double historical, Long samples, long defaultCost) {
+        int minSamples = appProperties.getTimeout().getHistoryMinSamples();
+        if (historical != null && historical > 0 && samples != null && samples >= minSamples) {
+            return historical;
+        }
+        return defaultCost;
+    }
+
+    private Duration clamp(double millis, long minSeconds, long maxSeconds) {
+        long bounded = Math.max(minSeconds * 1000, Math.min(maxSeconds * 1000, Math.round(millis)));
+        return Duration.ofMillis(bounded);
+    }
+
+    /**
+     * 分位数按配置时间缓存，避免每次调用都扫描任务表
+     * 是否重新统计只看上次尝试的时间：统计失败且无缓存时同样按刷新间隔推迟重试，不会每次调用都查库
+     */
+    private TaskLatencyPercentiles getPercentiles() {
+        AppProperties.TimeoutConfig config = appProperties.getTimeout();
+        long now = System.currentTimeMillis();
+        if (percentilesFittedAt == 0 || now - percentilesFittedAt > config.getHistoryCacheSeconds() * 1000) {
+            try {
+                cachedPercentiles = taskRepository.fitLatencyPercentiles(config.getPercentile(),
+                        Math.max(1, config.getVlmConcurrency()), config.getHistoryWindow());
+                percentilesFittedAt = now;
+                log.info("历史耗时分位数已更新: MinerU {} ms/页（{} 样本）, {} ms/文本页（{} 样本）, {} ms/图片（{} 样本）, {} ms/MB（{} 样本）, VLM {} ms/张（{} 样本）",
+                        cachedPercentiles.getMineruMsPerPage(), cachedPercentiles.getMineruPageSamples(),
+                        cachedPercentiles.getMineruMsPerTextPage(), cachedPercentiles.getMineruTextPageSamples(),
+                        cachedPercentiles.getMineruMsPerImage(), cachedPercentiles.getMineruImageSamples(),
+                        cachedPercentiles.getMineruMsPerMb(), cachedPercentiles.getMineruSizeSamples(),
+                        cachedPercentiles.getVlmMsPerImage(), cachedPercentiles.getVlmSamples());
+            } catch (Exception e) {
+                // 统计失败时推迟重试，期间沿用上次结果或默认单位耗时
+                percentilesFittedAt = now;
+                log.warn("统计历史耗时分位数失败: {}", e.getMessage());
+            }
+        }
+        return cachedPercentiles;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.ingest.service;
+
+import com.example.ingest.client.VlmClient;
+import com.example.ingest.config.AppProperties;
+import com.example.ingest.entity.IngestImage;
+import com.example.ingest.entity.VlmResultCacheEntry;
+import com.example.ingest.model.ImageHandle;
+import com.example.ingest.repository.IngestImageRepository;
+import com.example.ingest.repository.VlmResultCacheRepository;
+import com.example.ingest.util.Hashes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * VLM 图片分析结果缓存服务
+ * 以「图片内容 SHA-256 + VLM 模型 + 提示词哈希」寻址，同一图片在不同文档、文档的不同版本中重复出现时跳过 VLM 请求：
+ * 进程内 LRU 作为一级缓存，Postgres 作为二级缓存（跨实例、跨重启共享）
+ * 缓存键不含图片周围的上下文文本：上下文只用于辅助描述，同一图片的分析结果跨文档复用
+ *
+ * @author HarryReid(黄药师)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VlmResultCacheService {
+
+    private final VlmResultCacheRepository vlmResultCacheRepository;
+    private final IngestImageRepository ingestImageRepository;
+    private final AppProperties appProperties;
+    private final MeterRegistry meterRegistry;
+
+    /** 一级缓存：缓存键 -> 分析结果，按访问顺序淘汰 */
+    private final Map<String, VlmClient.ImageAnalysisResult> localCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VlmClient.ImageAnalysisResult> eldest) {
+            return size() > Math.max(0, appProperties.getVlmCache().getL1MaxEntries());
+        }
+    };
+
+    /**
+     * 解析图片内容哈希：优先使用本地图片数据中的哈希，其余（如解析缓存命中）按 MinIO URL 查询图片记录
+     *
+     * @param imageUrls 图片 URL
+     * @param images 图片 URL -> 本地图片数据
+     * @return 图片 URL -> 内容 SHA-256（仅包含哈希已知的图片）
+     */
+    public Map<String, String> resolveHashes(Collection<String> imageUrls, Map<String, ? extends ImageHandle> images) {
+        Map<String, String> hashes = new HashMap<>();
+        if (!isEnabled()) {
+            return hashes;
+        }
+
+        List<String> unresolved = new ArrayList<>();
+        for (String url : imageUrls) {
+            ImageHandle image = images.get(url);
+            if (image != null && image.getSha256() != null) {
+                hashes.put(url, image.getSha256());
+            } else {
+                unresolved.add(url);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            try {
+                for (IngestImage record : ingestImageRepository.findByMinioUrlIn(unresolved)) {
+                    if (record.getSha256() != null) {
+                        hashes.put(record.getMinioUrl(), record.getSha256());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("查询图片内容哈希失败，相关图片不使用 VLM 结果缓存: {}", e.getMessage());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * 批量查询缓存，先查一级缓存，未命中的再批量查询数据库
+     * 未启用或读取失败时返回空结果
+     *
+     * @param imageHashes 图片内容 SHA-256
+     * @return 图片内容 SHA-256 -> 缓存的分析结果（仅包含命中的图片）
+     */
+    public Map<String, VlmClient.ImageAnalysisResult> getAll(Collection<String> imageHashes) {
+        Map<String, VlmClient.ImageAnalysisResult> results = new HashMap<>();
+        if (!isEnabled() || imageHashes.isEmpty()) {
+            return results;
+        }
+
+        String model = appProperties.getVlm().getModel();
+        String promptHash = promptHash();
+        Map<String, String> keyToHash = new HashMap<>();
+        for (String imageHash : new LinkedHashSet<>(imageHashes)) {
+            String cacheKey = buildKey(imageHash, model, promptHash);
+            VlmClient.ImageAnalysisResult cached;
+            synchronized (localCache) {
+                cached = localCache.get(cacheKey);
+            }
+            if (cached != null) {
+                results.put(imageHash, cached);
+            } else {
+                keyToHash.put(cacheKey, imageHash);
+            }
+        }
+        int localHits = results.size();
+
+        if (!keyToHash.isEmpty()) {
+            try {
+                List<String> hitKeys = new ArrayList<>();
+                for (VlmResultCacheEntry entry : vlmResultCacheRepository.findAllById(keyToHash.keySet())) {
+                    VlmClient.ImageAnalysisResult result = toResult(entry);
+                    results.put(keyToHash.get(entry.getCacheKey()), result);
+                    hitKeys.add(entry.getCacheKey());
+                    synchronized (localCache) {
+                        localCache.put(entry.getCacheKey(), result);
+                    }
+                }
+                if (!hitKeys.isEmpty()) {
+                    vlmResultCacheRepository.touch(hitKeys);
+                }
+            } catch (Exception e) {
+                counter("error").increment();
+                log.warn("读取 VLM 结果缓存失败，回退到 VLM 分析", e);
+            }
+        }
+
+        Set<String> distinct = new LinkedHashSet<>(imageHashes);
+        counter("l1_hit").increment(localHits);
+        counter("l2_hit").increment(results.size() - localHits);
+        counter("miss").increment(distinct.size() - results.size());
+        log.info("VLM 结果缓存查询: 共 {} 张, 一级缓存命中 {} 张, 数据库命中 {} 张",
+                distinct.size(), localHits, results.size() - localHits);
+        return results;
+    }
+
+    /**
+     * 写入缓存（仅缓存成功的分析结果），并按条目上限淘汰最久未访问的条目
+     * 写入失败只记录日志，不影响入库主流程
+     *
+     * @param imageHash 图片内容 SHA-256
+     * @param result 分析结果
+     */
+    public void put(String imageHash, VlmClient.ImageAnalysisResult result) {
+        if (!isEnabled() || imageHash == null || result == null || !result.isSuccess()) {
+            return;
+        }
+
+        String model = appProperties.getVlm().getModel();
+        String promptHash = promptHash();
+        String cacheKey = buildKey(imageHash, model, promptHash);
+        synchronized (localCache) {
+            localCache.put(cacheKey, result);
+        }
+        try {
+            vlmResultCacheRepository.upsert(cacheKey, imageHash, model, promptHash,
+                    result.getDescription(), result.getOcrText(), result.getDuration());
+        } catch (Exception e) {
+            log.warn("写入 VLM 结果缓存失败: {}", cacheKey, e);
+        }
+    }
+
+    /**
+     * 按条目上限淘汰最久未访问的条目，每个任务写入完成后调用一次
+     */
+    public void evictIfNeeded() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            int evicted = vlmResultCacheRepository.evictBeyond(appProperties.getVlmCache().getMaxEntries());
+            if (evicted > 0) {
+                counter("evict").increment(evicted);
+                log.info("VLM 结果缓存超出条目上限 {}，淘汰 {} 条", appProperties.getVlmCache().getMaxEntries(), evicted);
+            }
+        } catch (Exception e) {
+            log.warn("清理 VLM 结果缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(appProperties.getVlmCache().getEnabled());
+    }
+
+    private VlmClient.ImageAnalysisResult toResult(VlmResultCacheEntry entry) {
+        return VlmClient.ImageAnalysisResult.builder()
+                .imageName(entry.getImageSha256())
+                .description(entry.getDescription())
+                .ocrText(entry.getOcrText() != null ? entry.getOcrText() : "")
+                .success(true)
+                .duration(entry.getDuration() != null ? entry.getDuration() : 0L)
+                .build();
+    }
+
+    /**
+     * 缓存键：SHA-256(图片内容哈希 | 模型 | 提示词哈希)
+     */
+    private String buildKey(String imageHash, String model, String promptHash) {
+        return Hashes.sha256(imageHash + "|" + model + "|" + promptHash);
+    }
+
+    private String promptHash() {
+        String prompt = appProperties.getVlm().getPrompt();
+        return Hashes.sha256(prompt != null ? prompt : "");
+    }
+
+    private Counter counter(String result) {
+        return meterRegistry.counter("ingest.vlm.cache", "result", result);
+    }
+}
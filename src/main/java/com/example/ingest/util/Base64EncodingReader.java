@@ -0,0 +1,80 @@
+package com.example.ingest.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 边读取边编码的 base64 Reader
+ * 用于把输入流作为 JSON 字符串值交给生成器写出（JsonGenerator.writeString(Reader, -1)），
+ * 不在内存中拼接完整的 base64 字符串：先输出前缀（如 data:image/png;base64,），再按固定大小的块编码输入流
+ */
+public class Base64EncodingReader extends Reader {
+
+    private static final int CHUNK_BYTES = 6144;  // 必须是 3 的倍数，只有最后一块带填充
+
+    private final InputStream in;
+    private final byte[] raw = new byte[CHUNK_BYTES];
+    private final Base64.Encoder encoder = Base64.getEncoder();
+
+    private byte[] encoded;
+    private int encodedLength;
+    private int position = 0;
+    private boolean eof = false;
+
+    /**
+     * @param prefix 编码内容之前输出的前缀，可为空串
+     * @param in 待编码的输入流（由本 Reader 关闭）
+     */
+    public Base64EncodingReader(String prefix, InputStream in) {
+        this.in = in;
+        this.encoded = prefix.getBytes(StandardCharsets.US_ASCII);
+        this.encodedLength = encoded.length;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == encodedLength && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, encodedLength - position);
+        for (int i = 0; i < n; i++) {
+            // base64 与前缀均为 ASCII，字节即字符
+            cbuf[off + i] = (char) encoded[position + i];
+        }
+        position += n;
+        return n;
+    }
+
+    /**
+     * 读取并编码下一块，输入流已读完时返回 false
+     */
+    private boolean fill() throws IOException {
+        while (!eof) {
+            int n = in.readNBytes(raw, 0, CHUNK_BYTES);
+            if (n < CHUNK_BYTES) {
+                eof = true;
+            }
+            if (n > 0) {
+                if (encoded.length < CHUNK_BYTES / 3 * 4) {
+                    encoded = new byte[CHUNK_BYTES / 3 * 4];
+                }
+                encodedLength = encoder.encode(n == CHUNK_BYTES ? raw : Arrays.copyOf(raw, n), encoded);
+                position = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.ingest.util;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 去掉 JSON 字符串值开头 data URI 前缀的输入流
+ * 用于让 JsonParser.readBinaryValue 直接从响应流分块解码图片 base64（不经过 TextBuffer 拼接完整字符串），
+ * 而 Jackson 的 base64 解码不接受 data:image/xxx;base64, 前缀：
+ * 按字节跟踪 JSON 字符串与转义状态，在未转义的开引号之后若紧跟 data:...,（不超过 {@value #MAX_PREFIX_BYTES} 字节）则丢弃该前缀。
+ * 字符串内转义的引号（如 content_list 中以字符串形式嵌套的 JSON）不会被视为开引号
+ */
+public class DataUriStrippingInputStream extends FilterInputStream {
+
+    private static final int MAX_PREFIX_BYTES = 128;
+    private static final byte[] SCHEME = {'d', 'a', 't', 'a', ':'};
+
+    private final byte[] lookahead = new byte[MAX_PREFIX_BYTES];
+    private int lookaheadPos = 0;
+    private int lookaheadLength = 0;
+
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    public DataUriStrippingInputStream(InputStream in) {
+        super(new BufferedInputStream(in));
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = next();
+        if (b == -1) {
+            return -1;
+        }
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (b == '\\') {
+                escaped = true;
+            } else if (b == '"') {
+                inString = false;
+            }
+        } else if (b == '"') {
+            inString = true;
+            if (lookaheadPos == lookaheadLength) {
+                skipPrefix();
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < len) {
+            int c = read();
+            if (c == -1) {
+                break;
+            }
+            b[off + n++] = (byte) c;
+            if (lookaheadPos == lookaheadLength && in.available() == 0) {
+                // 不为凑满缓冲区而阻塞
+                break;
+            }
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() != -1) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return lookaheadLength - lookaheadPos + in.available();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private int next() throws IOException {
+        if (lookaheadPos < lookaheadLength) {
+            return lookahead[lookaheadPos++] & 0xFF;
+        }
+        return in.read();
+    }
+
+    /**
+     * 读取开引号之后的字节：是 data URI 前缀（data: 开头、逗号结尾，中间没有引号与转义）时丢弃，否则放回
+     */
+    private void skipPrefix() throws IOException {
+        int length = 0;
+        while (length < MAX_PREFIX_BYTES) {
+            int b = in.read();
+            if (b == -1) {
+                break;
+            }
+            lookahead[length++] = (byte) b;
+            if (length <= SCHEME.length) {
+                if (b != SCHEME[length - 1]) {
+                    break;
+                }
+            } else if (b == ',') {
+                // 整个前缀丢弃
+                length = 0;
+                break;
+            } else if (b == '"' || b == '\\') {
+                break;
+            }
+        }
+        lookaheadPos = 0;
+        lookaheadLength = length;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.ingest.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 按总大小限制的本地磁盘 LRU 缓存
+ * 每个缓存项是目录下的一个文件，以修改时间作为最近访问时间（命中时刷新）；
+ * 总大小由计数器维护，只在创建时与超出上限时扫描目录：淘汰最久未访问的文件直到低于上限的 90%，
+ * 避免每次写入都列目录排序，也避免刚好超限时每次写入都触发淘汰。
+ * 计数器在并发写入同一键或目录被外部清理时会有偏差，每次淘汰扫描时按实际文件重新校准
+ */
+public class DiskLruCache {
+
+    /** 淘汰后保留的容量比例 */
+    private static final double LOW_WATER_RATIO = 0.9;
+
+    private final Path dir;
+    private final String suffix;
+    private final long maxBytes;
+    private final IntConsumer onEvict;
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    /**
+     * @param dir 缓存目录（不存在时创建）
+     * @param suffix 缓存文件后缀（如 .pdf），目录中其他文件不计入容量也不会被淘汰
+     * @param maxBytes 容量上限（字节）
+     * @param onEvict 发生淘汰时回调淘汰的文件数
+     */
+    public DiskLruCache(Path dir, String suffix, long maxBytes, IntConsumer onEvict) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.suffix = suffix;
+        this.maxBytes = maxBytes;
+        this.onEvict = onEvict;
+        long total = 0;
+        for (Entry entry : listEntries()) {
+            total += entry.size();
+        }
+        totalBytes.set(total);
+    }
+
+    /**
+     * 查询缓存，命中时刷新访问时间
+     *
+     * @param key 缓存键（作为文件名，不含后缀）
+     * @return 缓存文件，未命中时返回 null
+     */
+    public Path get(String key) throws IOException {
+        Path path = path(key);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        return path;
+    }
+
+    /**
+     * 在缓存目录下创建写入用的临时文件（与缓存文件同一文件系统，便于原子移动）
+     *
+     * @param key 缓存键
+     */
+    public Path createTempFile(String key) throws IOException {
+        return Files.createTempFile(dir, key + "-", suffix + ".tmp");
+    }
+
+    /**
+     * 将写完的临时文件原子移动为缓存文件，并发写入同一键时不会读到半截文件；超出上限时淘汰
+     *
+     * @param key 缓存键
+     * @param written 由 {@link #createTempFile(String)} 创建并写完的临时文件
+     * @return 缓存文件
+     */
+    public Path put(String key, Path written) throws IOException {
+        Path path = path(key);
+        long size = Files.size(written);
+        long replaced = Files.exists(path) ? sizeOf(path) : 0L;
+        Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (totalBytes.addAndGet(size - replaced) > maxBytes) {
+            evict();
+        }
+        return path;
+    }
+
+    /**
+     * 当前计数的缓存总大小（字节）
+     */
+    public long size() {
+        return totalBytes.get();
+    }
+
+    /**
+     * 扫描目录校准总大小，淘汰最久未访问的文件直到低于低水位
+     */
+    private synchronized void evict() throws IOException {
+        if (totalBytes.get() <= maxBytes) {
+            // 其他线程刚完成淘汰
+            return;
+        }
+        List<Entry> entries = listEntries();
+        entries.sort(Comparator.comparingLong(Entry::lastModified));
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size();
+        }
+
+        long target = (long) (maxBytes * LOW_WATER_RATIO);
+        int evicted = 0;
+        for (Entry entry : entries) {
+            if (total <= target) {
+                break;
+            }
+            if (Files.deleteIfExists(entry.path())) {
+                evicted++;
+            }
+            total -= entry.size();
+        }
+        totalBytes.set(total);
+        if (evicted > 0) {
+            onEvict.accept(evicted);
+        }
+    }
+
+    private List<Entry> listEntries() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                if (!path.getFileName().toString().endsWith(suffix)) {
+                    continue;
+                }
+                try {
+                    entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } catch (IOException e) {
+                    // 扫描期间被其他线程淘汰或替换
+                }
+            }
+        }
+        return entries;
+    }
+
+    private Path path(String key) {
+        return dir.resolve(key + suffix);
+    }
+
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private record Entry(Path path, long size, long lastModified) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.ingest.util;
+
+import com.example.ingest.model.DocumentBlock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 文档块工具类
+ * 没有 content_list 的来源（解析缓存、PDFBox 快速提取、原生提取、旧版本 MinerU）单遍切分 Markdown 得到文档块，
+ * 以及将文档块渲染回 Markdown
+ */
+public class DocumentBlocks {
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.+)$");
+    private static final Pattern IMAGE = Pattern.compile("!\\[([^\\]]*)\\]\\(([^)\\s]+)\\)");
+
+    /**
+     * 单遍切分 Markdown：空行分段；标题、独占一段的代码块、$$ 公式、HTML/Markdown 表格各自成块；
+     * 段落中的图片引用拆为独立的图片块
+     *
+     * @param markdown Markdown 文本
+     * @return 文档块（无页码）
+     */
+    public static List<DocumentBlock> fromMarkdown(String markdown) {
+        List<DocumentBlock> blocks = new ArrayList<>();
+        if (markdown == null || markdown.isEmpty()) {
+            return blocks;
+        }
+
+        String[] lines = markdown.split("\n", -1);
+        StringBuilder paragraph = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                flushParagraph(blocks, paragraph);
+                continue;
+            }
+
+            if (trimmed.startsWith("```")) {
+                flushParagraph(blocks, paragraph);
+                int end = findEnd(lines, i, l -> l.startsWith("```"));
+                blocks.add(block(DocumentBlock.Type.PARAGRAPH, join(lines, i, end)));
+                i = end;
+            } else if (trimmed.startsWith("$$")) {
+                flushParagraph(blocks, paragraph);
+                int end = trimmed.length() > 2 && trimmed.endsWith("$$") ? i : findEnd(lines, i, l -> l.endsWith("$$"));
+                blocks.add(block(DocumentBlock.Type.EQUATION, join(lines, i, end)));
+                i = end;
+            } else if (startsWithIgnoreCase(trimmed, "<table") || startsWithIgnoreCase(trimmed, "<html")) {
+                flushParagraph(blocks, paragraph);
+                int end = trimmed.toLowerCase().contains("</table>") ? i : findEnd(lines, i, l -> l.toLowerCase().contains("</table>"));
+                blocks.add(block(DocumentBlock.Type.TABLE, join(lines, i, end)));
+                i = end;
+            } else if (trimmed.startsWith("|") && paragraph.isEmpty()) {
+                int end = i;
+                while (end + 1 < lines.length && lines[end + 1].strip().startsWith("|")) {
+                    end++;
+                }
+                blocks.add(block(DocumentBlock.Type.TABLE, join(lines, i, end)));
+                i = end;
+            } else if (trimmed.startsWith("#") && HEADING.matcher(trimmed).matches()) {
+                flushParagraph(blocks, paragraph);
+                Matcher matcher = HEADING.matcher(trimmed);
+                matcher.matches();
+                blocks.add(DocumentBlock.builder()
+                        .type(DocumentBlock.Type.HEADING)
+                        .level(matcher.group(1).length())
+                        .text(matcher.group(2).strip())
+                        .build());
+            } else if (line.contains("![")) {
+                appendWithImages(blocks, paragraph, line);
+            } else {
+                appendLine(paragraph, line);
+            }
+        }
+        flushParagraph(blocks, paragraph);
+        return blocks;
+    }
+
+    /**
+     * 渲染为 Markdown，块之间空一行
+     */
+    public static String toMarkdown(List<DocumentBlock> blocks) {
+        return blocks.stream()
+                .map(DocumentBlock::toMarkdown)
+                .filter(markdown -> !markdown.isBlank())
+                .collect(Collectors.joining("\n\n"));
+    }
+
+    /**
+     * 行内图片拆为独立图片块，图片前后的文字留在段落中
+     */
+    private static void appendWithImages(List<DocumentBlock> blocks, StringBuilder paragraph, String line) {
+        Matcher matcher = IMAGE.matcher(line);
+        int last = 0;
+        while (matcher.find()) {
+            String before = line.substring(last, matcher.start());
+            if (!before.isBlank()) {
+                appendLine(paragraph, before);
+            }
+            flushParagraph(blocks, paragraph);
+            blocks.add(DocumentBlock.builder()
+                    .type(DocumentBlock.Type.IMAGE)
+                    .alt(matcher.group(1).isEmpty() ? null : matcher.group(1))
+                    .imagePath(matcher.group(2))
+                    .build());
+            last = matcher.end();
+        }
+        String after = line.substring(last);
+        if (!after.isBlank()) {
+            appendLine(paragraph, after);
+        }
+    }
+
+    private static void appendLine(StringBuilder paragraph, String line) {
+        if (!paragraph.isEmpty()) {
+            paragraph.append('\n');
+        }
+        paragraph.append(line);
+    }
+
+    private static void flushParagraph(List<DocumentBlock> blocks, StringBuilder paragraph) {
+        String text = paragraph.toString().strip();
+        if (!text.isEmpty()) {
+            blocks.add(block(DocumentBlock.Type.PARAGRAPH, text));
+        }
+        paragraph.setLength(0);
+    }
+
+    /**
+     * 从 start 的下一行起查找结束行，找不到时到文末为止
+     */
+    private static int findEnd(String[] lines, int start, Predicate<String> isEnd) {
+        for (int i = start + 1; i < lines.length; i++) {
+            if (isEnd.test(lines[i].strip())) {
+                return i;
+            }
+        }
+        return lines.length - 1;
+    }
+
+    private static String join(String[] lines, int start, int end) {
+        StringBuilder text = new StringBuilder();
+        for (int i = start; i <= end; i++) {
+            appendLine(text, lines[i]);
+        }
+        return text.toString().strip();
+    }
+
+    private static boolean startsWithIgnoreCase(String text, String prefix) {
+        return text.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static DocumentBlock block(DocumentBlock.Type type, String text) {
+        return DocumentBlock.builder().type(type).text(text).build();
+    }
+}
@@ -0,0 +1,529 @@
+package com.example.ingest.util;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * DOCX 转 Markdown 工具类
+ * 用 StAX 流式读取 word/document.xml，不构建 DOM：
+ * 1. 标题按段落样式（样式名 heading N / Title、大纲级别）映射为 1~6 级 Markdown 标题
+ * 2. 编号段落按列表级别输出为无序列表，表格输出为 Markdown 表格（首行作表头）
+ * 3. 内嵌图片交给 ImageSink 落地，正文中以 images/{名称} 引用
+ * 公式、图表、SmartArt、文本框、嵌入对象及 ImageSink 不接受的图片格式视为超出支持范围，返回 null 由调用方回退
+ */
+public class DocxMarkdownConverter {
+
+    private static final String W = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String R = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String A = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    private static final String M = "http://schemas.openxmlformats.org/officeDocument/2006/math";
+    private static final String V = "urn:schemas-microsoft-com:vml";
+    private static final String MC = "http://schemas.openxmlformats.org/markup-compatibility/2006";
+    private static final String REL = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String PICTURE_URI = "http://schemas.openxmlformats.org/drawingml/2006/picture";
+
+    private static final Pattern HEADING_STYLE_NAME = Pattern.compile("^heading\\s*([1-9])$");
+
+    /**
+     * 图片落地回调
+     */
+    @FunctionalInterface
+    public interface ImageSink {
+        /**
+         * @param mediaName 图片在 DOCX 中的文件名（如 image1.png）
+         * @param data 图片数据
+         * @return Markdown 中引用的图片名称；格式不支持时返回 null
+         */
+        String accept(String mediaName, InputStream data) throws IOException;
+    }
+
+    /**
+     * 转换为 Markdown
+     *
+     * @param docx DOCX 文件
+     * @param sink 图片落地回调
+     * @return Markdown 文本；包含超出支持范围的内容时返回 null
+     */
+    public static String convert(ZipFile docx, ImageSink sink) throws IOException {
+        ZipEntry document = docx.getEntry("word/document.xml");
+        if (document == null) {
+            throw new IOException("不是有效的 DOCX 文件：缺少 word/document.xml");
+        }
+
+        try {
+            Map<String, Integer> headingStyles = readHeadingStyles(docx);
+            Map<String, String> imageTargets = readImageTargets(docx);
+            try (InputStream in = docx.getInputStream(document)) {
+                return new BodyWriter(docx, headingStyles, imageTargets, sink).write(in);
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("DOCX 解析失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取段落样式的标题级别：样式名 heading N / Title，或样式定义中的大纲级别；继承 basedOn 样式的级别
+     */
+    private static Map<String, Integer> readHeadingStyles(ZipFile docx) throws IOException, XMLStreamException {
+        Map<String, Integer> levels = new HashMap<>();
+        Map<String, String> basedOn = new HashMap<>();
+        ZipEntry entry = docx.getEntry("word/styles.xml");
+        if (entry == null) {
+            return levels;
+        }
+
+        try (InputStream in = docx.getInputStream(entry)) {
+            XMLStreamReader reader = newReader(in);
+            String styleId = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !W.equals(reader.getNamespaceURI())) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "style" -> styleId = "paragraph".equals(attr(reader, W, "type")) ? attr(reader, W, "styleId") : null;
+                    case "name" -> {
+                        String name = attr(reader, W, "val");
+                        if (styleId != null && name != null) {
+                            name = name.trim().toLowerCase(Locale.ROOT);
+                            Matcher matcher = HEADING_STYLE_NAME.matcher(name);
+                            if (matcher.matches()) {
+                                levels.put(styleId, Integer.parseInt(matcher.group(1)));
+                            } else if (name.equals("title")) {
+                                levels.put(styleId, 1);
+                            }
+                        }
+                    }
+                    case "outlineLvl" -> {
+                        Integer level = outlineLevel(reader);
+                        if (styleId != null && level != null) {
+                            levels.putIfAbsent(styleId, level);
+                        }
+                    }
+                    case "basedOn" -> {
+                        if (styleId != null && attr(reader, W, "val") != null) {
+                            basedOn.put(styleId, attr(reader, W, "val"));
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        for (String styleId : basedOn.keySet()) {
+            String parent = styleId;
+            for (int i = 0; i < 10 && !levels.containsKey(styleId) && parent != null; i++) {
+                parent = basedOn.get(parent);
+                if (parent != null && levels.containsKey(parent)) {
+                    levels.put(styleId, levels.get(parent));
+                }
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * 读取正文的图片关系：关系 ID -> zip 条目路径（外部链接图片跳过）
+     */
+    private static Map<String, String> readImageTargets(ZipFile docx) throws IOException, XMLStreamException {
+        Map<String, String> targets = new HashMap<>();
+        ZipEntry entry = docx.getEntry("word/_rels/document.xml.rels");
+        if (entry == null) {
+            return targets;
+        }
+
+        try (InputStream in = docx.getInputStream(entry)) {
+            XMLStreamReader reader = newReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && REL.equals(reader.getNamespaceURI())
+                        && "Relationship".equals(reader.getLocalName())) {
+                    String type = reader.getAttributeValue(null, "Type");
+                    String target = reader.getAttributeValue(null, "Target");
+                    if (type != null && type.endsWith("/image") && target != null
+                            && !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+                        targets.put(reader.getAttributeValue(null, "Id"), resolvePath(target));
+                    }
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 关系目标路径相对 word/ 目录，以 / 开头时相对包根目录
+     */
+    private static String resolvePath(String target) {
+        Deque<String> segments = new ArrayDeque<>();
+        if (!target.startsWith("/")) {
+            segments.add("word");
+        }
+        for (String segment : target.split("/")) {
+            if (segment.equals("..")) {
+                segments.pollLast();
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.add(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static XMLStreamReader newReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static String attr(XMLStreamReader reader, String namespace, String localName) {
+        return reader.getAttributeValue(namespace, localName);
+    }
+
+    /**
+     * 大纲级别 0~8 对应 1~9 级标题，9 表示正文
+     */
+    private static Integer outlineLevel(XMLStreamReader reader) {
+        String val = attr(reader, W, "val");
+        if (val == null) {
+            return null;
+        }
+        try {
+            int level = Integer.parseInt(val);
+            return level >= 0 && level < 9 ? level + 1 : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 正文流式写出
+     */
+    private static class BodyWriter {
+        private final ZipFile docx;
+        private final Map<String, Integer> headingStyles;
+        private final Map<String, String> imageTargets;
+        private final ImageSink sink;
+        private final Map<String, String> imageNames = new HashMap<>();
+
+        private final StringBuilder markdown = new StringBuilder();
+        private final Deque<Table> tables = new ArrayDeque<>();
+        private StringBuilder paragraph;
+        private int headingLevel;
+        private int listLevel;
+        private boolean lastWasListItem;
+        private boolean inPPr;
+        private boolean inRun;
+        private boolean inText;
+
+        private BodyWriter(ZipFile docx, Map<String, Integer> headingStyles, Map<String, String> imageTargets, ImageSink sink) {
+            this.docx = docx;
+            this.headingStyles = headingStyles;
+            this.imageTargets = imageTargets;
+            this.sink = sink;
+        }
+
+        /**
+         * @return Markdown 文本；遇到超出支持范围的内容时返回 null
+         */
+        private String write(InputStream in) throws IOException, XMLStreamException {
+            XMLStreamReader reader = newReader(in);
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if (MC.equals(reader.getNamespaceURI()) && "Fallback".equals(reader.getLocalName())) {
+                            // 兼容性降级内容与 Choice 重复
+                            skipElement(reader);
+                        } else if (!startElement(reader)) {
+                            return null;
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> endElement(reader);
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                        if (inText && paragraph != null) {
+                            paragraph.append(reader.getText());
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            return markdown.toString().strip() + "\n";
+        }
+
+        /**
+         * @return 内容超出支持范围时返回 false
+         */
+        private boolean startElement(XMLStreamReader reader) throws IOException {
+            String ns = reader.getNamespaceURI();
+            String name = reader.getLocalName();
+            if (M.equals(ns) && (name.equals("oMath") || name.equals("oMathPara"))) {
+                return false;
+            }
+            if (A.equals(ns) && name.equals("graphicData")) {
+                return PICTURE_URI.equals(reader.getAttributeValue(null, "uri"));
+            }
+            if (A.equals(ns) && name.equals("blip")) {
+                return appendImage(attr(reader, R, "embed"));
+            }
+            if (V.equals(ns) && name.equals("imagedata")) {
+                return appendImage(attr(reader, R, "id"));
+            }
+            if (!W.equals(ns)) {
+                return true;
+            }
+
+            switch (name) {
+                case "object", "txbxContent" -> {
+                    return false;
+                }
+                case "p" -> {
+                    paragraph = new StringBuilder();
+                    headingLevel = 0;
+                    listLevel = -1;
+                }
+                case "pPr" -> inPPr = true;
+                case "pStyle" -> {
+                    if (inPPr) {
+                        headingLevel = headingStyles.getOrDefault(attr(reader, W, "val"), 0);
+                    }
+                }
+                case "outlineLvl" -> {
+                    Integer level = outlineLevel(reader);
+                    if (inPPr && level != null) {
+                        headingLevel = level;
+                    }
+                }
+                case "numPr" -> {
+                    if (inPPr) {
+                        listLevel = Math.max(listLevel, 0);
+                    }
+                }
+                case "ilvl" -> {
+                    if (inPPr) {
+                        listLevel = parseInt(attr(reader, W, "val"), 0);
+                    }
+                }
+                case "r" -> inRun = true;
+                case "t" -> inText = inRun;
+                case "tab" -> append(inRun ? " " : "");
+                case "br", "cr" -> {
+                    if (inRun && !"page".equals(attr(reader, W, "type"))) {
+                        append("\n");
+                    }
+                }
+                case "noBreakHyphen" -> append(inRun ? "-" : "");
+                case "tbl" -> tables.push(new Table());
+                case "tr" -> {
+                    if (!tables.isEmpty()) {
+                        tables.peek().rows.add(new ArrayList<>());
+                    }
+                }
+                case "tc" -> {
+                    if (!tables.isEmpty()) {
+                        tables.peek().cell = new StringBuilder();
+                        tables.peek().span = 1;
+                    }
+                }
+                case "gridSpan" -> {
+                    if (!tables.isEmpty() && tables.peek().cell != null) {
+                        tables.peek().span = Math.max(1, parseInt(attr(reader, W, "val"), 1));
+                    }
+                }
+                default -> {
+                }
+            }
+            return true;
+        }
+
+        private void endElement(XMLStreamReader reader) {
+            if (!W.equals(reader.getNamespaceURI())) {
+                return;
+            }
+            switch (reader.getLocalName()) {
+                case "pPr" -> inPPr = false;
+                case "r" -> inRun = false;
+                case "t" -> inText = false;
+                case "p" -> endParagraph();
+                case "tc" -> {
+                    Table table = tables.peek();
+                    if (table != null && table.cell != null && !table.rows.isEmpty()) {
+                        List<String> row = table.rows.get(table.rows.size() - 1);
+                        row.add(table.cell.toString());
+                        // 合并单元格补空列，保持列数对齐
+                        for (int i = 1; i < table.span; i++) {
+                            row.add("");
+                        }
+                        table.cell = null;
+                    }
+                }
+                case "tbl" -> endTable();
+                default -> {
+                }
+            }
+        }
+
+        private void endParagraph() {
+            if (paragraph == null) {
+                return;
+            }
+            String text = paragraph.toString().strip();
+            paragraph = null;
+            if (text.isEmpty()) {
+                return;
+            }
+
+            Table table = tables.peek();
+            if (table != null) {
+                if (table.cell != null) {
+                    if (table.cell.length() > 0) {
+                        table.cell.append("<br>");
+                    }
+                    table.cell.append(text.replace("|", "\\|").replace("\n", "<br>"));
+                }
+                return;
+            }
+
+            if (headingLevel > 0) {
+                appendBlock("#".repeat(Math.min(headingLevel, 6)) + " " + text.replace('\n', ' '), false);
+            } else if (listLevel >= 0) {
+                appendBlock("  ".repeat(listLevel) + "- " + text.replace("\n", "\n" + "  ".repeat(listLevel + 1)), true);
+            } else {
+                appendBlock(text, false);
+            }
+        }
+
+        /**
+         * 表格结束：最外层表格输出为 Markdown 表格，嵌套表格的单元格文本并入外层单元格
+         */
+        private void endTable() {
+            Table table = tables.pop();
+            List<List<String>> rows = table.rows.stream().filter(row -> !row.isEmpty()).toList();
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            Table parent = tables.peek();
+            if (parent != null) {
+                if (parent.cell != null) {
+                    for (List<String> row : rows) {
+                        String text = String.join(" ", row).strip();
+                        if (!text.isEmpty()) {
+                            if (parent.cell.length() > 0) {
+                                parent.cell.append("<br>");
+                            }
+                            parent.cell.append(text);
+                        }
+                    }
+                }
+                return;
+            }
+
+            int columns = rows.stream().mapToInt(List::size).max().orElse(0);
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < rows.size(); i++) {
+                appendRow(out, rows.get(i), columns);
+                if (i == 0) {
+                    out.append("\n|").append(" --- |".repeat(columns));
+                }
+                if (i < rows.size() - 1) {
+                    out.append('\n');
+                }
+            }
+            appendBlock(out.toString(), false);
+        }
+
+        private void appendRow(StringBuilder out, List<String> row, int columns) {
+            out.append('|');
+            for (int i = 0; i < columns; i++) {
+                out.append(' ').append(i < row.size() ? row.get(i) : "").append(" |");
+            }
+        }
+
+        /**
+         * 连续列表项之间单换行，其余块之间空一行
+         */
+        private void appendBlock(String block, boolean listItem) {
+            if (markdown.length() > 0) {
+                markdown.append(listItem && lastWasListItem ? "\n" : "\n\n");
+            }
+            markdown.append(block);
+            lastWasListItem = listItem;
+        }
+
+        private void append(String text) {
+            if (paragraph != null) {
+                paragraph.append(text);
+            }
+        }
+
+        /**
+         * 交给 ImageSink 落地并在当前段落插入图片引用，同一关系 ID 只落地一次
+         *
+         * @return 图片格式不支持时返回 false
+         */
+        private boolean appendImage(String relId) throws IOException {
+            String target = relId != null ? imageTargets.get(relId) : null;
+            ZipEntry entry = target != null ? docx.getEntry(target) : null;
+            if (entry == null) {
+                return true;
+            }
+
+            String imageName = imageNames.get(relId);
+            if (imageName == null) {
+                try (InputStream in = docx.getInputStream(entry)) {
+                    imageName = sink.accept(target.substring(target.lastIndexOf('/') + 1), in);
+                }
+                if (imageName == null) {
+                    return false;
+                }
+                imageNames.put(relId, imageName);
+            }
+            append("![](images/" + imageName + ")");
+            return true;
+        }
+
+        private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+
+        private int parseInt(String value, int defaultValue) {
+            try {
+                return value != null ? Integer.parseInt(value) : defaultValue;
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * 正在读取的表格
+     */
+    private static class Table {
+        private final List<List<String>> rows = new ArrayList<>();
+        private StringBuilder cell;
+        private int span;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.ingest.util;
+
+import java.util.List;
+
+/**
+ * 流式生成的提前终止判定
+ * 逐段追加模型输出，出现以下情况时判定应终止生成并截断多余内容：
+ * 1. 重复循环：结尾由同一片段（1~MAX_PERIOD 个字符）连续重复至少 MIN_REPEATS 次，且重复部分不少于 minLoopChars 个字符，
+ *    截断后保留一份该片段；片段中只有一种非空白字符时（目录引导线「.....」「- - -」、分隔线等）不视为循环
+ * 2. 回答已完整：段落标记（如「描述:」「OCR:」）只在行首匹配，按顺序各出现一次即为一份完整回答；
+ *    之后整组标记再次在行首按顺序出现（模型开始重复作答）时，从重复回答的第一个标记处截断。
+ *    OCR 文字中夹带的标记（不在行首，或只出现部分标记）不会终止生成
+ */
+public class GenerationGuard {
+
+    /** 检测的最长重复片段（字符） */
+    private static final int MAX_PERIOD = 200;
+
+    /** 判定为循环的最少连续重复次数 */
+    private static final int MIN_REPEATS = 4;
+
+    private final int minLoopChars;
+    private final List<String> sections;
+    private final StringBuilder text = new StringBuilder();
+
+    /** 是否已出现一份完整回答（全部段落标记各出现一次） */
+    private boolean answerComplete = false;
+    /** 当前这组标记已按顺序匹配的个数 */
+    private int matched = 0;
+    /** 当前这组标记中第一个标记的位置 */
+    private int sequenceStart = -1;
+    /** 继续查找标记的起始位置 */
+    private int scanFrom = 0;
+    private String stopReason;
+
+    /**
+     * @param minLoopChars 判定为循环的重复部分最少字符数
+     * @param sections 按顺序出现的段落标记，为空时不检测回答是否完整
+     */
+    public GenerationGuard(int minLoopChars, List<String> sections) {
+        this.minLoopChars = minLoopChars;
+        this.sections = sections != null ? sections : List.of();
+    }
+
+    /**
+     * 追加一段输出
+     *
+     * @param delta 新生成的文本
+     * @return 是否应终止生成
+     */
+    public boolean append(String delta) {
+        if (stopReason != null) {
+            return true;
+        }
+        if (delta == null || delta.isEmpty()) {
+            return false;
+        }
+        text.append(delta);
+
+        if (checkSectionRestart()) {
+            stopReason = "answer_complete";
+            return true;
+        }
+        int loopStart = findLoopStart();
+        if (loopStart >= 0) {
+            text.setLength(loopStart);
+            stopReason = "repetition";
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前输出（已截断多余内容）
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * 终止原因：repetition（重复循环）、answer_complete（回答已完整），未终止时为 null
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * 按顺序匹配行首的段落标记：第一组为完整回答，第二组完整出现时从其第一个标记处截断
+     */
+    private boolean checkSectionRestart() {
+        if (sections.isEmpty()) {
+            return false;
+        }
+        while (true) {
+            int index = indexOfAtLineStart(sections.get(matched), scanFrom);
+            if (answerComplete && matched > 0) {
+                // 重复回答中途再次出现第一个标记时，从新的位置重新开始匹配
+                int first = indexOfAtLineStart(sections.get(0), scanFrom);
+                if (first >= 0 && (index < 0 || first < index)) {
+                    sequenceStart = first;
+                    matched = 1;
+                    scanFrom = first + sections.get(0).length();
+                    continue;
+                }
+            }
+            if (index < 0) {
+                // 标记可能被拆在两段输出之间，保留结尾一个标记长度重新查找
+                scanFrom = Math.max(scanFrom, text.length() - maxSectionLength());
+                return false;
+            }
+            if (matched == 0) {
+                sequenceStart = index;
+            }
+            matched++;
+            scanFrom = index + sections.get(matched - 1).length();
+            if (matched == sections.size()) {
+                if (answerComplete) {
+                    text.setLength(sequenceStart);
+                    return true;
+                }
+                answerComplete = true;
+                matched = 0;
+            }
+        }
+    }
+
+    /**
+     * 查找位于行首（之前只有空格或制表符）的标记，未找到时返回 -1
+     */
+    private int indexOfAtLineStart(String marker, int from) {
+        int index = text.indexOf(marker, from);
+        while (index >= 0) {
+            int i = index - 1;
+            while (i >= 0 && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) {
+                i--;
+            }
+            if (i < 0 || text.charAt(i) == '\n') {
+                return index;
+            }
+            index = text.indexOf(marker, index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * 查找结尾的重复循环，返回截断位置（保留一份重复片段），没有循环时返回 -1
+     */
+    private int findLoopStart() {
+        int length = text.length();
+        for (int period = 1; period <= MAX_PERIOD && period * MIN_REPEATS <= length; period++) {
+            // run：从结尾向前与前一个周期相同的连续字符数，重复 n 次时 run = (n - 1) * period
+            int required = Math.max((MIN_REPEATS - 1) * period, minLoopChars - period);
+            int run = 0;
+            while (run < required && length - 1 - run - period >= 0
+                    && text.charAt(length - 1 - run) == text.charAt(length - 1 - run - period)) {
+                run++;
+            }
+            if (run >= required && hasDistinctChars(length - period, length)) {
+                // 继续向前找到重复的起点，截断时保留第一份片段
+                while (length - 1 - run - period >= 0
+                        && text.charAt(length - 1 - run) == text.charAt(length - 1 - run - period)) {
+                    run++;
+                }
+                return length - run;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 片段中是否有两种以上的非空白字符
+     */
+    private boolean hasDistinctChars(int start, int end) {
+        int first = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (first < 0) {
+                first = c;
+            } else if (c != first) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int maxSectionLength() {
+        return sections.stream().mapToInt(String::length).max().orElse(0);
+    }
+}
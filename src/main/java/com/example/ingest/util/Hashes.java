@@ -0,0 +1,57 @@
+package com.example.ingest.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 哈希工具类
+ * 文件、图片内容去重与各类缓存键统一使用小写十六进制的 SHA-256
+ */
+public class Hashes {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 创建 SHA-256 摘要，用于边读边写时增量计算
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM 不支持 SHA-256", e);
+        }
+    }
+
+    /**
+     * 完成摘要计算并格式化为小写十六进制
+     */
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 计算字符串（UTF-8）的 SHA-256
+     */
+    public static String sha256(String text) {
+        return HexFormat.of().formatHex(newSha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 读完输入流并计算 SHA-256
+     *
+     * @param in 输入流（由调用方关闭）
+     */
+    public static String sha256(InputStream in) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return hex(digest);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.ingest.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * 图片指纹工具类
+ * 计算图片尺寸、灰度熵与 64 位差值感知哈希（dHash），用于在 VLM 分析前识别装饰性图片与近似重复图片：
+ * 大图按比例降采样读取，只解码几百像素见方的缩略图，不解码完整图片
+ */
+public class ImageFingerprints {
+
+    /** 降采样读取后的长边目标（像素） */
+    private static final int SAMPLE_SIZE = 256;
+
+    /**
+     * 读取图片数据并计算指纹
+     *
+     * @param in 图片数据流（由调用方关闭）
+     * @return 指纹，无法解码时返回 null
+     */
+    public static Fingerprint compute(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / SAMPLE_SIZE);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return compute(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 计算指纹
+     *
+     * @param image 图片（可为降采样后的缩略图）
+     * @param width 原图宽度
+     * @param height 原图高度
+     */
+    public static Fingerprint compute(BufferedImage image, int width, int height) {
+        int sampleWidth = image.getWidth();
+        int sampleHeight = image.getHeight();
+
+        // 灰度直方图熵（0~8 bit），纯色、分隔线等接近 0
+        int[] histogram = new int[256];
+        for (int y = 0; y < sampleHeight; y++) {
+            for (int x = 0; x < sampleWidth; x++) {
+                histogram[gray(image.getRGB(x, y))]++;
+            }
+        }
+        double total = (double) sampleWidth * sampleHeight;
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double p = count / total;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+        }
+
+        // dHash：缩放为 9x8 灰度，逐行比较相邻像素
+        long hash = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                double left = cellGray(image, col, row, 9, 8);
+                double right = cellGray(image, col + 1, row, 9, 8);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return new Fingerprint(width, height, entropy, hash);
+    }
+
+    /**
+     * 两个感知哈希的汉明距离（0~64），越小越相似
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 将图片均分为 cols x rows 个格子，返回指定格子的平均灰度
+     */
+    private static double cellGray(BufferedImage image, int col, int row, int cols, int rows) {
+        int x0 = col * image.getWidth() / cols;
+        int x1 = Math.max(x0 + 1, (col + 1) * image.getWidth() / cols);
+        int y0 = row * image.getHeight() / rows;
+        int y1 = Math.max(y0 + 1, (row + 1) * image.getHeight() / rows);
+        long sum = 0;
+        int count = 0;
+        for (int y = y0; y < Math.min(y1, image.getHeight()); y++) {
+            for (int x = x0; x < Math.min(x1, image.getWidth()); x++) {
+                sum += gray(image.getRGB(x, y));
+                count++;
+            }
+        }
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * ARGB 转灰度，透明像素按白色背景处理
+     */
+    private static int gray(int argb) {
+        int alpha = (argb >>> 24) & 0xFF;
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        int value = (r * 299 + g * 587 + b * 114) / 1000;
+        return (value * alpha + 255 * (255 - alpha)) / 255;
+    }
+
+    /**
+     * 图片指纹
+     *
+     * @param width 原图宽度
+     * @param height 原图高度
+     * @param entropy 灰度熵（bit）
+     * @param hash 64 位差值感知哈希
+     */
+    public record Fingerprint(int width, int height, double entropy, long hash) {
+    }
+}
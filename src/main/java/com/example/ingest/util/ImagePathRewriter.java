@@ -0,0 +1,63 @@
+package com.example.ingest.util;
+
+import java.util.Map;
+
+/**
+ * 图片引用路径改写工具类
+ * 单遍扫描 Markdown 中的 ![alt](path) 引用，按路径查表改写并写入同一个缓冲区，
+ * 耗时与文档长度成正比，与图片数量无关；不在表中的路径原样保留
+ */
+public class ImagePathRewriter {
+
+    /**
+     * 改写图片引用路径
+     *
+     * @param markdown Markdown 文本
+     * @param paths 原路径 -> 新路径
+     * @return 改写后的 Markdown（无需改写时返回原文本）
+     */
+    public static String rewrite(String markdown, Map<String, String> paths) {
+        if (markdown == null || markdown.isEmpty() || paths.isEmpty()) {
+            return markdown;
+        }
+
+        StringBuilder out = null;
+        int copied = 0;
+        int from = 0;
+        int start;
+        while ((start = markdown.indexOf("![", from)) >= 0) {
+            int altEnd = markdown.indexOf(']', start + 2);
+            if (altEnd < 0) {
+                break;
+            }
+            from = altEnd + 1;
+            if (from >= markdown.length() || markdown.charAt(from) != '(') {
+                continue;
+            }
+            int pathStart = from + 1;
+            int pathEnd = pathStart;
+            while (pathEnd < markdown.length() && markdown.charAt(pathEnd) != ')' && !Character.isWhitespace(markdown.charAt(pathEnd))) {
+                pathEnd++;
+            }
+            if (pathEnd >= markdown.length() || markdown.charAt(pathEnd) != ')') {
+                continue;
+            }
+            from = pathEnd + 1;
+
+            String replacement = paths.get(markdown.substring(pathStart, pathEnd));
+            if (replacement == null) {
+                continue;
+            }
+            if (out == null) {
+                out = new StringBuilder(markdown.length() + 64);
+            }
+            out.append(markdown, copied, pathStart).append(replacement);
+            copied = pathEnd;
+        }
+
+        if (out == null) {
+            return markdown;
+        }
+        return out.append(markdown, copied, markdown.length()).toString();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.ingest.util;
+
+import com.example.ingest.model.DocumentBlock;
+import com.example.ingest.model.ParsedImage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 分片解析结果拼接工具类
+ * 将按页分片后分别解析得到的 Markdown 与图片按页序合并为一份完整结果：
+ * 1. 不同分片的同名图片内容（SHA-256）不同时，为后一分片的图片加分片前缀并改写引用
+ * 2. 分片开头重复上一分片最后一个标题（页眉式标题、跨页章节标题）时去除重复
+ * 3. 上一分片末段未以句末标点结束、下一分片以正文开头时，视为跨分片段落直接拼接
+ * 各分片均带有文档块时，文档块按同样规则合并，并将页码换算为整本文档的页码
+ */
+public class MarkdownShardMerger {
+
+    private static final Pattern HEADING = Pattern.compile("^#{1,6}\\s+.*");
+    private static final String SENTENCE_END = "。！？；.!?;:：)）\"”」』|";
+
+    /**
+     * 按分片顺序合并
+     *
+     * @param shards 分片结果（按页序排列）
+     * @return 合并后的 Markdown、图片与文档块
+     */
+    public static Merged merge(List<Shard> shards) {
+        StringBuilder markdown = new StringBuilder();
+        Map<String, ParsedImage> images = new LinkedHashMap<>();
+        List<Map<String, String>> renames = new ArrayList<>();
+        String lastHeading = null;
+
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            String md = shard.markdown() != null ? shard.markdown().strip() : "";
+            Map<String, String> shardRenames = new HashMap<>();
+            renames.add(shardRenames);
+
+            // 1. 图片重名处理
+            for (Map.Entry<String, ParsedImage> entry : shard.images().entrySet()) {
+                String name = entry.getKey();
+                ParsedImage image = entry.getValue();
+                ParsedImage existing = images.get(name);
+                if (existing == null) {
+                    images.put(name, image);
+                } else if (existing.getSha256().equals(image.getSha256())) {
+                    // 同名同内容，保留一份即可
+                    image.delete();
+                } else {
+                    String renamed = "s" + i + "_" + name;
+                    shardRenames.put("images/" + name, "images/" + renamed);
+                    image.setName(renamed);
+                    images.put(renamed, image);
+                }
+            }
+            md = ImagePathRewriter.rewrite(md, shardRenames);
+
+            if (md.isEmpty()) {
+                continue;
+            }
+
+            List<String> lines = new ArrayList<>(md.lines().toList());
+
+            // 2. 去除与上一分片最后一个标题重复的开头标题
+            String firstLine = lines.get(0).strip();
+            if (lastHeading != null && HEADING.matcher(firstLine).matches() && firstLine.equals(lastHeading)) {
+                lines.remove(0);
+                while (!lines.isEmpty() && lines.get(0).isBlank()) {
+                    lines.remove(0);
+                }
+            }
+
+            for (String line : lines) {
+                if (HEADING.matcher(line.strip()).matches()) {
+                    lastHeading = line.strip();
+                }
+            }
+
+            if (lines.isEmpty()) {
+                continue;
+            }
+            String body = String.join("\n", lines);
+
+            // 3. 与上一分片拼接
+            if (markdown.length() > 0) {
+                if (!isParagraphContinuation(markdown, lines.get(0))) {
+                    markdown.append("\n\n");
+                } else if (isAsciiWordChar(markdown.charAt(markdown.length() - 1)) && isAsciiWordChar(body.charAt(0))) {
+                    // 英文单词间补空格，中文直接相连
+                    markdown.append(' ');
+                }
+            }
+            markdown.append(body);
+        }
+
+        List<DocumentBlock> blocks = shards.stream().allMatch(shard -> shard.blocks() != null)
+                ? mergeBlocks(shards, renames) : null;
+        return new Merged(markdown.toString(), images, blocks);
+    }
+
+    /**
+     * 按分片顺序合并文档块：改写重名图片路径、换算页码、去除重复标题、拼接跨分片段落
+     */
+    private static List<DocumentBlock> mergeBlocks(List<Shard> shards, List<Map<String, String>> renames) {
+        List<DocumentBlock> merged = new ArrayList<>();
+        DocumentBlock lastHeading = null;
+
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            Map<String, String> shardRenames = renames.get(i);
+            boolean boundary = i > 0;
+            boolean headingChecked = false;
+            for (DocumentBlock block : shard.blocks()) {
+                if (block.getImagePath() != null && shardRenames.containsKey(block.getImagePath())) {
+                    block.setImagePath(shardRenames.get(block.getImagePath()));
+                }
+                if (block.getPageIndex() >= 0) {
+                    block.setPageIndex(block.getPageIndex() + shard.pageOffset());
+                }
+
+                if (boundary) {
+                    if (!headingChecked) {
+                        headingChecked = true;
+                        if (block.getType() == DocumentBlock.Type.HEADING && lastHeading != null
+                                && block.getLevel() == lastHeading.getLevel() && block.getText().equals(lastHeading.getText())) {
+                            continue;
+                        }
+                    }
+                    boundary = false;
+                    DocumentBlock previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                    if (isParagraphContinuation(previous, block)) {
+                        String text = previous.getText().strip();
+                        String next = block.getText().strip();
+                        boolean space = isAsciiWordChar(text.charAt(text.length() - 1)) && isAsciiWordChar(next.charAt(0));
+                        previous.setText(text + (space ? " " : "") + next);
+                        continue;
+                    }
+                }
+
+                if (block.getType() == DocumentBlock.Type.HEADING) {
+                    lastHeading = block;
+                }
+                merged.add(block);
+            }
+        }
+        return merged;
+    }
+
+    private static boolean isParagraphContinuation(DocumentBlock previous, DocumentBlock next) {
+        if (previous == null || previous.getType() != DocumentBlock.Type.PARAGRAPH || next.getType() != DocumentBlock.Type.PARAGRAPH) {
+            return false;
+        }
+        String lastText = previous.getText().strip();
+        String nextText = next.getText().strip();
+        return !lastText.isEmpty() && !nextText.isEmpty()
+                && isPlainText(lastText) && isPlainText(nextText)
+                && SENTENCE_END.indexOf(lastText.charAt(lastText.length() - 1)) < 0;
+    }
+
+    /**
+     * 上一分片以未结束的正文收尾，且下一分片以正文开头
+     */
+    private static boolean isParagraphContinuation(StringBuilder previous, String nextFirstLine) {
+        int lineStart = previous.lastIndexOf("\n") + 1;
+        String lastLine = previous.substring(lineStart).strip();
+        String next = nextFirstLine.strip();
+        if (lastLine.isEmpty() || next.isEmpty()) {
+            return false;
+        }
+        return isPlainText(lastLine) && isPlainText(next)
+                && SENTENCE_END.indexOf(lastLine.charAt(lastLine.length() - 1)) < 0;
+    }
+
+    private static boolean isAsciiWordChar(char c) {
+        return c < 128 && Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isPlainText(String line) {
+        return !HEADING.matcher(line).matches()
+                && !line.startsWith("!")
+                && !line.startsWith("|")
+                && !line.startsWith("<")
+                && !line.startsWith("$$")
+                && !line.startsWith("```")
+                && !line.startsWith("- ")
+                && !line.startsWith("* ");
+    }
+
+    /**
+     * 单个分片的解析结果
+     *
+     * @param markdown 分片 Markdown
+     * @param images 图片名称 -> 已解码的图片
+     * @param blocks 分片文档块（页码从分片首页算起），无 content_list 时为 null
+     * @param pageOffset 分片首页在整本文档中的页码（从 0 开始）
+     */
+    public record Shard(String markdown, Map<String, ParsedImage> images, List<DocumentBlock> blocks, int pageOffset) {
+        public Shard {
+            images = images != null ? images : Map.of();
+        }
+
+        public Shard(String markdown, Map<String, ParsedImage> images) {
+            this(markdown, images, null, 0);
+        }
+    }
+
+    /**
+     * 合并结果
+     *
+     * @param markdown 完整 Markdown
+     * @param images 图片名称 -> 已解码的图片（按分片顺序）
+     * @param blocks 完整文档块，任一分片无文档块时为 null
+     */
+    public record Merged(String markdown, Map<String, ParsedImage> images, List<DocumentBlock> blocks) {
+    }
+}
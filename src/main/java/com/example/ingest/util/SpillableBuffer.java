@@ -0,0 +1,196 @@
+package com.example.ingest.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * 单生产者 / 单消费者的有界缓冲区
+ * 生产者写入的数据优先放在内存中，内存占用达到上限（消费者读得慢）时溢出到临时文件，
+ * 生产者永远不会因消费者阻塞；消费者按写入顺序读取，先读内存再读溢出文件
+ */
+public class SpillableBuffer implements Closeable {
+
+    private final int memoryLimit;
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+    private int headPos = 0;
+    private int memoryBytes = 0;
+
+    private Path spillPath;
+    private FileChannel spillChannel;
+    private long spillWritePos = 0;
+    private long spillReadPos = 0;
+    private boolean spilling = false;
+    private long spilledBytes = 0;
+
+    private boolean finished = false;
+    private boolean closed = false;
+    private IOException failure;
+
+    private final InputStream inputStream = new BufferInputStream();
+
+    /**
+     * @param memoryLimit 内存中最多缓存的字节数
+     */
+    public SpillableBuffer(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * 生产者写入数据（会拷贝一份，调用方可复用 b）
+     */
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("缓冲区已关闭");
+        }
+        if (len <= 0) {
+            return;
+        }
+
+        // 一旦开始溢出，后续数据必须继续写入文件，直到消费者把文件读完，保证顺序
+        if (!spilling && memoryBytes + len <= memoryLimit) {
+            chunks.add(Arrays.copyOfRange(b, off, off + len));
+            memoryBytes += len;
+        } else {
+            spilling = true;
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            FileChannel channel = getSpillChannel();
+            while (buffer.hasRemaining()) {
+                spillWritePos += channel.write(buffer, spillWritePos);
+            }
+            spilledBytes += len;
+        }
+        notifyAll();
+    }
+
+    /**
+     * 生产者写入完成
+     */
+    public synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * 生产者异常结束，消费者读取时抛出该异常
+     */
+    public synchronized void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    /**
+     * 消费者读取端
+     */
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * 累计溢出到磁盘的字节数
+     */
+    public synchronized long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunks.clear();
+        headPos = 0;
+        memoryBytes = 0;
+        notifyAll();
+        if (spillChannel != null) {
+            spillChannel.close();
+        }
+        if (spillPath != null) {
+            Files.deleteIfExists(spillPath);
+        }
+    }
+
+    private FileChannel getSpillChannel() throws IOException {
+        if (spillChannel == null) {
+            spillPath = Files.createTempFile("dify-ingest-spill-", ".tmp");
+            spillChannel = FileChannel.open(spillPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return spillChannel;
+    }
+
+    private synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (closed) {
+                throw new IOException("缓冲区已关闭");
+            }
+
+            byte[] head = chunks.peek();
+            if (head != null) {
+                int n = Math.min(len, head.length - headPos);
+                System.arraycopy(head, headPos, b, off, n);
+                headPos += n;
+                if (headPos == head.length) {
+                    chunks.poll();
+                    memoryBytes -= head.length;
+                    headPos = 0;
+                }
+                return n;
+            }
+
+            if (spillReadPos < spillWritePos) {
+                int toRead = (int) Math.min(len, spillWritePos - spillReadPos);
+                int n = spillChannel.read(ByteBuffer.wrap(b, off, toRead), spillReadPos);
+                spillReadPos += n;
+                return n;
+            }
+
+            if (spilling) {
+                // 溢出文件已读完且内存为空，后续写入可以重新使用内存
+                spilling = false;
+                spillWritePos = 0;
+                spillReadPos = 0;
+                spillChannel.truncate(0);
+            }
+
+            if (failure != null) {
+                throw new IOException("数据源读取失败: " + failure.getMessage(), failure);
+            }
+            if (finished) {
+                return -1;
+            }
+
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待数据时被中断", e);
+            }
+        }
+    }
+
+    private class BufferInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = SpillableBuffer.this.read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return SpillableBuffer.this.read(b, off, len);
+        }
+    }
+}
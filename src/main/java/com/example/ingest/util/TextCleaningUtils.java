@@ -1,6 +1,9 @@
 package com.example.ingest.util;
 
+import com.example.ingest.model.DocumentBlock;
+
 import java.text.Normalizer;
+import java.util.List;
 
 /**
  * 文本清洗工具类
@@ -21,4 +24,18 @@ public class TextCleaningUtils {
         }
         return Normalizer.normalize(text, Normalizer.Form.NFKC);
     }
+
+    /**
+     * 清洗文档块中的文本（正文、图片说明、标题与脚注），图片路径不做处理
+     *
+     * @param blocks 文档块
+     */
+    public static void cleanBlocks(List<DocumentBlock> blocks) {
+        for (DocumentBlock block : blocks) {
+            block.setText(cleanText(block.getText()));
+            block.setAlt(cleanText(block.getAlt()));
+            block.setCaption(cleanText(block.getCaption()));
+            block.setFootnote(cleanText(block.getFootnote()));
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package com.example.ingest.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 多图 VLM 请求的回答拆分工具类
+ * 批量请求要求模型逐张作答，每张以「### 图片N」单独起行；
+ * 兼容模型常见的变体写法：省略或改用其他标题符号（图片1：、**图片 1**）、标题后直接接正文
+ */
+public class VlmBatchAnswers {
+
+    /** 图片标题：行首可选 # 或 * 标记 + 「图片N」+ 可选的 * 与冒号 */
+    private static final Pattern HEADER = Pattern.compile("(?m)^[ \\t#*]*图片[ \\t]*(\\d+)[ \\t]*\\**[ \\t]*[:：]?\\**[ \\t]*");
+
+    /**
+     * 构建批量回答的格式要求
+     *
+     * @param count 图片数量
+     * @return 追加在提示词后的格式说明
+     */
+    public static String formatInstruction(int count) {
+        StringBuilder sb = new StringBuilder("请对以上 ").append(count)
+                .append(" 张图片按顺序逐张作答，每张图片的回答以「### 图片N」单独一行开头（N 为图片编号），不要合并或遗漏：\n");
+        for (int i = 1; i <= Math.min(count, 2); i++) {
+            sb.append("### 图片").append(i).append("\n描述: （简要描述）\nOCR: （关键文字）\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按图片编号拆分回答
+     *
+     * @param content 模型返回的完整回答
+     * @param count 图片数量
+     * @return 按图片顺序排列的回答，长度为 count；缺失或为空的位置为 null
+     */
+    public static List<String> split(String content, int count) {
+        List<String> answers = new ArrayList<>(Collections.nCopies(count, null));
+        if (content == null || count <= 0) {
+            return answers;
+        }
+
+        // 编号超出范围的标题同样作为上一段的结束位置
+        List<int[]> headers = new ArrayList<>();  // [图片下标, 标题起始, 正文起始]
+        Matcher matcher = HEADER.matcher(content);
+        while (matcher.find()) {
+            int index;
+            try {
+                index = Integer.parseInt(matcher.group(1)) - 1;
+            } catch (NumberFormatException e) {
+                index = -1;
+            }
+            headers.add(new int[]{index, matcher.start(), matcher.end()});
+        }
+
+        for (int i = 0; i < headers.size(); i++) {
+            int[] header = headers.get(i);
+            if (header[0] < 0 || header[0] >= count) {
+                continue;
+            }
+            int end = i + 1 < headers.size() ? headers.get(i + 1)[1] : content.length();
+            String answer = content.substring(header[2], end).trim();
+            // 同一编号重复出现时保留第一段
+            if (!answer.isEmpty() && answers.get(header[0]) == null) {
+                answers.set(header[0], answer);
+            }
+        }
+        return answers;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.ingest.client;
+
+import com.example.ingest.model.DocumentBlock;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MinerU content_list 读取测试
+ */
+class MineruContentListReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MineruContentListReader reader = new MineruContentListReader(objectMapper);
+
+    private static final String CONTENT_LIST = "["
+            + "{\"type\":\"text\",\"text\":\"第一章\",\"text_level\":1,\"page_idx\":0},"
+            + "{\"type\":\"text\",\"text\":\"  正文段落 \",\"page_idx\":0},"
+            + "{\"type\":\"text\",\"text\":\"   \",\"page_idx\":0},"
+            + "{\"type\":\"header\",\"text\":\"页眉\",\"page_idx\":0},"
+            + "{\"type\":\"image\",\"img_path\":\"images/a.png\",\"image_caption\":[\"图 1\",\" \"],\"image_footnote\":[],\"page_idx\":1},"
+            + "{\"type\":\"image\",\"img_path\":\"\",\"page_idx\":1},"
+            + "{\"type\":\"table\",\"table_body\":\"<table></table>\",\"table_caption\":[\"表 1\"],\"img_path\":\"images/t.png\",\"page_idx\":1},"
+            + "{\"type\":\"equation\",\"text\":\"$$x^2$$\",\"page_idx\":2},"
+            + "{\"type\":\"list\",\"list_items\":[\"- 一\",\"- 二\"],\"page_idx\":2},"
+            + "{\"type\":\"code\",\"code_body\":\"print(1)\",\"page_idx\":2}"
+            + "]";
+
+    @Test
+    void testReadArray() throws IOException {
+        List<DocumentBlock> blocks = reader.read(CONTENT_LIST.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(7, blocks.size());
+        assertEquals(DocumentBlock.Type.HEADING, blocks.get(0).getType());
+        assertEquals(1, blocks.get(0).getLevel());
+        assertEquals("正文段落", blocks.get(1).getText());
+        assertEquals(DocumentBlock.Type.PARAGRAPH, blocks.get(1).getType());
+
+        DocumentBlock image = blocks.get(2);
+        assertEquals(DocumentBlock.Type.IMAGE, image.getType());
+        assertEquals("images/a.png", image.getImagePath());
+        assertEquals("图 1", image.getCaption());
+        assertNull(image.getFootnote());
+        assertEquals(1, image.getPageIndex());
+
+        assertEquals(DocumentBlock.Type.TABLE, blocks.get(3).getType());
+        assertEquals("表 1", blocks.get(3).getCaption());
+        assertEquals(DocumentBlock.Type.EQUATION, blocks.get(4).getType());
+        assertEquals("- 一\n- 二", blocks.get(5).getText());
+        assertEquals("```\nprint(1)\n```", blocks.get(6).getText());
+    }
+
+    @Test
+    void testReadSerializedStringField() throws IOException {
+        // /file_parse 的 JSON 响应中 content_list 是序列化后的字符串
+        String json = objectMapper.writeValueAsString(Map.of("content_list", CONTENT_LIST));
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            parser.nextToken();
+            parser.nextToken();
+            parser.nextToken();
+
+            assertEquals(7, reader.read(parser).size());
+        }
+    }
+
+    @Test
+    void testNonArraySkipped() throws IOException {
+        assertTrue(reader.read("{\"type\":\"text\"}".getBytes(StandardCharsets.UTF_8)).isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ingest.client;
+
+import com.example.ingest.exception.MineruException;
+import com.example.ingest.model.DocumentBlock;
+import com.example.ingest.model.MineruParseResponse;
+import com.example.ingest.model.ParsedImage;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MinerU /file_parse 响应流式读取测试
+ */
+class MineruResponseReaderTest {
+
+    private final MineruResponseReader reader = new MineruResponseReader(new ObjectMapper());
+
+    @Test
+    void testReadsMarkdownImagesAndContentList() throws Exception {
+        byte[] small = "PNGDATA".getBytes(StandardCharsets.UTF_8);
+        byte[] large = randomBytes(50_000);
+        String json = "{\"backend\":\"pipeline\",\"results\":{\"doc\":{"
+                + "\"middle_json\":{\"pdf_info\":[{\"page\":1}]},"
+                + "\"md_content\":\"# 标题\\n\\n![](images/a.png)\","
+                + "\"content_list\":\"[{\\\"type\\\":\\\"text\\\",\\\"text\\\":\\\"标题\\\",\\\"text_level\\\":1,\\\"page_idx\\\":0}]\","
+                + "\"images\":{\"a.png\":\"data:image/png;base64," + Base64.getEncoder().encodeToString(small) + "\","
+                + "\"b.jpg\":\"" + Base64.getMimeEncoder().encodeToString(large).replace("\r\n", "\\r\\n") + "\"}"
+                + "}},\"version\":\"2.5\"}";
+
+        MineruParseResponse response = reader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        MineruParseResponse.FileResult result = response.getResults().get("doc");
+        try {
+            assertEquals("# 标题\n\n![](images/a.png)", result.getMdContent());
+            List<DocumentBlock> blocks = result.getBlocks();
+            assertEquals(1, blocks.size());
+            assertEquals(DocumentBlock.Type.HEADING, blocks.get(0).getType());
+
+            assertImage(small, result.getImages().get("a.png"));
+            assertImage(large, result.getImages().get("b.jpg"));
+        } finally {
+            result.getImages().values().forEach(ParsedImage::delete);
+        }
+    }
+
+    @Test
+    void testImageBypassesStringLengthLimit() throws Exception {
+        // 图片不经过 TextBuffer 拼接，不受字符串长度限制
+        ObjectMapper limited = new ObjectMapper(JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(1000).build())
+                .build());
+        byte[] large = randomBytes(50_000);
+        String json = "{\"results\":{\"doc\":{\"images\":{\"a.png\":\"data:image/png;base64,"
+                + Base64.getEncoder().encodeToString(large) + "\"}}}}";
+
+        MineruParseResponse.FileResult result = new MineruResponseReader(limited)
+                .read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).getResults().get("doc");
+        try {
+            assertImage(large, result.getImages().get("a.png"));
+        } finally {
+            result.getImages().values().forEach(ParsedImage::delete);
+        }
+    }
+
+    @Test
+    void testMalformedImageDeletesTempFiles() throws IOException {
+        String id = UUID.randomUUID().toString();
+        String json = "{\"results\":{\"doc\":{\"images\":{"
+                + "\"ok-" + id + ".png\":\"" + Base64.getEncoder().encodeToString(randomBytes(1000)) + "\","
+                + "\"bad-" + id + ".png\":\"data:image/png;base64,@@@@\"}}}}";
+
+        assertThrows(IOException.class, () -> reader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(0, countTempFiles(id));
+    }
+
+    @Test
+    void testUnexpectedRootFails() {
+        assertThrows(MineruException.class, () -> reader.read(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private void assertImage(byte[] expected, ParsedImage image) throws Exception {
+        assertNotNull(image);
+        assertArrayEquals(expected, Files.readAllBytes(image.getFile().toPath()));
+        assertEquals(expected.length, image.getSize());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(expected)), image.getSha256());
+    }
+
+    private long countTempFiles(String id) throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(p -> p.getFileName().toString().contains(id)).count();
+        }
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(7).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ingest.client;
+
+import com.example.ingest.model.DocumentBlock;
+import com.example.ingest.model.MineruParseResponse;
+import com.example.ingest.model.ParsedImage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MinerU zip 响应读取测试
+ */
+class MineruZipResponseReaderTest {
+
+    private final MineruZipResponseReader reader = new MineruZipResponseReader(new ObjectMapper());
+
+    @Test
+    void testReadsLocalLayout() throws Exception {
+        byte[] image = randomBytes(20_000);
+        byte[] zip = zip(
+                "doc/auto/doc.md", "# 标题\n\n![](images/a.png)".getBytes(StandardCharsets.UTF_8),
+                "doc/auto/doc_content_list.json", "[{\"type\":\"image\",\"img_path\":\"images/a.png\",\"page_idx\":2}]".getBytes(StandardCharsets.UTF_8),
+                "doc/auto/doc_middle.json", "{}".getBytes(StandardCharsets.UTF_8),
+                "doc/auto/images/a.png", image);
+
+        MineruParseResponse response = reader.read(new ByteArrayInputStream(zip));
+        MineruParseResponse.FileResult result = response.getResults().get("doc/auto/");
+        try {
+            assertEquals(1, response.getResults().size());
+            assertEquals("# 标题\n\n![](images/a.png)", result.getMdContent());
+            assertEquals(1, result.getBlocks().size());
+            assertEquals(DocumentBlock.Type.IMAGE, result.getBlocks().get(0).getType());
+            assertEquals(2, result.getBlocks().get(0).getPageIndex());
+            assertImage(image, result.getImages().get("a.png"));
+        } finally {
+            result.getImages().values().forEach(ParsedImage::delete);
+        }
+    }
+
+    @Test
+    void testReadsRemoteLayout() throws Exception {
+        byte[] image = randomBytes(3000);
+        byte[] zip = zip(
+                "images/x.jpg", image,
+                "full.md", "正文".getBytes(StandardCharsets.UTF_8));
+
+        MineruParseResponse.FileResult result = reader.read(new ByteArrayInputStream(zip)).getResults().get("");
+        try {
+            assertEquals("正文", result.getMdContent());
+            assertNull(result.getBlocks());
+            assertImage(image, result.getImages().get("x.jpg"));
+        } finally {
+            result.getImages().values().forEach(ParsedImage::delete);
+        }
+    }
+
+    @Test
+    void testTruncatedZipDeletesTempFiles() throws IOException {
+        String id = UUID.randomUUID().toString();
+        byte[] zip = zip(
+                "images/first-" + id + ".png", randomBytes(5000),
+                "images/second-" + id + ".png", randomBytes(200_000));
+        byte[] truncated = Arrays.copyOf(zip, zip.length - 100_000);
+
+        assertThrows(IOException.class, () -> reader.read(new ByteArrayInputStream(truncated)));
+        assertEquals(0, countTempFiles(id));
+    }
+
+    private byte[] zip(Object... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) entries[i]));
+                zip.write((byte[]) entries[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void assertImage(byte[] expected, ParsedImage image) throws Exception {
+        assertNotNull(image);
+        assertArrayEquals(expected, Files.readAllBytes(image.getFile().toPath()));
+        assertEquals(expected.length, image.getSize());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(expected)), image.getSha256());
+    }
+
+    private long countTempFiles(String id) throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(p -> p.getFileName().toString().contains(id)).count();
+        }
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(11).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ingest.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 边读取边编码的 base64 Reader 测试
+ */
+class Base64EncodingReaderTest {
+
+    @Test
+    void testEncodesAcrossChunksWithPrefix() throws IOException {
+        // 覆盖整块、末块带填充与单字符读取
+        for (int size : new int[]{0, 1, 2, 3, 6144, 6145, 20000}) {
+            byte[] data = randomBytes(size);
+            String expected = "data:image/png;base64," + Base64.getEncoder().encodeToString(data);
+
+            assertEquals(expected, readAll(new Base64EncodingReader("data:image/png;base64,", new ByteArrayInputStream(data)), 1 + size % 7));
+        }
+    }
+
+    @Test
+    void testStreamsAsJsonStringValue() throws IOException {
+        byte[] data = randomBytes(50000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName("url");
+            generator.writeString(new Base64EncodingReader("data:image/jpeg;base64,", new ByteArrayInputStream(data)), -1);
+            generator.writeStringField("next", "ok");
+            generator.writeEndObject();
+        }
+
+        JsonNode node = new ObjectMapper().readTree(out.toByteArray());
+        String url = node.get("url").asText();
+        assertTrue(url.startsWith("data:image/jpeg;base64,"));
+        assertArrayEquals(data, Base64.getDecoder().decode(url.substring("data:image/jpeg;base64,".length())));
+        assertEquals("ok", node.get("next").asText());
+    }
+
+    private String readAll(Reader reader, int bufferSize) throws IOException {
+        StringWriter writer = new StringWriter();
+        char[] buffer = new char[bufferSize];
+        try (reader) {
+            int n;
+            while ((n = reader.read(buffer, 0, buffer.length)) != -1) {
+                writer.write(buffer, 0, n);
+            }
+        }
+        return writer.toString();
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
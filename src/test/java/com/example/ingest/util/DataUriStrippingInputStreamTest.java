@@ -0,0 +1,63 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 去掉 JSON 字符串值 data URI 前缀的输入流测试
+ */
+class DataUriStrippingInputStreamTest {
+
+    @Test
+    void testStripsPrefixAtStringStart() throws IOException {
+        assertEquals("{\"a.png\":\"QUJD\",\"b\":\"QQ==\"}",
+                strip("{\"a.png\":\"data:image/png;base64,QUJD\",\"b\":\"data:image/jpeg;base64,QQ==\"}"));
+    }
+
+    @Test
+    void testKeepsOtherStrings() throws IOException {
+        // 非开头、被转义的引号之后、缺少逗号、过长的前缀均保持原样
+        String[] unchanged = {
+                "{\"md\":\"see data:image/png;base64,QUJD\"}",
+                "{\"list\":\"[{\\\"img\\\":\\\"data:x,y\\\"}]\"}",
+                "{\"d\":\"data\",\"e\":\"dat\\\"a:\",\"f\":\"\"}",
+                "{\"d\":\"data:no-comma\"}",
+                "{\"d\":\"data:" + "x".repeat(200) + ",y\"}",
+                "{\"md\":\"中文\\\\\"}",
+        };
+        for (String json : unchanged) {
+            assertEquals(json, strip(json));
+        }
+    }
+
+    @Test
+    void testEscapedBackslashClosesString() throws IOException {
+        // \\" 中的引号未被转义，之后的 data: 出现在新字符串开头
+        assertEquals("{\"a\":\"x\\\\\",\"b\":\"QQ==\"}", strip("{\"a\":\"x\\\\\",\"b\":\"data:image/png;base64,QQ==\"}"));
+    }
+
+    @Test
+    void testByteAtATime() throws IOException {
+        String json = "{\"a\":\"data:image/png;base64,QUJD\"}";
+        StringBuilder out = new StringBuilder();
+        try (InputStream in = new DataUriStrippingInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                out.append((char) b);
+            }
+        }
+        assertEquals("{\"a\":\"QUJD\"}", out.toString());
+    }
+
+    private String strip(String json) throws IOException {
+        try (InputStream in = new DataUriStrippingInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 磁盘 LRU 缓存测试
+ */
+class DiskLruCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPutAndGet() throws Exception {
+        DiskLruCache cache = new DiskLruCache(dir, ".pdf", 1000, evicted -> fail("不应淘汰"));
+        assertNull(cache.get("a"));
+
+        Path cached = cache.put("a", write(cache, "a", 100));
+
+        assertEquals(dir.resolve("a.pdf"), cached);
+        assertEquals(cached, cache.get("a"));
+        assertEquals(100, cache.size());
+        // 临时文件已移动，不残留
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedBelowLowWater() throws Exception {
+        AtomicInteger evictions = new AtomicInteger();
+        DiskLruCache cache = new DiskLruCache(dir, ".pdf", 250, evictions::addAndGet);
+        cache.put("a", write(cache, "a", 100));
+        cache.put("b", write(cache, "b", 100));
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(dir.resolve("a.pdf"), FileTime.fromMillis(now - 7_200_000));
+        Files.setLastModifiedTime(dir.resolve("b.pdf"), FileTime.fromMillis(now - 3_600_000));
+
+        // 命中刷新访问时间，a 变为最近使用
+        assertNotNull(cache.get("a"));
+        cache.put("c", write(cache, "c", 100));
+
+        assertEquals(1, evictions.get());
+        assertTrue(Files.exists(dir.resolve("a.pdf")));
+        assertFalse(Files.exists(dir.resolve("b.pdf")));
+        assertTrue(Files.exists(dir.resolve("c.pdf")));
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    void testCountsExistingFilesAndReplacements() throws Exception {
+        Files.write(dir.resolve("old.pdf"), new byte[300]);
+        Files.write(dir.resolve("other.txt"), new byte[500]);
+
+        DiskLruCache cache = new DiskLruCache(dir, ".pdf", 1000, evicted -> fail("不应淘汰"));
+        assertEquals(300, cache.size());
+
+        cache.put("old", write(cache, "old", 50));
+        assertEquals(50, cache.size());
+    }
+
+    private Path write(DiskLruCache cache, String key, int size) throws Exception {
+        Path temp = cache.createTempFile(key);
+        Files.write(temp, new byte[size]);
+        return temp;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ingest.util;
+
+import com.example.ingest.model.DocumentBlock;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Markdown 切分文档块测试
+ */
+class DocumentBlocksTest {
+
+    @Test
+    void testSplitHeadingsParagraphsAndImages() {
+        List<DocumentBlock> blocks = DocumentBlocks.fromMarkdown("# 第一章\n\n设备启动后\n检查电源。\n\n如图![示意](images/a.jpg)所示\n\n## 1.1 准备");
+
+        assertEquals(6, blocks.size());
+        assertEquals(DocumentBlock.Type.HEADING, blocks.get(0).getType());
+        assertEquals(1, blocks.get(0).getLevel());
+        assertEquals("第一章", blocks.get(0).getText());
+        assertEquals("设备启动后\n检查电源。", blocks.get(1).getText());
+        assertEquals("如图", blocks.get(2).getText());
+        assertEquals(DocumentBlock.Type.IMAGE, blocks.get(3).getType());
+        assertEquals("images/a.jpg", blocks.get(3).getImagePath());
+        assertEquals("示意", blocks.get(3).getAlt());
+        assertEquals("所示", blocks.get(4).getText());
+        assertEquals(2, blocks.get(5).getLevel());
+    }
+
+    @Test
+    void testTablesEquationsAndCodeKeptWhole() {
+        String markdown = "<table><tr><td>a</td></tr>\n\n<tr><td>b</td></tr></table>\n\n| 参数 | 值 |\n| --- | --- |\n\n$$\nx = 1\n\n$$\n\n```\n# 注释\n\n```";
+        List<DocumentBlock> blocks = DocumentBlocks.fromMarkdown(markdown);
+
+        assertEquals(4, blocks.size());
+        assertEquals(DocumentBlock.Type.TABLE, blocks.get(0).getType());
+        assertEquals(DocumentBlock.Type.TABLE, blocks.get(1).getType());
+        assertEquals(DocumentBlock.Type.EQUATION, blocks.get(2).getType());
+        assertEquals(DocumentBlock.Type.PARAGRAPH, blocks.get(3).getType());
+        assertEquals("```\n# 注释\n\n```", blocks.get(3).getText());
+    }
+
+    @Test
+    void testRenderBlocks() {
+        List<DocumentBlock> blocks = List.of(
+                DocumentBlock.builder().type(DocumentBlock.Type.HEADING).level(2).text("说明").build(),
+                DocumentBlock.builder().type(DocumentBlock.Type.IMAGE).imagePath("http://minio/a.jpg").alt("图").caption("图 1").build(),
+                DocumentBlock.builder().type(DocumentBlock.Type.TABLE).imagePath("images/t.jpg").caption("表 1").footnote("注").build());
+
+        assertEquals("## 说明\n\n![图](http://minio/a.jpg)\n图 1\n\n表 1\n![](images/t.jpg)\n注", DocumentBlocks.toMarkdown(blocks));
+    }
+}
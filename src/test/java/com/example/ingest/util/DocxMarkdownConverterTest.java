@@ -0,0 +1,124 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DOCX 转 Markdown 测试
+ */
+class DocxMarkdownConverterTest {
+
+    private static final String NS = "xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\" "
+            + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\" "
+            + "xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\" "
+            + "xmlns:m=\"http://schemas.openxmlformats.org/officeDocument/2006/math\" "
+            + "xmlns:mc=\"http://schemas.openxmlformats.org/markup-compatibility/2006\"";
+
+    private static final String STYLES = "<w:styles " + NS + ">"
+            + "<w:style w:type=\"paragraph\" w:styleId=\"1\"><w:name w:val=\"heading 1\"/></w:style>"
+            + "<w:style w:type=\"paragraph\" w:styleId=\"MyHeading\"><w:name w:val=\"My Heading\"/><w:basedOn w:val=\"1\"/></w:style>"
+            + "<w:style w:type=\"paragraph\" w:styleId=\"Outline\"><w:name w:val=\"Outline\"/><w:pPr><w:outlineLvl w:val=\"1\"/></w:pPr></w:style>"
+            + "</w:styles>";
+
+    private static final String RELS = "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rId5\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/image\" Target=\"media/image1.png\"/>"
+            + "<Relationship Id=\"rId6\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/image\" Target=\"media/image2.emf\"/>"
+            + "</Relationships>";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHeadingsParagraphsAndLists() throws IOException {
+        String markdown = convert(body(
+                "<w:p><w:pPr><w:pStyle w:val=\"1\"/></w:pPr><w:r><w:t>第一章</w:t></w:r></w:p>"
+                        + "<w:p><w:r><w:t xml:space=\"preserve\">设备启动后</w:t></w:r><w:r><w:t>检查电源。</w:t></w:r></w:p>"
+                        + "<w:p><w:pPr><w:pStyle w:val=\"Outline\"/></w:pPr><w:r><w:t>1.1 准备</w:t></w:r></w:p>"
+                        + "<w:p><w:pPr><w:numPr><w:ilvl w:val=\"0\"/><w:numId w:val=\"1\"/></w:numPr></w:pPr><w:r><w:t>步骤一</w:t></w:r></w:p>"
+                        + "<w:p><w:pPr><w:numPr><w:ilvl w:val=\"1\"/><w:numId w:val=\"1\"/></w:numPr></w:pPr><w:r><w:t>子步骤</w:t></w:r></w:p>"
+                        + "<w:p><w:pPr><w:pStyle w:val=\"MyHeading\"/></w:pPr><w:r><w:t>第二章</w:t></w:r></w:p>"),
+                new ArrayList<>());
+
+        assertEquals("# 第一章\n\n设备启动后检查电源。\n\n## 1.1 准备\n\n- 步骤一\n  - 子步骤\n\n# 第二章\n", markdown);
+    }
+
+    @Test
+    void testTableWithMergedCell() throws IOException {
+        String markdown = convert(body("<w:tbl>"
+                        + "<w:tr><w:tc><w:p><w:r><w:t>参数</w:t></w:r></w:p></w:tc><w:tc><w:p><w:r><w:t>值</w:t></w:r></w:p></w:tc></w:tr>"
+                        + "<w:tr><w:tc><w:tcPr><w:gridSpan w:val=\"2\"/></w:tcPr><w:p><w:r><w:t>a|b</w:t></w:r></w:p></w:tc></w:tr>"
+                        + "</w:tbl>"),
+                new ArrayList<>());
+
+        assertEquals("| 参数 | 值 |\n| --- | --- |\n| a\\|b |  |\n", markdown);
+    }
+
+    @Test
+    void testImageReferenceAndFallbackSkipped() throws IOException {
+        List<String> accepted = new ArrayList<>();
+        String markdown = convert(body("<w:p><w:r><w:t>图示：</w:t></w:r><w:r><w:drawing>"
+                        + "<a:graphic><a:graphicData uri=\"http://schemas.openxmlformats.org/drawingml/2006/picture\">"
+                        + "<a:blip r:embed=\"rId5\"/></a:graphicData></a:graphic></w:drawing></w:r></w:p>"
+                        + "<mc:AlternateContent><mc:Choice Requires=\"wps\"><w:p><w:r><w:t>新版</w:t></w:r></w:p></mc:Choice>"
+                        + "<mc:Fallback><w:p><w:r><w:t>旧版</w:t></w:r></w:p></mc:Fallback></mc:AlternateContent>"),
+                accepted);
+
+        assertEquals(List.of("image1.png"), accepted);
+        assertEquals("图示：![](images/hash-image1.png)\n\n新版\n", markdown);
+    }
+
+    @Test
+    void testUnsupportedContentReturnsNull() throws IOException {
+        assertNull(convert(body("<w:p><m:oMath><m:r><m:t>x</m:t></m:r></m:oMath></w:p>"), new ArrayList<>()));
+        assertNull(convert(body("<w:p><w:r><w:pict><v:imagedata xmlns:v=\"urn:schemas-microsoft-com:vml\" r:id=\"rId6\"/></w:pict></w:r></w:p>"),
+                new ArrayList<>()));
+    }
+
+    private String body(String content) {
+        return "<w:document " + NS + "><w:body>" + content + "</w:body></w:document>";
+    }
+
+    /**
+     * 写出最小 DOCX 后转换，png 图片以 hash-{文件名} 命名，其余格式不接受
+     */
+    private String convert(String document, List<String> accepted) throws IOException {
+        Path file = tempDir.resolve("test.docx");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (Map.Entry<String, String> entry : Map.of(
+                    "word/document.xml", document,
+                    "word/styles.xml", STYLES,
+                    "word/_rels/document.xml.rels", RELS,
+                    "word/media/image1.png", "PNG",
+                    "word/media/image2.emf", "EMF").entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+
+        try (ZipFile docx = new ZipFile(file.toFile())) {
+            return DocxMarkdownConverter.convert(docx, (mediaName, data) -> {
+                data.transferTo(OutputStream.nullOutputStream());
+                if (!mediaName.endsWith(".png")) {
+                    return null;
+                }
+                accepted.add(mediaName);
+                return "hash-" + mediaName;
+            });
+        }
+    }
+}
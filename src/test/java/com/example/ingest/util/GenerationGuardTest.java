@@ -0,0 +1,83 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式生成提前终止判定测试
+ */
+class GenerationGuardTest {
+
+    @Test
+    void testRepetitionLoopIsCut() {
+        GenerationGuard guard = new GenerationGuard(40, List.of());
+        assertFalse(guard.append("描述: 系统架构图\nOCR: "));
+
+        boolean stopped = false;
+        for (int i = 0; i < 20 && !stopped; i++) {
+            stopped = guard.append("用户服务、订单服务\n");
+        }
+
+        assertTrue(stopped);
+        assertEquals("repetition", guard.getStopReason());
+        assertEquals("描述: 系统架构图\nOCR: 用户服务、订单服务\n", guard.getText());
+    }
+
+    @Test
+    void testShortRepeatsAreKept() {
+        GenerationGuard guard = new GenerationGuard(40, List.of());
+
+        assertFalse(guard.append("| 名称 | 数量 |\n|---|---|\n| 苹果 | 10 |\n哈哈哈哈"));
+        assertNull(guard.getStopReason());
+    }
+
+    @Test
+    void testLeaderLinesAreKept() {
+        // 目录引导线与分隔线只含一种非空白字符，不视为循环
+        GenerationGuard guard = new GenerationGuard(40, List.of());
+
+        assertFalse(guard.append("目录\n第一章 概述 " + ".".repeat(120) + " 1\n"));
+        assertFalse(guard.append("第二章 设计 " + ". ".repeat(80)));
+        assertFalse(guard.append("\n" + "-".repeat(200)));
+        assertNull(guard.getStopReason());
+    }
+
+    @Test
+    void testRestartedAnswerIsCut() {
+        GenerationGuard guard = new GenerationGuard(40, List.of("描述:", "OCR:"));
+
+        assertFalse(guard.append("描述: 柱状"));
+        assertFalse(guard.append("图\nOCR: 2023 营收\n"));
+        assertFalse(guard.append("\n描述: 这是一张柱状图"));
+        assertTrue(guard.append("\nOCR: 2023"));
+
+        assertEquals("answer_complete", guard.getStopReason());
+        assertEquals("描述: 柱状图\nOCR: 2023 营收\n\n", guard.getText());
+        assertTrue(guard.append("继续"));
+    }
+
+    @Test
+    void testMarkerSplitAcrossDeltas() {
+        GenerationGuard guard = new GenerationGuard(40, List.of("描述:", "OCR:"));
+
+        assertFalse(guard.append("描述: 照片\nOCR: 无\n描"));
+        assertFalse(guard.append("述: 照片\n O"));
+        assertTrue(guard.append("CR: 无"));
+
+        assertEquals("描述: 照片\nOCR: 无\n", guard.getText());
+    }
+
+    @Test
+    void testMarkersInsideOcrTextAreIgnored() {
+        GenerationGuard guard = new GenerationGuard(40, List.of("描述:", "OCR:"));
+
+        assertFalse(guard.append("描述: 工单截图\nOCR: 故障描述: 无法开机"));
+        // 行首的「描述:」单独出现（没有随后的「OCR:」）不算重复作答
+        assertFalse(guard.append("\n描述: 用户反馈设备无法启动\n处理结果: 已更换电源 OCR: 完成"));
+        assertNull(guard.getStopReason());
+        assertTrue(guard.getText().endsWith("OCR: 完成"));
+    }
+}
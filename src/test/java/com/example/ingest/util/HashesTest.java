@@ -0,0 +1,37 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SHA-256 哈希工具测试
+ */
+class HashesTest {
+
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @Test
+    void testSha256OfString() {
+        assertEquals(ABC_SHA256, Hashes.sha256("abc"));
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", Hashes.sha256(""));
+    }
+
+    @Test
+    void testStreamAndIncrementalDigestMatchString() throws Exception {
+        // 超过缓冲区大小，覆盖多次读取
+        String text = "图片内容".repeat(5000);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(Hashes.sha256(text), Hashes.sha256(new ByteArrayInputStream(bytes)));
+
+        MessageDigest digest = Hashes.newSha256();
+        digest.update(bytes, 0, 100);
+        digest.update(bytes, 100, bytes.length - 100);
+        assertEquals(Hashes.sha256(text), Hashes.hex(digest));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片指纹测试
+ */
+class ImageFingerprintsTest {
+
+    @Test
+    void testSolidImageHasZeroEntropy() {
+        BufferedImage image = new BufferedImage(200, 10, BufferedImage.TYPE_INT_RGB);
+        fill(image, Color.GRAY);
+
+        ImageFingerprints.Fingerprint fingerprint = ImageFingerprints.compute(image, 200, 10);
+
+        assertEquals(0.0, fingerprint.entropy(), 1e-9);
+        assertEquals(200, fingerprint.width());
+        assertEquals(10, fingerprint.height());
+    }
+
+    @Test
+    void testNearDuplicatesHaveCloseHashes() {
+        BufferedImage original = gradient(320, 240, 0);
+        BufferedImage shifted = gradient(320, 240, 6);
+        BufferedImage different = gradient(240, 320, 0);
+        mirror(different);
+
+        long a = ImageFingerprints.compute(original, 320, 240).hash();
+        long b = ImageFingerprints.compute(shifted, 320, 240).hash();
+        long c = ImageFingerprints.compute(different, 240, 320).hash();
+
+        assertTrue(ImageFingerprints.distance(a, b) <= 6);
+        assertTrue(ImageFingerprints.distance(a, c) > 10);
+        assertTrue(ImageFingerprints.compute(original, 320, 240).entropy() > 4);
+    }
+
+    @Test
+    void testComputeFromStreamKeepsOriginalSize() throws IOException {
+        File file = Files.createTempFile("fingerprint-", ".png").toFile();
+        try {
+            ImageIO.write(gradient(1600, 900, 0), "png", file);
+
+            ImageFingerprints.Fingerprint fingerprint;
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                fingerprint = ImageFingerprints.compute(in);
+            }
+
+            assertEquals(1600, fingerprint.width());
+            assertEquals(900, fingerprint.height());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void testComputeReturnsNullForNonImage() throws IOException {
+        File file = Files.createTempFile("fingerprint-", ".bin").toFile();
+        try {
+            Files.writeString(file.toPath(), "not an image");
+
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                assertNull(ImageFingerprints.compute(in));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private BufferedImage gradient(int width, int height, int offset) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = Math.min(255, (x * 255 / width + y * 128 / height + offset) % 256);
+                image.setRGB(x, y, new Color(value, value, value).getRGB());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 图案左右翻转，使相邻像素明暗关系整体相反
+     */
+    private void mirror(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth() / 2; x++) {
+                int left = image.getRGB(x, y);
+                image.setRGB(x, y, image.getRGB(image.getWidth() - 1 - x, y));
+                image.setRGB(image.getWidth() - 1 - x, y, left);
+            }
+        }
+    }
+
+    private void fill(BufferedImage image, Color color) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+    }
+}
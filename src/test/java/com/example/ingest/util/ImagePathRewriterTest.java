@@ -0,0 +1,39 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片引用路径改写测试
+ */
+class ImagePathRewriterTest {
+
+    @Test
+    void testRewriteMappedPaths() {
+        String markdown = "前文 ![图1](images/a.jpg) 中间\n\n![](images/b.jpg)\n\n![](images/c.jpg)";
+        String rewritten = ImagePathRewriter.rewrite(markdown, Map.of(
+                "images/a.jpg", "http://minio/a.jpg",
+                "images/c.jpg", "http://minio/c.jpg"));
+
+        assertEquals("前文 ![图1](http://minio/a.jpg) 中间\n\n![](images/b.jpg)\n\n![](http://minio/c.jpg)", rewritten);
+    }
+
+    @Test
+    void testOnlyWholePathsAreRewritten() {
+        String markdown = "![](images/a.jpg.bak) 见 images/a.jpg 与 [链接](images/a.jpg)";
+        String rewritten = ImagePathRewriter.rewrite(markdown, Map.of("images/a.jpg", "x.jpg"));
+
+        assertSame(markdown, rewritten);
+    }
+
+    @Test
+    void testMalformedReferencesAreKept() {
+        String markdown = "![未闭合](images/a.jpg\n![](images/a.jpg)![";
+        String rewritten = ImagePathRewriter.rewrite(markdown, Map.of("images/a.jpg", "x.jpg"));
+
+        assertEquals("![未闭合](images/a.jpg\n![](x.jpg)![", rewritten);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.ingest.util;
+
+import com.example.ingest.model.DocumentBlock;
+import com.example.ingest.model.ParsedImage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分片结果拼接测试
+ */
+class MarkdownShardMergerTest {
+
+    @Test
+    void testRenameCollidingImages() {
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(List.of(
+                new MarkdownShardMerger.Shard("![](images/a.jpg)", Map.of("a.jpg", image("a.jpg", "AAA"))),
+                new MarkdownShardMerger.Shard("![](images/a.jpg)\n\n![](images/b.jpg)",
+                        Map.of("a.jpg", image("a.jpg", "BBB"), "b.jpg", image("b.jpg", "CCC")))));
+
+        assertEquals("![](images/a.jpg)\n\n![](images/s1_a.jpg)\n\n![](images/b.jpg)", merged.markdown());
+        assertEquals(3, merged.images().size());
+        assertEquals("AAA", merged.images().get("a.jpg").getSha256());
+        assertEquals("BBB", merged.images().get("s1_a.jpg").getSha256());
+        assertEquals("s1_a.jpg", merged.images().get("s1_a.jpg").getName());
+    }
+
+    @Test
+    void testSameImageAcrossShardsKeepsName() {
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(List.of(
+                new MarkdownShardMerger.Shard("![](images/logo.jpg)", Map.of("logo.jpg", image("logo.jpg", "LOGO"))),
+                new MarkdownShardMerger.Shard("![](images/logo.jpg)", Map.of("logo.jpg", image("logo.jpg", "LOGO")))));
+
+        assertEquals(1, merged.images().size());
+        assertFalse(merged.markdown().contains("s1_"));
+    }
+
+    @Test
+    void testDropRepeatedBoundaryHeading() {
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(List.of(
+                new MarkdownShardMerger.Shard("# 第一章\n\n内容一。", null),
+                new MarkdownShardMerger.Shard("# 第一章\n\n内容二。", null)));
+
+        assertEquals("# 第一章\n\n内容一。\n\n内容二。", merged.markdown());
+    }
+
+    @Test
+    void testJoinParagraphSplitAcrossShards() {
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(List.of(
+                new MarkdownShardMerger.Shard("## 说明\n\n设备启动后需要先检查", null),
+                new MarkdownShardMerger.Shard("电源指示灯状态。\n\n## 下一节", null)));
+
+        assertEquals("## 说明\n\n设备启动后需要先检查电源指示灯状态。\n\n## 下一节", merged.markdown());
+    }
+
+    @Test
+    void testMergeBlocksWithPageOffsetAndRenamedImages() {
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(List.of(
+                new MarkdownShardMerger.Shard("# 第一章\n\n设备启动后需要先检查\n\n![](images/a.jpg)",
+                        Map.of("a.jpg", image("a.jpg", "AAA")),
+                        List.of(heading("第一章", 0), paragraph("设备启动后需要先检查", 0)), 0),
+                new MarkdownShardMerger.Shard("# 第一章\n\n电源指示灯状态。\n\n![](images/a.jpg)",
+                        Map.of("a.jpg", image("a.jpg", "BBB")),
+                        List.of(heading("第一章", 0), paragraph("电源指示灯状态。", 0),
+                                DocumentBlock.builder().type(DocumentBlock.Type.IMAGE).imagePath("images/a.jpg").pageIndex(1).build()), 50)));
+
+        List<DocumentBlock> blocks = merged.blocks();
+        assertEquals(3, blocks.size());
+        assertEquals("设备启动后需要先检查电源指示灯状态。", blocks.get(1).getText());
+        assertEquals("images/s1_a.jpg", blocks.get(2).getImagePath());
+        assertEquals(51, blocks.get(2).getPageIndex());
+    }
+
+    @Test
+    void testBlocksNullWhenAnyShardLacksBlocks() {
+        MarkdownShardMerger.Merged merged = MarkdownShardMerger.merge(List.of(
+                new MarkdownShardMerger.Shard("内容一。", null, List.of(paragraph("内容一。", 0)), 0),
+                new MarkdownShardMerger.Shard("内容二。", null)));
+
+        assertNull(merged.blocks());
+    }
+
+    private DocumentBlock heading(String text, int pageIndex) {
+        return DocumentBlock.builder().type(DocumentBlock.Type.HEADING).level(1).text(text).pageIndex(pageIndex).build();
+    }
+
+    private DocumentBlock paragraph(String text, int pageIndex) {
+        return DocumentBlock.builder().type(DocumentBlock.Type.PARAGRAPH).text(text).pageIndex(pageIndex).build();
+    }
+
+    private ParsedImage image(String name, String sha256) {
+        return ParsedImage.builder().name(name).sha256(sha256).build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 可溢出缓冲区测试
+ */
+class SpillableBufferTest {
+
+    @Test
+    void testReadsInWriteOrderAcrossSpill() throws Exception {
+        byte[] data = randomBytes(1_000_000);
+
+        try (SpillableBuffer buffer = new SpillableBuffer(64 * 1024)) {
+            // 消费者尚未读取，超出内存上限的部分全部溢出到磁盘
+            for (int off = 0; off < data.length; off += 10_000) {
+                buffer.write(data, off, Math.min(10_000, data.length - off));
+            }
+            buffer.finish();
+
+            assertTrue(buffer.getSpilledBytes() > 0);
+            assertArrayEquals(data, readAll(buffer.getInputStream()));
+        }
+    }
+
+    @Test
+    void testConcurrentProducerAndSlowConsumer() throws Exception {
+        byte[] data = randomBytes(2_000_000);
+
+        try (SpillableBuffer buffer = new SpillableBuffer(32 * 1024)) {
+            CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+                try {
+                    for (int off = 0; off < data.length; off += 7_000) {
+                        buffer.write(data, off, Math.min(7_000, data.length - off));
+                    }
+                    buffer.finish();
+                } catch (IOException e) {
+                    buffer.fail(e);
+                }
+            });
+
+            assertArrayEquals(data, readAll(buffer.getInputStream()));
+            producer.join();
+        }
+    }
+
+    @Test
+    void testProducerFailureSurfacesToConsumer() throws Exception {
+        try (SpillableBuffer buffer = new SpillableBuffer(1024)) {
+            buffer.write(new byte[100], 0, 100);
+            buffer.fail(new IOException("connection reset"));
+
+            InputStream in = buffer.getInputStream();
+            assertEquals(100, in.read(new byte[200]));
+            IOException e = assertThrows(IOException.class, () -> in.read(new byte[200]));
+            assertTrue(e.getMessage().contains("connection reset"));
+        }
+    }
+
+    private byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[3_000];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+}
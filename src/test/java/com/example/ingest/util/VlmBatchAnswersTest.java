@@ -0,0 +1,54 @@
+package com.example.ingest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多图 VLM 回答拆分测试
+ */
+class VlmBatchAnswersTest {
+
+    @Test
+    void testSplitByHeaders() {
+        String content = "### 图片1\n描述: 流程图\nOCR: 开始 结束\n\n### 图片2\n描述: 柱状图\nOCR: 2023 2024\n";
+
+        List<String> answers = VlmBatchAnswers.split(content, 2);
+
+        assertEquals("描述: 流程图\nOCR: 开始 结束", answers.get(0));
+        assertEquals("描述: 柱状图\nOCR: 2023 2024", answers.get(1));
+    }
+
+    @Test
+    void testHeaderVariantsAndInlineAnswers() {
+        String content = "好的，以下是分析结果：\n**图片 1**：描述: 架构图 OCR: API\n图片2: 描述: 照片\n  ## 图片3\n描述: 表格";
+
+        List<String> answers = VlmBatchAnswers.split(content, 3);
+
+        assertEquals("描述: 架构图 OCR: API", answers.get(0));
+        assertEquals("描述: 照片", answers.get(1));
+        assertEquals("描述: 表格", answers.get(2));
+    }
+
+    @Test
+    void testMissingOutOfRangeAndDuplicateAnswers() {
+        String content = "### 图片1\n描述: 第一张\n### 图片3\n\n### 图片5\n描述: 多余\n### 图片1\n描述: 重复";
+
+        List<String> answers = VlmBatchAnswers.split(content, 3);
+
+        assertEquals(3, answers.size());
+        assertEquals("描述: 第一张", answers.get(0));
+        assertNull(answers.get(1));
+        assertNull(answers.get(2));
+    }
+
+    @Test
+    void testNoHeaders() {
+        List<String> answers = VlmBatchAnswers.split("描述: 无编号\nOCR: 文字", 2);
+
+        assertNull(answers.get(0));
+        assertNull(answers.get(1));
+    }
+}